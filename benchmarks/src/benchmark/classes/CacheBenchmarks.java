@@ -0,0 +1,225 @@
+package benchmark.classes;
+
+import cachingSystem.classes.LRUCache;
+import cachingSystem.classes.ObservableCache;
+import cachingSystem.classes.ObservableFIFOCache;
+import cachingSystem.classes.RingBufferFIFOCache;
+import cachingSystem.classes.TimeAwareCache;
+import cachingSystem.interfaces.CacheStalePolicy;
+import dataStructures.classes.Pair;
+import dataStructures.classes.ZipfDistribution;
+import observerPattern.classes.BroadcastListener;
+import observerPattern.classes.StatsListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the cache strategies: reads and updates of cached keys, and reads that insert
+ * the key on a miss in a cache ten times smaller than the key set, for uniform and Zipfian keys.
+ * The cost of the listeners is measured by ListenerBenchmarks. Build with mvn install, then mvn
+ * package in benchmarks/, and run:
+ *
+ * java -jar benchmarks/target/benchmarks.jar CacheBenchmarks [-prof gc]
+ *
+ * The gc profiler reports the bytes allocated per operation, e.g. for FIFO against RING_FIFO.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class CacheBenchmarks {
+
+    static final long SEED = 42;
+    static final int KEY_STREAM_LENGTH = 1 << 20;
+
+    private static final int EVICTION_CAPACITY_DIVISOR = 10;
+    private static final long NO_EXPIRATION = Long.MAX_VALUE / 2;
+    private static final long SHORT_EXPIRATION = 1;
+
+    /**
+     * The cache implementations.
+     */
+    public enum CacheType {
+        LRU,
+        FIFO,
+        RING_FIFO,
+        TIME,
+    }
+
+    @Param({"LRU", "FIFO", "RING_FIFO", "TIME"})
+    private CacheType type;
+
+    @Param({"1000", "100000"})
+    private int keyCount;
+
+    /* 0 for uniform keys */
+    @Param({"0", "0.99"})
+    private double skew;
+
+    private ObservableCache<String, String> cache;
+    private ObservableCache<String, String> evictionCache;
+    private String[] keys;
+    private int[] stream;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        cache = createCache(type, keyCount, NO_EXPIRATION);
+        evictionCache = createCache(type, keyCount / EVICTION_CAPACITY_DIVISOR, SHORT_EXPIRATION);
+        cache.setCacheListener(new BroadcastListener<String, String>());
+        evictionCache.setCacheListener(new BroadcastListener<String, String>());
+
+        keys = createKeys(keyCount);
+        stream = new ZipfDistribution(keyCount, skew, SEED).next(KEY_STREAM_LENGTH);
+        cursor = 0;
+
+        for (String key : keys) {
+            cache.put(key, key);
+        }
+    }
+
+    @Benchmark
+    public int get() {
+        return cache.get(nextKey()).length();
+    }
+
+    @Benchmark
+    public int put() {
+        String key = nextKey();
+
+        cache.put(key, key);
+        return cache.size();
+    }
+
+    @Benchmark
+    public int eviction() {
+        String key = nextKey();
+        String value = evictionCache.get(key);
+
+        if (value == null) {
+            evictionCache.put(key, key);
+            return 0;
+        }
+        return value.length();
+    }
+
+    private String nextKey() {
+        String key = keys[stream[cursor]];
+        cursor = (cursor + 1) & (KEY_STREAM_LENGTH - 1);
+        return key;
+    }
+
+    /**
+     * Create a cache of a type, without a listener. TIME caches are bounded by @expiration
+     * instead of @capacity.
+     *
+     * @param type       the type
+     * @param capacity   the maximum number of entries
+     * @param expiration the expiration time of TIME caches, in milliseconds
+     * @return the cache
+     */
+    static ObservableCache<String, String> createCache(final CacheType type, final int capacity,
+                                                       final long expiration) {
+        final ObservableCache<String, String> cache;
+
+        switch (type) {
+            case LRU:
+                cache = new LRUCache<>();
+                break;
+            case FIFO:
+                cache = new ObservableFIFOCache<>();
+                break;
+            case RING_FIFO:
+                cache = new RingBufferFIFOCache<>();
+                break;
+            case TIME:
+                TimeAwareCache<String, String> timeAwareCache = new TimeAwareCache<>();
+                timeAwareCache.setExpirePolicy(expiration);
+                return timeAwareCache;
+            default:
+                throw new IllegalArgumentException("Unsupported cache type: " + type);
+        }
+
+        cache.setStalePolicy(new CacheStalePolicy<String, String>() {
+            @Override
+            public boolean shouldRemoveEldestEntry(final Pair<String, String> entry) {
+                return cache.size() > capacity;
+            }
+        });
+        return cache;
+    }
+
+    static String[] createKeys(final int count) {
+        String[] keys = new String[count];
+
+        for (int i = 0; i < count; i++) {
+            keys[i] = "key" + i;
+        }
+        return keys;
+    }
+
+    /**
+     * Reads of cached keys with a number of StatsListeners attached through a BroadcastListener.
+     */
+    @State(Scope.Thread)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+    @Fork(1)
+    public static class ListenerBenchmarks {
+
+        private static final int KEY_COUNT = 10000;
+        private static final double SKEW = 0.99;
+
+        @Param({"LRU", "FIFO", "RING_FIFO", "TIME"})
+        private CacheType type;
+
+        @Param({"0", "1", "4", "16"})
+        private int listeners;
+
+        private ObservableCache<String, String> cache;
+        private String[] keys;
+        private int[] stream;
+        private int cursor;
+
+        @Setup
+        public void setUp() {
+            cache = createCache(type, KEY_COUNT, NO_EXPIRATION);
+
+            BroadcastListener<String, String> broadcastListener = new BroadcastListener<>();
+            for (int i = 0; i < listeners; i++) {
+                broadcastListener.addListener(new StatsListener<String, String>());
+            }
+            cache.setCacheListener(broadcastListener);
+
+            keys = createKeys(KEY_COUNT);
+            stream = new ZipfDistribution(KEY_COUNT, SKEW, SEED).next(KEY_STREAM_LENGTH);
+            cursor = 0;
+
+            for (String key : keys) {
+                cache.put(key, key);
+            }
+        }
+
+        @Benchmark
+        public int get() {
+            String key = keys[stream[cursor]];
+            cursor = (cursor + 1) & (KEY_STREAM_LENGTH - 1);
+            return cache.get(key).length();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package benchmark.classes;
+
+import cachingSystem.FileCache;
+import dataStructures.classes.ZipfDistribution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * JMH benchmarks of the FileCache paths that read files from disk, against files written to a
+ * temporary directory. Build with mvn install, then mvn package in benchmarks/, and run:
+ *
+ * java -jar benchmarks/target/benchmarks.jar FileBenchmarks
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class FileBenchmarks {
+
+    private static final int FILE_COUNT = 1000;
+    private static final int FILE_SIZE = 4096;
+    private static final int MISS_CAPACITY = 100;
+
+    private Path directory;
+    private String[] paths;
+
+    @Setup(Level.Trial)
+    public void createFiles() throws IOException {
+        char[] contents = new char[FILE_SIZE];
+        Arrays.fill(contents, 'x');
+        byte[] bytes = new String(contents).getBytes(StandardCharsets.UTF_8);
+
+        directory = Files.createTempDirectory("filecache-bench");
+        paths = new String[FILE_COUNT];
+        for (int i = 0; i < FILE_COUNT; i++) {
+            Path file = directory.resolve(i + ".txt");
+            Files.write(file, bytes);
+            paths[i] = file.toString();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<Path> entries = files.sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+
+            for (Path entry : entries) {
+                Files.delete(entry);
+            }
+        }
+    }
+
+    /**
+     * Uniform reads through a FileCache ten times smaller than the file set, so that most of the
+     * reads go through FileCache.onMiss.
+     */
+    @State(Scope.Thread)
+    public static class MissState {
+        private FileCache cache;
+        private int[] stream;
+        private int cursor;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, MISS_CAPACITY);
+            stream = new ZipfDistribution(FILE_COUNT, 0, CacheBenchmarks.SEED)
+                    .next(CacheBenchmarks.KEY_STREAM_LENGTH);
+            cursor = 0;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+    public int miss(final MissState state) {
+        String path = paths[state.stream[state.cursor]];
+        state.cursor = (state.cursor + 1) & (CacheBenchmarks.KEY_STREAM_LENGTH - 1);
+        return state.cache.getFileContents(path).length();
+    }
+
+    /**
+     * FileCache.preload of the whole file set into an empty cache that holds all of it.
+     */
+    @State(Scope.Thread)
+    public static class PreloadState {
+        @Param({"1", "4"})
+        private int parallelism;
+
+        private FileCache cache;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, FILE_COUNT);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            cache.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+    public int preload(final PreloadState state) throws IOException {
+        return state.cache.preload(directory,
+                FileSystems.getDefault().getPathMatcher("glob:*.txt"), state.parallelism);
+    }
+}
@@ -0,0 +1,560 @@
+package cacheServer.classes;
+
+import cachingSystem.FileCache;
+import observerPattern.classes.StatsListener;
+import traceReplay.classes.TraceReplayer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The CacheServer exposes a FileCache over TCP with a subset of the memcached text protocol:
+ *
+ * get <key>*                                  VALUE <key> 0 <bytes>\r\n<data>\r\n ... END\r\n
+ * set <key> <flags> <exptime> <bytes> [noreply]\r\n<data>\r\n               STORED\r\n
+ * delete <key> [noreply]                      DELETED\r\n or NOT_FOUND\r\n
+ * keys                                        KEY <key>\r\n ... END\r\n
+ * stats                                       STAT <name> <value>\r\n ... END\r\n
+ * quit
+ *
+ * The keys are file paths. A get of a file that is not cached loads it from disk; files that
+ * cannot be read are left out of the response. The flags and exptime of a set are ignored. A
+ * delete drops the file from the cache only, and keys, which is not part of memcached, lists the
+ * cached files.
+ *
+ * All the connections are served by one thread, with a Selector, which parses the requests and
+ * writes the responses. Clients may pipeline requests, and a connection whose responses are not
+ * being read stops being read itself.
+ *
+ * The selector thread never calls the cache, whose operations may wait for its lock or for the
+ * disk: every request that needs the cache is handed to a pool of worker threads, and the
+ * connection that sent it is paused until its response is ready, so that the responses keep the
+ * order of the requests. The other connections are served meanwhile.
+ */
+public class CacheServer implements Runnable, Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = "END\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] STORED = "STORED\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DELETED = "DELETED\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NOT_FOUND = "NOT_FOUND\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ERROR = "ERROR\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final String NOREPLY = "noreply";
+    private static final byte[] BAD_FORMAT = "CLIENT_ERROR bad command line format\r\n"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BAD_DATA_CHUNK = "CLIENT_ERROR bad data chunk\r\n"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NO_RESPONSE = new byte[0];
+    private static final int SET_TOKENS = 5;
+    private static final int WORKER_THREADS = 4;
+
+    private final FileCache cache;
+    private final StatsListener<String, String> statsListener = new StatsListener<>();
+    private final int bufferSize;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService workers;
+    private final Queue<Response> responses = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    private long getCommands = 0;
+    private long setCommands = 0;
+    private int connections = 0;
+
+    /**
+     * Create a server and bind it to an address.
+     *
+     * @param cache      the cache to serve
+     * @param address    the address to listen on
+     * @param bufferSize the size of the input and output buffers of each connection, which also
+     *                   limits the size of a set request
+     * @throws IOException if the address cannot be bound
+     */
+    public CacheServer(final FileCache cache, final InetSocketAddress address,
+                       final int bufferSize) throws IOException {
+        this.cache = cache;
+        this.bufferSize = bufferSize;
+
+        cache.addListener(statsListener);
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        workers = Executors.newFixedThreadPool(WORKER_THREADS, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(runnable, "CacheServer-worker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Get the port the server listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Serve the clients until the server is closed.
+     */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                completeResponses();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        serve(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                throw new IllegalStateException("Cache server failed", e);
+            }
+        } finally {
+            closeAll();
+        }
+    }
+
+    /**
+     * Stop serving and close all the connections.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+
+        while (channel != null) {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, new Connection(channel, bufferSize));
+            connections++;
+
+            channel = serverChannel.accept();
+        }
+    }
+
+    private void serve(final SelectionKey key) {
+        Connection connection = (Connection) key.attachment();
+
+        try {
+            if (key.isReadable() && !connection.read()) {
+                disconnect(key);
+                return;
+            }
+            if (key.isWritable() && !connection.flush()) {
+                return;
+            }
+            resume(key, connection);
+        } catch (IOException e) {
+            disconnect(key);
+        }
+    }
+
+    /* Process the buffered requests of a connection until it blocks on its client or a worker */
+    private void resume(final SelectionKey key, final Connection connection) throws IOException {
+        boolean outputFull;
+        do {
+            outputFull = process(key, connection);
+
+            if (!connection.flush()) {
+                /* Stop reading requests until the client reads the responses */
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            if (connection.isClosing()) {
+                disconnect(key);
+                return;
+            }
+            if (connection.isWaiting()) {
+                /* Stop reading requests until the worker has answered the pending one */
+                key.interestOps(0);
+                return;
+            }
+        } while (outputFull);
+
+        key.interestOps(SelectionKey.OP_READ);
+    }
+
+    /* Write the responses finished by the workers, and resume their connections */
+    private void completeResponses() {
+        Response response = responses.poll();
+
+        while (response != null) {
+            SelectionKey key = response.key;
+
+            if (key.isValid()) {
+                Connection connection = (Connection) key.attachment();
+                connection.write(response.data);
+                connection.setWaiting(false);
+                try {
+                    resume(key, connection);
+                } catch (IOException e) {
+                    disconnect(key);
+                }
+            }
+            response = responses.poll();
+        }
+    }
+
+    /* Process the buffered requests; return true if stopped early because the output is full */
+    private boolean process(final SelectionKey key, final Connection connection) {
+        ByteBuffer input = connection.getInput();
+        input.flip();
+
+        while (!connection.isOutputFull() && !connection.isClosing()
+                && !connection.isWaiting() && processRequest(key, connection, input)) {
+            continue;
+        }
+
+        /* An incomplete request that fills the whole buffer can never complete */
+        boolean tooLarge = input.position() == 0 && input.limit() == input.capacity()
+                && !connection.isOutputFull() && !connection.isClosing()
+                && !connection.isWaiting();
+        input.compact();
+
+        if (tooLarge) {
+            connection.write(("SERVER_ERROR request larger than " + bufferSize + " bytes\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            connection.closeAfterFlush();
+        }
+        return connection.isOutputFull();
+    }
+
+    /* Process the request at the position of @input; return false if it is incomplete */
+    private boolean processRequest(final SelectionKey key, final Connection connection,
+                                   final ByteBuffer input) {
+        int start = input.position();
+        int end = findLineEnd(input);
+        if (end < 0) {
+            return false;
+        }
+
+        int next = end + 1;
+        int lineEnd = end > start && input.get(end - 1) == '\r' ? end - 1 : end;
+        List<String> tokens = tokenize(input.array(), start, lineEnd);
+        String command = tokens.isEmpty() ? "" : tokens.get(0);
+
+        switch (command) {
+            case "get":
+            case "gets":
+                input.position(next);
+                get(key, connection, tokens);
+                return true;
+            case "set":
+                return set(key, connection, input, tokens, next);
+            case "delete":
+                input.position(next);
+                delete(key, connection, tokens);
+                return true;
+            case "keys":
+                input.position(next);
+                keys(key, connection);
+                return true;
+            case "stats":
+                input.position(next);
+                stats(key, connection);
+                return true;
+            case "quit":
+                input.position(next);
+                connection.closeAfterFlush();
+                return true;
+            default:
+                input.position(next);
+                connection.write(ERROR);
+                return true;
+        }
+    }
+
+    private void get(final SelectionKey key, final Connection connection,
+                     final List<String> tokens) {
+        if (tokens.size() < 2) {
+            connection.write(ERROR);
+            return;
+        }
+        getCommands++;
+
+        final List<String> paths = tokens.subList(1, tokens.size());
+        submit(key, connection, new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                return encodeValues(cache.getAll(paths));
+            }
+        });
+    }
+
+    /* Run @request on a worker, and pause the connection until its response has been written */
+    private void submit(final SelectionKey key, final Connection connection,
+                        final Callable<byte[]> request) {
+        connection.setWaiting(true);
+        workers.execute(new Runnable() {
+            @Override
+            public void run() {
+                byte[] data;
+                try {
+                    data = request.call();
+                } catch (Exception e) {
+                    data = ("SERVER_ERROR " + e.getMessage() + "\r\n")
+                            .getBytes(StandardCharsets.UTF_8);
+                }
+
+                responses.add(new Response(key, data));
+                selector.wakeup();
+            }
+        });
+    }
+
+    /* The VALUE lines of the files that were found, followed by END */
+    private static byte[] encodeValues(final Map<String, String> values) {
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            byte[] data = entry.getValue().getBytes(StandardCharsets.UTF_8);
+
+            response.writeBytes(("VALUE " + entry.getKey() + " 0 " + data.length + "\r\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            response.writeBytes(data);
+            response.writeBytes(CRLF);
+        }
+        response.writeBytes(END);
+        return response.toByteArray();
+    }
+
+    private boolean set(final SelectionKey key, final Connection connection,
+                        final ByteBuffer input, final List<String> tokens, final int dataStart) {
+        int length;
+        try {
+            length = Integer.parseInt(tokens.get(SET_TOKENS - 1));
+        } catch (RuntimeException e) {
+            input.position(dataStart);
+            connection.write(BAD_FORMAT);
+            return true;
+        }
+
+        if (length < 0 || dataStart - input.position() + length + CRLF.length > bufferSize) {
+            connection.write(("SERVER_ERROR object larger than " + bufferSize + " bytes\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            connection.closeAfterFlush();
+            return true;
+        }
+        if (input.limit() < dataStart + length + CRLF.length) {
+            return false;
+        }
+
+        /* Data of another length than announced: what follows cannot be parsed reliably */
+        if (input.get(dataStart + length) != CRLF[0]
+                || input.get(dataStart + length + 1) != CRLF[1]) {
+            input.position(input.limit());
+            connection.write(BAD_DATA_CHUNK);
+            connection.closeAfterFlush();
+            return true;
+        }
+
+        final String path = tokens.get(1);
+        final String contents = new String(input.array(), dataStart, length,
+                StandardCharsets.UTF_8);
+        final boolean reply = tokens.size() <= SET_TOKENS
+                || !tokens.get(SET_TOKENS).equals(NOREPLY);
+        input.position(dataStart + length + CRLF.length);
+        setCommands++;
+
+        submit(key, connection, new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                cache.putFileContents(path, contents);
+                return reply ? STORED : NO_RESPONSE;
+            }
+        });
+        return true;
+    }
+
+    private void delete(final SelectionKey key, final Connection connection,
+                        final List<String> tokens) {
+        if (tokens.size() < 2 || tokens.size() > 3
+                || (tokens.size() == 3 && !tokens.get(2).equals(NOREPLY))) {
+            connection.write(BAD_FORMAT);
+            return;
+        }
+
+        final String path = tokens.get(1);
+        final boolean reply = tokens.size() == 2;
+        submit(key, connection, new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                boolean deleted = cache.remove(path);
+                return !reply ? NO_RESPONSE : deleted ? DELETED : NOT_FOUND;
+            }
+        });
+    }
+
+    private void keys(final SelectionKey key, final Connection connection) {
+        submit(key, connection, new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                ByteArrayOutputStream response = new ByteArrayOutputStream();
+
+                for (String path : cache.getCachedPaths()) {
+                    response.writeBytes(("KEY " + path + "\r\n")
+                            .getBytes(StandardCharsets.UTF_8));
+                }
+                response.writeBytes(END);
+                return response.toByteArray();
+            }
+        });
+    }
+
+    private void stats(final SelectionKey key, final Connection connection) {
+        /* The counters of the selector thread are read here, the cache on the worker */
+        final StringBuilder sb = new StringBuilder();
+        sb.append("STAT curr_connections ").append(connections).append("\r\n");
+        sb.append("STAT cmd_get ").append(getCommands).append("\r\n");
+        sb.append("STAT cmd_set ").append(setCommands).append("\r\n");
+
+        submit(key, connection, new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                sb.insert(0, "STAT curr_items " + cache.size() + "\r\n");
+                sb.append("STAT hits ").append(statsListener.getHits()).append("\r\n");
+                sb.append("STAT misses ").append(statsListener.getMisses()).append("\r\n");
+                sb.append("STAT updates ").append(statsListener.getUpdates()).append("\r\n");
+                sb.append("END\r\n");
+                return sb.toString().getBytes(StandardCharsets.US_ASCII);
+            }
+        });
+    }
+
+    /* The words of the line between @start and @end, separated by spaces */
+    private static List<String> tokenize(final byte[] buffer, final int start, final int end) {
+        List<String> tokens = new ArrayList<>();
+        int tokenStart = -1;
+
+        for (int i = start; i <= end; i++) {
+            boolean separator = i == end || buffer[i] == ' ' || buffer[i] == '\t';
+
+            if (separator && tokenStart >= 0) {
+                tokens.add(new String(buffer, tokenStart, i - tokenStart, StandardCharsets.UTF_8));
+                tokenStart = -1;
+            } else if (!separator && tokenStart < 0) {
+                tokenStart = i;
+            }
+        }
+        return tokens;
+    }
+
+    private static int findLineEnd(final ByteBuffer input) {
+        byte[] buffer = input.array();
+
+        for (int i = input.position(); i < input.limit(); i++) {
+            if (buffer[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A response built by a worker thread, to be written by the selector thread.
+     */
+    private static final class Response {
+        private final SelectionKey key;
+        private final byte[] data;
+
+        Response(final SelectionKey key, final byte[] data) {
+            this.key = key;
+            this.data = data;
+        }
+    }
+
+    private void disconnect(final SelectionKey key) {
+        key.cancel();
+        connections--;
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            /* The connection is dropped either way */
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                /* Keep closing the other channels */
+            }
+        }
+        workers.shutdownNow();
+        try {
+            selector.close();
+        } catch (IOException e) {
+            /* Nothing left to release */
+        }
+    }
+
+    /**
+     * Usage: CacheServer port type parameter, where type and parameter describe the cache as on
+     * the first line of a trace (e.g. "11311 LRU 1000"). The server listens on the loopback
+     * interface.
+     *
+     * @param args the arguments
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 3) {
+            throw new IllegalArgumentException("Usage: CacheServer port type parameter");
+        }
+
+        FileCache cache = TraceReplayer.createFileCache(args[1], Long.parseLong(args[2]));
+
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                Integer.parseInt(args[0]));
+        new CacheServer(cache, address, DEFAULT_BUFFER_SIZE).run();
+    }
+}
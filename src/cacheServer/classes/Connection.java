@@ -0,0 +1,153 @@
+package cacheServer.classes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * The state of one client connection of the CacheServer: the channel and its preallocated input
+ * and output buffers. Responses are accumulated in the output buffer and written in batches.
+ * A response that does not fit in the output buffer is kept in an overflow buffer until the
+ * output buffer has been drained.
+ */
+class Connection {
+
+    private final SocketChannel channel;
+    private final ByteBuffer input;
+    private final ByteBuffer output;
+    private ByteBuffer overflow = null;
+    private boolean closing = false;
+    private boolean waiting = false;
+
+    Connection(final SocketChannel channel, final int bufferSize) {
+        this.channel = channel;
+        this.input = ByteBuffer.allocate(bufferSize);
+        this.output = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Get the input buffer. It is kept in write mode between calls: the unparsed bytes are between
+     * 0 and its position.
+     *
+     * @return the buffer
+     */
+    ByteBuffer getInput() {
+        return input;
+    }
+
+    /**
+     * Read the available bytes into the input buffer.
+     *
+     * @return false if the client closed the connection
+     * @throws IOException on read errors
+     */
+    boolean read() throws IOException {
+        return channel.read(input) >= 0;
+    }
+
+    /**
+     * Queue bytes to be sent.
+     *
+     * @param data the bytes
+     */
+    void write(final byte[] data) {
+        write(data, 0, data.length);
+    }
+
+    /**
+     * Queue bytes to be sent.
+     *
+     * @param data   the bytes
+     * @param offset the start of the bytes to send
+     * @param length the number of bytes to send
+     */
+    void write(final byte[] data, final int offset, final int length) {
+        if (overflow == null && output.remaining() >= length) {
+            output.put(data, offset, length);
+            return;
+        }
+
+        int direct = overflow == null ? output.remaining() : 0;
+        output.put(data, offset, direct);
+
+        int rest = length - direct;
+        if (overflow == null) {
+            overflow = ByteBuffer.allocate(Math.max(rest, output.capacity()));
+        } else if (overflow.remaining() < rest) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(overflow.capacity() * 2,
+                    overflow.position() + rest));
+            overflow.flip();
+            grown.put(overflow);
+            overflow = grown;
+        }
+        overflow.put(data, offset + direct, rest);
+    }
+
+    /**
+     * Write as much of the queued bytes as the socket accepts.
+     *
+     * @return true if everything was written
+     * @throws IOException on write errors
+     */
+    boolean flush() throws IOException {
+        while (true) {
+            output.flip();
+            channel.write(output);
+            boolean drained = !output.hasRemaining();
+            output.compact();
+
+            if (!drained) {
+                return false;
+            }
+            if (overflow == null) {
+                return true;
+            }
+
+            overflow.flip();
+            int length = Math.min(overflow.remaining(), output.remaining());
+            ByteBuffer chunk = overflow.duplicate();
+            chunk.limit(chunk.position() + length);
+            output.put(chunk);
+            overflow.position(overflow.position() + length);
+
+            if (overflow.hasRemaining()) {
+                overflow.compact();
+            } else {
+                overflow = null;
+            }
+        }
+    }
+
+    /**
+     * Tell whether the queued output exceeds the output buffer, in which case no more requests
+     * should be processed until it has been flushed.
+     *
+     * @return true if there is more output than the output buffer holds
+     */
+    boolean isOutputFull() {
+        return overflow != null;
+    }
+
+    void closeAfterFlush() {
+        closing = true;
+    }
+
+    boolean isClosing() {
+        return closing;
+    }
+
+    /**
+     * Mark the connection as waiting, or no longer waiting, for the response of a request that is
+     * processed by a worker thread. The following requests are not processed while it waits, so
+     * that the responses keep the order of the requests.
+     *
+     * @param waiting true while a response is pending
+     */
+    void setWaiting(final boolean waiting) {
+        this.waiting = waiting;
+    }
+
+    boolean isWaiting() {
+        return waiting;
+    }
+}
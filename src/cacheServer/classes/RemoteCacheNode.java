@@ -0,0 +1,303 @@
+package cacheServer.classes;
+
+import cachingSystem.interfaces.CacheNode;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A CacheNode served by a CacheServer, usually another process on the loopback interface. The
+ * node keeps one connection open and sends one request at a time; failures to reach the server
+ * are thrown as IllegalStateException. Paths are sent as memcached keys, so they cannot contain
+ * whitespace.
+ *
+ * A request that fails or that is not answered within the read timeout leaves the connection in
+ * an unknown state, so the connection is closed, and the next request opens a new one.
+ */
+public class RemoteCacheNode implements CacheNode, Closeable {
+
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 5000;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+    private static final String VALUE = "VALUE ";
+    private static final String KEY = "KEY ";
+    private static final String STAT_ITEMS = "STAT curr_items ";
+    private static final String END = "END";
+    private static final String STORED = "STORED";
+    private static final String DELETED = "DELETED";
+    private static final String NOT_FOUND = "NOT_FOUND";
+
+    private final String name;
+    private final InetSocketAddress address;
+    private final int readTimeoutMillis;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    /* Null between a failure and the next request */
+    private Socket socket;
+    private InputStream input;
+    private OutputStream output;
+    private boolean closed = false;
+
+    /**
+     * Connect to a server, with the default read timeout.
+     *
+     * @param name    the name of the node
+     * @param address the address the server listens on
+     * @throws IOException if the server cannot be reached
+     */
+    public RemoteCacheNode(final String name, final InetSocketAddress address)
+            throws IOException {
+        this(name, address, DEFAULT_READ_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Connect to a server.
+     *
+     * @param name              the name of the node
+     * @param address           the address the server listens on
+     * @param readTimeoutMillis how long a response may take before the request fails
+     * @throws IOException if the server cannot be reached
+     */
+    public RemoteCacheNode(final String name, final InetSocketAddress address,
+                           final int readTimeoutMillis) throws IOException {
+        if (readTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Invalid read timeout: " + readTimeoutMillis);
+        }
+
+        this.name = name;
+        this.address = address;
+        this.readTimeoutMillis = readTimeoutMillis;
+
+        connect();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public synchronized String getFileContents(final String path) {
+        checkKey(path);
+
+        try {
+            send(("get " + path + "\r\n").getBytes(StandardCharsets.UTF_8));
+
+            String contents = null;
+            String header = readLine();
+            while (header.startsWith(VALUE)) {
+                byte[] data = readFully(parseLength(header));
+
+                readLine();
+                contents = new String(data, StandardCharsets.UTF_8);
+                header = readLine();
+            }
+            expect(END, header);
+
+            return contents;
+        } catch (IOException e) {
+            throw fail("Could not get " + path + " from node " + name, e);
+        }
+    }
+
+    @Override
+    public synchronized void putFileContents(final String path, final String contents) {
+        checkKey(path);
+        byte[] data = contents.getBytes(StandardCharsets.UTF_8);
+
+        try {
+            ByteArrayOutputStream request = new ByteArrayOutputStream();
+            request.writeBytes(("set " + path + " 0 0 " + data.length + "\r\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            request.writeBytes(data);
+            request.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+            send(request.toByteArray());
+
+            expect(STORED, readLine());
+        } catch (IOException e) {
+            throw fail("Could not put " + path + " on node " + name, e);
+        }
+    }
+
+    @Override
+    public synchronized boolean remove(final String path) {
+        checkKey(path);
+
+        try {
+            send(("delete " + path + "\r\n").getBytes(StandardCharsets.UTF_8));
+
+            String response = readLine();
+            if (response.equals(NOT_FOUND)) {
+                return false;
+            }
+            expect(DELETED, response);
+            return true;
+        } catch (IOException e) {
+            throw fail("Could not remove " + path + " from node " + name, e);
+        }
+    }
+
+    @Override
+    public synchronized List<String> getCachedPaths() {
+        try {
+            send("keys\r\n".getBytes(StandardCharsets.US_ASCII));
+
+            List<String> paths = new ArrayList<>();
+            String key = readLine();
+            while (key.startsWith(KEY)) {
+                paths.add(key.substring(KEY.length()));
+                key = readLine();
+            }
+            expect(END, key);
+
+            return paths;
+        } catch (IOException e) {
+            throw fail("Could not list the files of node " + name, e);
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        try {
+            send("stats\r\n".getBytes(StandardCharsets.US_ASCII));
+
+            int items = 0;
+            String stat = readLine();
+            while (!stat.equals(END)) {
+                if (stat.startsWith(STAT_ITEMS)) {
+                    items = parseLength(stat);
+                }
+                stat = readLine();
+            }
+            return items;
+        } catch (IOException e) {
+            throw fail("Could not get the stats of node " + name, e);
+        }
+    }
+
+    /**
+     * Close the connection to the server. The server keeps running, and the node cannot be used
+     * anymore.
+     *
+     * @throws IOException if the connection cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (socket != null) {
+            Socket connection = socket;
+            socket = null;
+            connection.close();
+        }
+    }
+
+    private void connect() throws IOException {
+        Socket connection = new Socket();
+
+        try {
+            connection.setTcpNoDelay(true);
+            connection.setSoTimeout(readTimeoutMillis);
+            connection.connect(address, CONNECT_TIMEOUT_MILLIS);
+            input = new BufferedInputStream(connection.getInputStream());
+            output = new BufferedOutputStream(connection.getOutputStream());
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+        socket = connection;
+    }
+
+    /* Send a request, on a new connection if the previous one failed */
+    private void send(final byte[] request) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Node " + name + " is closed");
+        }
+        if (socket == null) {
+            connect();
+        }
+
+        output.write(request);
+        output.flush();
+    }
+
+    /* Drop the connection, whose responses may be out of step with the requests */
+    private IllegalStateException fail(final String message, final IOException cause) {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+            }
+            socket = null;
+        }
+        return new IllegalStateException(message, cause);
+    }
+
+    private static void checkKey(final String path) {
+        for (int i = 0; i < path.length(); i++) {
+            if (Character.isWhitespace(path.charAt(i))) {
+                throw new IllegalArgumentException("Path contains whitespace: " + path);
+            }
+        }
+    }
+
+    /* The number at the end of a response line */
+    private int parseLength(final String response) throws IOException {
+        try {
+            return Integer.parseInt(response.substring(response.lastIndexOf(' ') + 1));
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected response from node " + name + ": " + response, e);
+        }
+    }
+
+    private void expect(final String expected, final String response) throws IOException {
+        if (!response.equals(expected)) {
+            throw new IOException("Unexpected response from node " + name + ": " + response);
+        }
+    }
+
+    /* Read a line without its line terminator */
+    private String readLine() throws IOException {
+        line.reset();
+
+        int b = input.read();
+        while (b != '\n') {
+            if (b < 0) {
+                throw new EOFException("Node " + name + " closed the connection");
+            }
+            line.write(b);
+            b = input.read();
+        }
+
+        int length = line.size();
+        byte[] bytes = line.toByteArray();
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private byte[] readFully(final int length) throws IOException {
+        byte[] data = new byte[length];
+        int read = 0;
+
+        while (read < length) {
+            int count = input.read(data, read, length - read);
+            if (count < 0) {
+                throw new EOFException("Node " + name + " closed the connection");
+            }
+            read += count;
+        }
+        return data;
+    }
+}
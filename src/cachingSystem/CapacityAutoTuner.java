@@ -0,0 +1,313 @@
+package cachingSystem;
+
+import observerPattern.classes.MissRatioCurveListener;
+import observerPattern.interfaces.CacheListener;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The CapacityAutoTuner periodically resizes a running FileCache so that it stays within a heap
+ * budget while keeping the capacity that pays off:
+ *
+ * - the memory taken by the cache is estimated from the average size of the stored files;
+ * - for an LRU cache, the hit ratio it would have one step above or below its current capacity is
+ *   estimated from the recent requests by a MissRatioCurveListener; the cache grows when the step
+ *   up gains enough hits and shrinks when the step down loses almost none. The curve only holds
+ *   for LRU, so a FIFO cache is instead grown back step by step towards the capacity it had when
+ *   the tuner was created;
+ * - the cache shrinks whenever a heap memory pool is still above the memory threshold after a
+ *   garbage collection.
+ *
+ * Shrinking evicts at most a fixed number of files per tick. For caches created with an
+ * expiration time, the expiration time is adjusted instead of the capacity. Caches built with
+ * FileCache.newBuilder are tuned like LRU caches when bounded by maximumSize; those bounded by
+ * weight or not bounded at all are left as they are.
+ *
+ * The memory pools are only read: the tuner compares their usage after the last collection with
+ * its own threshold, and leaves the collection usage thresholds of the JVM untouched.
+ */
+public final class CapacityAutoTuner {
+
+    private static final Logger LOGGER = Logger.getLogger(CapacityAutoTuner.class.getName());
+
+    /* Rough per-file overhead of the cache structures, the key and the String header */
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+    private static final int BYTES_PER_CHAR = 2;
+    private static final double ENTRY_SIZE_WEIGHT = 0.05;
+
+    private static final int SAMPLED_KEYS = 4096;
+    private static final int CURVE_BUCKETS = 1024;
+    private static final long MIN_REFERENCES = 1000;
+
+    private static final double DEFAULT_STEP = 0.1;
+    private static final double DEFAULT_GROW_GAIN = 0.01;
+    private static final double DEFAULT_SHRINK_LOSS = 0.001;
+    private static final double DEFAULT_MEMORY_THRESHOLD = 0.85;
+    private static final int DEFAULT_MAX_EVICTIONS_PER_TICK = 256;
+
+    private final FileCache fileCache;
+    private final long heapBudgetBytes;
+    private final int minCapacity;
+    private final int maxCapacity;
+    private final int initialCapacity;
+    private final MissRatioCurveListener<String, String> curve;
+    private final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+
+    private double step = DEFAULT_STEP;
+    private double growGain = DEFAULT_GROW_GAIN;
+    private double shrinkLoss = DEFAULT_SHRINK_LOSS;
+    private double memoryThreshold = DEFAULT_MEMORY_THRESHOLD;
+    private int maxEvictionsPerTick = DEFAULT_MAX_EVICTIONS_PER_TICK;
+    private long minExpiration = 1;
+    private long maxExpiration = Long.MAX_VALUE;
+
+    /* Only updated by the cache listener, which runs under the lock of the FileCache */
+    private volatile double averageEntryBytes = ENTRY_OVERHEAD_BYTES;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Create a tuner and subscribe it to the cache.
+     *
+     * @param fileCache       the cache
+     * @param heapBudgetBytes the heap memory the cached files may take
+     * @param minCapacity     the smallest capacity the cache is resized to
+     * @param maxCapacity     the largest capacity the cache is resized to
+     */
+    public CapacityAutoTuner(final FileCache fileCache, final long heapBudgetBytes,
+                             final int minCapacity, final int maxCapacity) {
+        if (minCapacity < 0 || maxCapacity < Math.max(minCapacity, 1)) {
+            throw new IllegalArgumentException("Invalid capacity range: " + minCapacity + " - "
+                    + maxCapacity);
+        }
+
+        this.fileCache = fileCache;
+        this.heapBudgetBytes = heapBudgetBytes;
+        this.minCapacity = minCapacity;
+        this.maxCapacity = maxCapacity;
+        this.initialCapacity = fileCache.getCapacity();
+        this.curve = new MissRatioCurveListener<>(SAMPLED_KEYS, maxCapacity, CURVE_BUCKETS);
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()) {
+                heapPools.add(pool);
+            }
+        }
+
+        fileCache.addRequestListener(curve);
+        fileCache.addListener(new CacheListener<String, String>() {
+            @Override
+            public void onHit(final String key) {
+            }
+
+            @Override
+            public void onMiss(final String key) {
+            }
+
+            @Override
+            public void onPut(final String key, final String value) {
+                recordEntry(value);
+            }
+        });
+    }
+
+    /**
+     * Set the fraction of the capacity (or expiration time) added or removed by one adjustment.
+     *
+     * @param step the fraction, between 0 and 1
+     */
+    public synchronized void setStep(final double step) {
+        this.step = step;
+    }
+
+    /**
+     * Set the estimated hit ratio gain needed to grow the cache by one step, and the estimated
+     * loss under which the cache is shrunk by one step.
+     *
+     * @param growGain   the minimum gain for growing
+     * @param shrinkLoss the maximum loss for shrinking
+     */
+    public synchronized void setUtilityThresholds(final double growGain, final double shrinkLoss) {
+        this.growGain = growGain;
+        this.shrinkLoss = shrinkLoss;
+    }
+
+    /**
+     * Set the maximum number of files evicted by one tick.
+     *
+     * @param maxEvictionsPerTick the maximum number of evictions
+     */
+    public synchronized void setMaxEvictionsPerTick(final int maxEvictionsPerTick) {
+        this.maxEvictionsPerTick = maxEvictionsPerTick;
+    }
+
+    /**
+     * Set the range of the expiration time, for caches created with an expiration time.
+     *
+     * @param minExpiration the smallest expiration time, in milliseconds
+     * @param maxExpiration the largest expiration time, in milliseconds
+     */
+    public synchronized void setExpirationRange(final long minExpiration,
+                                                final long maxExpiration) {
+        this.minExpiration = minExpiration;
+        this.maxExpiration = maxExpiration;
+    }
+
+    /**
+     * Set the fraction of each heap memory pool above which the memory is considered under
+     * pressure, as measured after a garbage collection.
+     *
+     * @param fraction the fraction, between 0 and 1
+     */
+    public synchronized void setMemoryThreshold(final double fraction) {
+        this.memoryThreshold = fraction;
+    }
+
+    /**
+     * Run tick periodically on a background thread.
+     *
+     * @param periodMillis the time between two ticks
+     */
+    public synchronized void start(final long periodMillis) {
+        if (scheduler != null) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(runnable, "CapacityAutoTuner");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                /* An exception thrown here would cancel all the following ticks */
+                try {
+                    tick();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Capacity tuning tick failed", e);
+                }
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the periodic ticks.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Make one adjustment of the cache, and evict part of the surplus if the cache is above its
+     * capacity.
+     */
+    public synchronized void tick() {
+        boolean pressure = isUnderMemoryPressure();
+
+        if (fileCache.getCapacity() != FileCache.UNBOUNDED) {
+            tuneCapacity(pressure);
+            fileCache.trimToCapacity(maxEvictionsPerTick);
+        } else if (fileCache.getExpiration() != FileCache.UNBOUNDED) {
+            tuneExpiration(pressure);
+        }
+
+        if (curve.getReferences() >= MIN_REFERENCES) {
+            curve.reset();
+        }
+    }
+
+    /**
+     * Get the estimated heap memory taken by one cached file.
+     *
+     * @return the size, in bytes
+     */
+    public double getAverageEntryBytes() {
+        return averageEntryBytes;
+    }
+
+    private void tuneCapacity(final boolean pressure) {
+        int capacity = fileCache.getCapacity();
+        int budgetCapacity = (int) Math.min(maxCapacity, heapBudgetBytes / averageEntryBytes);
+        int delta = Math.max(1, (int) (capacity * step));
+        int target = capacity;
+
+        if (pressure || capacity > budgetCapacity) {
+            target = Math.min(capacity - delta, budgetCapacity);
+        } else if (fileCache.getStrategy() != FileCache.Strategy.LRU) {
+            if (capacity < initialCapacity) {
+                target = Math.min(Math.min(capacity + delta, initialCapacity), budgetCapacity);
+            }
+        } else if (curve.getReferences() >= MIN_REFERENCES) {
+            double hitRatio = curve.getHitRatio(capacity);
+            double gain = curve.getHitRatio(capacity + delta) - hitRatio;
+            double loss = hitRatio - curve.getHitRatio(capacity - delta);
+
+            if (gain >= growGain) {
+                target = Math.min(capacity + delta, budgetCapacity);
+            } else if (loss <= shrinkLoss) {
+                target = capacity - delta;
+            }
+        }
+
+        target = Math.max(minCapacity, Math.min(maxCapacity, target));
+        if (target != capacity) {
+            fileCache.setCapacity(target);
+        }
+    }
+
+    private void tuneExpiration(final boolean pressure) {
+        long expiration = fileCache.getExpiration();
+        double usedBytes = fileCache.size() * averageEntryBytes;
+        long delta = Math.max(1, (long) (expiration * step));
+        long target = expiration;
+
+        if (pressure || usedBytes > heapBudgetBytes) {
+            target = expiration - delta;
+        } else if (usedBytes < heapBudgetBytes * (1 - step)
+                && curve.getReferences() >= MIN_REFERENCES
+                && curve.getMissRatio(maxCapacity) > shrinkLoss) {
+            /* Some of the recent misses could have been hits with files kept for longer */
+            target = expiration > maxExpiration - delta ? maxExpiration : expiration + delta;
+        }
+
+        target = Math.max(minExpiration, Math.min(maxExpiration, target));
+        if (target != expiration) {
+            fileCache.setExpiration(target);
+        }
+    }
+
+    private boolean isUnderMemoryPressure() {
+        for (MemoryPoolMXBean pool : heapPools) {
+            MemoryUsage usage = pool.getCollectionUsage();
+
+            if (usage != null && usage.getMax() > 0
+                    && usage.getUsed() > usage.getMax() * memoryThreshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recordEntry(final String value) {
+        double bytes = ENTRY_OVERHEAD_BYTES + (double) value.length() * BYTES_PER_CHAR;
+
+        averageEntryBytes += (bytes - averageEntryBytes) * ENTRY_SIZE_WEIGHT;
+    }
+}
@@ -1,19 +1,83 @@
 package cachingSystem;
 
+import cachingSystem.classes.BlockCache;
+import cachingSystem.classes.CapacityStalePolicy;
+import cachingSystem.classes.ExpiringCache;
 import cachingSystem.classes.ObservableCache;
-import cachingSystem.classes.ObservableFIFOCache;
 import cachingSystem.classes.LRUCache;
+import cachingSystem.classes.RingBufferFIFOCache;
+import cachingSystem.classes.SharedMemoryCache;
 import cachingSystem.classes.TimeAwareCache;
+import cachingSystem.classes.WeightStalePolicy;
+import cachingSystem.interfaces.CacheAdmissionPolicy;
+import cachingSystem.interfaces.CacheExpiry;
 import cachingSystem.interfaces.CacheStalePolicy;
+import cachingSystem.interfaces.CacheWeigher;
 import dataStructures.classes.Pair;
+import metrics.classes.CacheGetEvent;
+import metrics.classes.FileLoadEvent;
 import observerPattern.classes.BroadcastListener;
 import observerPattern.interfaces.CacheListener;
 
+import java.io.Closeable;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
-public final class FileCache {
+/**
+ * The FileCache keeps the contents of files in memory. It can be shared between threads: the
+ * operations are serialized on the FileCache instance, except for the file reads done by getAll,
+ * which run in parallel outside of the lock.
+ *
+ * A FileCache that has loaded files with getAll holds a pool of loader threads until it is
+ * closed.
+ */
+public final class FileCache implements Closeable {
+
+    public static final int UNBOUNDED = -1;
+
+    private static final int MAX_LOADER_THREADS = 8;
+    private static final long DEFAULT_LARGE_FILE_THRESHOLD = 1 << 20;
+    private static final int LARGE_FILES_CAPACITY = 1024;
+    private static final int READ_BUFFER_SIZE = 8192;
+    /* Number of dirty files that wakes the flusher before its interval ends */
+    private static final int WRITE_BEHIND_BATCH = 64;
 
     public enum Strategy {
         FIFO,
@@ -23,28 +87,49 @@ public final class FileCache {
     public static cachingSystem.FileCache createCacheWithCapacity(
             final cachingSystem.FileCache.Strategy strategy,
             final int capacity) {
-        ObservableCache<String, String> dataCache;
+        ObservableCache<String, String> dataCache = createDataCache(strategy);
+        CapacityStalePolicy<String, String> capacityPolicy =
+                new CapacityStalePolicy<>(dataCache, capacity);
+
+        dataCache.setStalePolicy(capacityPolicy);
+
+        cachingSystem.FileCache fileCache = new cachingSystem.FileCache(dataCache);
+        fileCache.capacityPolicy = capacityPolicy;
+        fileCache.targetCapacity = capacity;
+        fileCache.strategy = strategy;
+
+        return fileCache;
+    }
+
+    /**
+     * Create the bounded cache that backs a FileCache with the given strategy. This is exposed so
+     * that tools can run the same eviction logic on other key and value types.
+     *
+     * @param strategy the eviction strategy
+     * @param capacity the maximum number of entries
+     * @param <K>      the key type
+     * @param <V>      the value type
+     * @return the cache, without a listener
+     */
+    public static <K, V> ObservableCache<K, V> createDataCache(final Strategy strategy,
+                                                               final int capacity) {
+        ObservableCache<K, V> dataCache = createDataCache(strategy);
 
+        dataCache.setStalePolicy(new CapacityStalePolicy<>(dataCache, capacity));
+
+        return dataCache;
+    }
+
+    private static <K, V> ObservableCache<K, V> createDataCache(final Strategy strategy) {
         switch (strategy) {
 
             case FIFO:
-                dataCache = new ObservableFIFOCache<>();
-                break;
+                return new RingBufferFIFOCache<>();
             case LRU:
-                dataCache = new LRUCache<>();
-                break;
+                return new LRUCache<>();
             default:
                 throw new IllegalArgumentException("Unsupported cache strategy: " + strategy);
         }
-
-        dataCache.setStalePolicy(new CacheStalePolicy<String, String>() {
-            @Override
-            public boolean shouldRemoveEldestEntry(final Pair<String, String> entry) {
-                return dataCache.size() > capacity;
-            }
-        });
-
-        return new cachingSystem.FileCache(dataCache);
     }
 
     public static cachingSystem.FileCache createCacheWithExpiration(final long millisToExpire) {
@@ -52,7 +137,29 @@ public final class FileCache {
 
         dataCache.setExpirePolicy(millisToExpire);
 
-        return new cachingSystem.FileCache(dataCache);
+        cachingSystem.FileCache fileCache = new cachingSystem.FileCache(dataCache);
+        fileCache.timeAwareCache = dataCache;
+        fileCache.millisToExpire = millisToExpire;
+
+        return fileCache;
+    }
+
+    /**
+     * Start building a cache that combines a bound on the number of files or on their total
+     * length with an expiration policy.
+     *
+     * @return the builder
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    private static ObservableCache<String, Long> createLargeFilesCache() {
+        ObservableCache<String, Long> cache = createDataCache(Strategy.LRU, LARGE_FILES_CAPACITY);
+
+        cache.setCacheListener(new BroadcastListener<String, Long>());
+
+        return cache;
     }
 
     private FileCache(final ObservableCache<String, String> dataCache) {
@@ -60,6 +167,12 @@ public final class FileCache {
         this.broadcastListener = new BroadcastListener<>();
 
         this.dataCache.setCacheListener(broadcastListener);
+        this.dataCache.setWeigher(new CacheWeigher<String, String>() {
+            @Override
+            public long weigh(final String key, final String value) {
+                return value.length();
+            }
+        });
 
         broadcastListener.addListener(createCacheListener());
     }
@@ -73,47 +186,1406 @@ public final class FileCache {
 
             @Override
             public void onMiss(final String key) {
-                try {
-                    Reader fr = new FileReader(key);
-                    StringBuilder sb = new StringBuilder();
-                    int next;
-                    next = fr.read();
-                    while (next != -1) {
-                        sb.append((char) next);
-                        next = fr.read();
-                    }
-                    dataCache.put(key, sb.toString());
-                } catch (FileNotFoundException excp) {
-                    System.out.println("File not found!");
-                } catch (java.io.IOException excp) {
-                    System.out.println("IO Exception!");
+                if (deferLoads) {
+                    return;
+                }
+
+                String contents = loadFile(key);
+                if (contents == null) {
+                    return;
+                }
+
+                if (shouldAdmit(key, contents)) {
+                    dataCache.put(key, contents);
+                } else {
+                    bypassPath = key;
+                    bypassContents = contents;
                 }
             }
 
             @Override
             public void onPut(final String key, final String value) {
+                cachedFiles = dataCache.size();
+            }
+
+            @Override
+            public void onRemoval(final String key, final String value,
+                                  final RemovalCause cause) {
+                cachedFiles = dataCache.size();
+                if (cause == RemovalCause.SIZE) {
+                    evictions.increment();
+                } else if (cause == RemovalCause.EXPIRED) {
+                    expirations.increment();
+                }
             }
         };
     }
 
-    public String getFileContents(final String path) {
+    /*
+     * Reads a file from the contents waiting for write-behind if it was put, then from the shared
+     * tier if there is one, from disk otherwise
+     */
+    private String loadFile(final String path) {
+        FileLoadEvent event = new FileLoadEvent();
+        SharedMemoryCache tier = sharedTier;
+
+        event.begin();
+        String dirty = getDirtyContents(path);
+        if (dirty != null) {
+            commitLoadEvent(event, path, "dirty", dirty);
+            return dirty;
+        }
+        if (tier != null) {
+            String contents = tier.get(path);
+            if (contents != null) {
+                sharedHits.increment();
+                commitLoadEvent(event, path, "shared", contents);
+                return contents;
+            }
+        }
+
+        long start = System.nanoTime();
+        String contents = readFile(path);
+
+        loadNanos.add(System.nanoTime() - start);
+        commitLoadEvent(event, path, "disk", contents);
+        if (contents == null) {
+            loadFailures.increment();
+        } else {
+            loads.increment();
+            if (tier != null) {
+                tier.put(path, contents);
+            }
+        }
+        return contents;
+    }
+
+    private static void commitLoadEvent(final FileLoadEvent event, final String path,
+                                        final String source, final String contents) {
+        if (event.shouldCommit()) {
+            event.path = path;
+            event.source = source;
+            event.success = contents != null;
+            event.characters = contents == null ? 0 : contents.length();
+            event.commit();
+        }
+    }
+
+    private static String readFile(final String path) {
+        try (Reader fr = new FileReader(path)) {
+            StringBuilder sb = new StringBuilder();
+            char[] buffer = new char[READ_BUFFER_SIZE];
+            int count = fr.read(buffer);
+            while (count != -1) {
+                sb.append(buffer, 0, count);
+                count = fr.read(buffer);
+            }
+            return sb.toString();
+        } catch (FileNotFoundException excp) {
+            System.out.println("File not found!");
+        } catch (java.io.IOException excp) {
+            System.out.println("IO Exception!");
+        }
+        return null;
+    }
+
+    private synchronized ExecutorService getLoaderExecutor() {
+        if (loaderExecutor == null) {
+            int threads = Math.min(MAX_LOADER_THREADS, Runtime.getRuntime().availableProcessors());
+
+            loaderExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    Thread thread = new Thread(runnable, "FileCache-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return loaderExecutor;
+    }
+
+    /**
+     * Release the threads of the cache. In write-behind mode, the dirty files are flushed and the
+     * flusher is stopped, which ends write-behind; if a file cannot be written, it stays dirty
+     * and the next close tries again. The cached files stay available, and a later getAll starts
+     * a new pool of loader threads.
+     *
+     * @throws IllegalStateException if a dirty file could not be written
+     */
+    @Override
+    public void close() {
+        ExecutorService executor;
+        Thread stopped;
+
+        synchronized (this) {
+            executor = loaderExecutor;
+            loaderExecutor = null;
+            stopped = flusher;
+            flusher = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+
+        if (stopped != null) {
+            try {
+                flush();
+            } catch (IOException excp) {
+                /* Tried again below, once the flusher has stopped */
+            }
+            stopped.interrupt();
+            joinFlusher(stopped);
+        }
+
+        try {
+            endWriteBehind();
+        } catch (IOException excp) {
+            throw new IllegalStateException("Could not write the dirty files", excp);
+        }
+    }
+
+    private static void joinFlusher(final Thread stopped) {
+        boolean interrupted = false;
+
+        while (true) {
+            try {
+                stopped.join();
+                break;
+            } catch (InterruptedException excp) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /* Flushes until no file is dirty, then leaves write-behind mode */
+    private void endWriteBehind() throws IOException {
+        while (true) {
+            flush();
+
+            synchronized (flushLock) {
+                synchronized (this) {
+                    if (dirtyFiles == null) {
+                        return;
+                    }
+                    if (dirtyFiles.isEmpty()) {
+                        dirtyFiles = null;
+                        dataCache.setPinnedKeys(null);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    public synchronized String getFileContents(final String path) {
+        CacheGetEvent event = new CacheGetEvent();
         String fileContents;
+        boolean hit = true;
 
+        event.begin();
+        requests.increment();
         do {
             fileContents = dataCache.get(path);
+            hit &= fileContents != null;
+
+            /* The file was loaded, but not admitted in the cache */
+            if (fileContents == null && path.equals(bypassPath)) {
+                fileContents = bypassContents;
+            }
+            bypassPath = null;
+            bypassContents = null;
         } while (fileContents == null);
 
+        if (hit) {
+            requestListener.onHit(path);
+        } else {
+            requestListener.onMiss(path);
+        }
+
+        if (event.shouldCommit()) {
+            event.path = path;
+            event.hit = hit;
+            event.characters = fileContents.length();
+            event.commit();
+        }
         return fileContents;
     }
 
-    public void putFileContents(final String path, final String contents) {
+    /**
+     * Put the contents of a file in the cache. In write-behind mode the file is also queued to be
+     * written to disk by the flusher; see enableWriteBehind.
+     *
+     * @param path     the path of the file
+     * @param contents the new contents
+     */
+    public synchronized void putFileContents(final String path, final String contents) {
+        blockCache.invalidate(path);
+        markDirty(path, contents);
+        publish(path, contents);
         dataCache.put(path, contents);
     }
 
-    public void addListener(final CacheListener<String, String> listener) {
+    /**
+     * Drop a file from the cache. A file waiting for write-behind is still written to disk, and
+     * is read from its put contents rather than from disk until then.
+     *
+     * @param path the path of the file
+     * @return true if the file was cached
+     */
+    public synchronized boolean remove(final String path) {
+        return dataCache.remove(path) != null;
+    }
+
+    /**
+     * Get the paths of the cached files.
+     *
+     * @return the paths, the first to be evicted first
+     */
+    public synchronized List<String> getCachedPaths() {
+        return dataCache.getKeys();
+    }
+
+    /**
+     * Get the contents of several files at once. The cached files are resolved in a single pass,
+     * while the missing ones are read in parallel on a bounded pool of loader threads and then
+     * inserted in the cache as one batch, so stale entries are cleared only once per call.
+     * Files that cannot be read are left out of the result.
+     *
+     * @param paths the paths of the files
+     * @return the contents of each readable file, in the order of @paths
+     */
+    public Map<String, String> getAll(final Collection<String> paths) {
+        Map<String, String> result = getAllIfPresent(paths);
+        List<String> missingPaths = new ArrayList<>();
+
+        for (Map.Entry<String, String> entry : result.entrySet()) {
+            if (entry.getValue() == null) {
+                missingPaths.add(entry.getKey());
+            }
+        }
+        if (missingPaths.isEmpty()) {
+            return result;
+        }
+
+        Map<String, String> loaded = loadAll(missingPaths);
+        for (String path : missingPaths) {
+            String fileContents = loaded.get(path);
+
+            if (fileContents == null) {
+                result.remove(path);
+            } else {
+                result.put(path, fileContents);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Look several files up without loading the missing ones. Each lookup counts as a hit or a
+     * miss, as in getAll; the missing files can then be loaded with loadAll, e.g. from another
+     * thread.
+     *
+     * @param paths the paths of the files
+     * @return the contents of each file, or null for the files that are not cached, in the order
+     *         of @paths
+     */
+    public synchronized Map<String, String> getAllIfPresent(final Collection<String> paths) {
+        Map<String, String> result = new LinkedHashMap<>();
+
+        deferLoads = true;
+        try {
+            for (String path : paths) {
+                if (!result.containsKey(path)) {
+                    requests.increment();
+                    String fileContents = dataCache.get(path);
+
+                    if (fileContents != null) {
+                        requestListener.onHit(path);
+                    } else {
+                        requestListener.onMiss(path);
+                    }
+                    result.put(path, fileContents);
+                }
+            }
+        } finally {
+            deferLoads = false;
+        }
+        return result;
+    }
+
+    /**
+     * Read several files in parallel on a bounded pool of loader threads, and insert the ones
+     * admitted by the admission policy in the cache as one batch, so stale entries are cleared
+     * only once per call. The files are read outside of the lock of the cache; a file cached
+     * meanwhile, e.g. by putFileContents, is kept and returned instead of the contents read.
+     *
+     * @param paths the paths of the files
+     * @return the contents of each readable file, in the order of @paths
+     */
+    public Map<String, String> loadAll(final Collection<String> paths) {
+        ExecutorService executor = getLoaderExecutor();
+        List<String> uniquePaths = new ArrayList<>(new LinkedHashSet<>(paths));
+        List<Future<String>> loads = new ArrayList<>();
+
+        for (final String path : uniquePaths) {
+            loads.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return loadFile(path);
+                }
+            }));
+        }
+
+        Map<String, String> loaded = new LinkedHashMap<>();
+        for (int i = 0; i < uniquePaths.size(); i++) {
+            String fileContents = waitForLoad(loads.get(i));
+
+            if (fileContents != null) {
+                loaded.put(uniquePaths.get(i), fileContents);
+            }
+        }
+
+        Map<String, String> admitted = new LinkedHashMap<>();
+        synchronized (this) {
+            for (Map.Entry<String, String> entry : loaded.entrySet()) {
+                /* A file put while it was being read is newer than the disk */
+                String dirty = getDirtyContents(entry.getKey());
+                if (dataCache.containsKey(entry.getKey())) {
+                    entry.setValue(getCachedContents(entry.getKey()));
+                    continue;
+                }
+                if (dirty != null) {
+                    entry.setValue(dirty);
+                }
+                if (shouldAdmit(entry.getKey(), entry.getValue())) {
+                    admitted.put(entry.getKey(), entry.getValue());
+                }
+            }
+
+            dataCache.putAll(admitted);
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Warm the cache with the files of a directory tree. The files whose path relative to @root
+     * matches @filter and that are not cached yet are loaded in parallel, most recently modified
+     * first, as long as they fit in the free room of the cache. Preloading never evicts a file: a
+     * cache that is already full loads nothing, and the files that no longer fit once they have
+     * been read, because the cache was filled meanwhile, are dropped. The most recently modified
+     * files end up the most recently used. The admission policy does not apply.
+     *
+     * @param root        the root of the tree
+     * @param filter      the files to load, e.g. glob:**.txt
+     * @param parallelism the number of files read at once
+     * @return the number of files loaded in the cache
+     * @throws IOException if the tree cannot be walked
+     */
+    public int preload(final Path root, final PathMatcher filter, final int parallelism)
+            throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+        }
+
+        final List<Pair<Path, BasicFileAttributes>> candidates = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && filter.matches(root.relativize(file))) {
+                    candidates.add(new Pair<>(file, attrs));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(candidates, new Comparator<Pair<Path, BasicFileAttributes>>() {
+            @Override
+            public int compare(final Pair<Path, BasicFileAttributes> first,
+                               final Pair<Path, BasicFileAttributes> second) {
+                return second.getValue().lastModifiedTime().compareTo(
+                        first.getValue().lastModifiedTime());
+            }
+        });
+
+        /*
+         * Pick the files that fit before reading any of them. The weight counts characters, and
+         * the size on disk stands for it: it is never smaller for the usual charsets, so the files
+         * picked fit, but a file of multi-byte characters may be left out although it would fit.
+         * The exact weight is checked again on insertion.
+         */
+        final List<String> selected = new ArrayList<>();
+        synchronized (this) {
+            long slots = getFreeSlots();
+            long weight = getFreeWeight();
+
+            for (Pair<Path, BasicFileAttributes> candidate : candidates) {
+                String path = candidate.getKey().toString();
+                long size = candidate.getValue().size();
+
+                if (selected.size() >= slots) {
+                    break;
+                }
+                if (size > weight || dataCache.containsKey(path)) {
+                    continue;
+                }
+                selected.add(path);
+                weight -= size;
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<Future<String>> loads = new ArrayList<>();
+        try {
+            for (final String path : selected) {
+                loads.add(pool.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return loadFile(path);
+                    }
+                }));
+            }
+
+            List<String> contents = new ArrayList<>();
+            for (Future<String> load : loads) {
+                contents.add(waitForLoad(load));
+            }
+
+            return insertPreloaded(selected, contents);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /* Insert the preloaded files that still fit and are still missing, in priority order */
+    private synchronized int insertPreloaded(final List<String> paths,
+                                             final List<String> contents) {
+        long slots = getFreeSlots();
+        long weight = getFreeWeight();
+        List<Integer> fitting = new ArrayList<>();
+
+        for (int i = 0; i < paths.size() && fitting.size() < slots; i++) {
+            String fileContents = contents.get(i);
+
+            if (fileContents == null || dataCache.containsKey(paths.get(i))) {
+                continue;
+            }
+
+            long fileWeight = fileContents.length();
+            if (fileWeight <= weight) {
+                fitting.add(i);
+                weight -= fileWeight;
+            }
+        }
+
+        /*
+         * Inserted lowest priority first, so that the newest files are the last evicted. A file
+         * put and dropped while it was being read is inserted with its put contents.
+         */
+        Map<String, String> inserted = new LinkedHashMap<>();
+        for (int i = fitting.size() - 1; i >= 0; i--) {
+            int index = fitting.get(i);
+            String dirty = getDirtyContents(paths.get(index));
+            inserted.put(paths.get(index), dirty != null ? dirty : contents.get(index));
+        }
+        dataCache.putAll(inserted);
+
+        return inserted.size();
+    }
+
+    /* The number of files that can be added without an eviction */
+    private long getFreeSlots() {
+        return capacityPolicy == null ? Long.MAX_VALUE
+                : Math.max(0, targetCapacity - dataCache.size());
+    }
+
+    /* The weight that can be added without an eviction */
+    private long getFreeWeight() {
+        return maximumWeight == UNBOUNDED ? Long.MAX_VALUE
+                : Math.max(0, maximumWeight - dataCache.getWeight());
+    }
+
+    private static String waitForLoad(final Future<String> load) {
+        try {
+            return load.get();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading files", excp);
+        } catch (ExecutionException excp) {
+            throw new IllegalStateException("File load failed", excp.getCause());
+        }
+    }
+
+    /**
+     * Put the contents of several files at once. Stale entries are cleared only once, after all
+     * the files have been inserted.
+     *
+     * @param contents the file contents, keyed by path
+     */
+    public synchronized void putAll(final Map<String, String> contents) {
+        for (Map.Entry<String, String> entry : contents.entrySet()) {
+            markDirty(entry.getKey(), entry.getValue());
+            publish(entry.getKey(), entry.getValue());
+        }
+        dataCache.putAll(contents);
+    }
+
+    /**
+     * Make putFileContents and putAll persist the files they store. The new contents are queued
+     * and written by a background flusher, at most @flushIntervalMillis after being put, or
+     * sooner once enough files are queued. Files written again before they are flushed are
+     * written only once, with their last contents. Each flush writes its whole batch to temporary
+     * files, syncs them, and renames them over the files, so a crash leaves each file whole.
+     * Files waiting to be flushed are never evicted: the other files are evicted in their place,
+     * and the cache grows past its capacity only while all of its files are waiting. Until they
+     * are flushed, files dropped with remove are read again from their put contents. After a
+     * failed flush, the flusher waits a whole interval before trying again. Write-behind ends
+     * when the cache is closed.
+     *
+     * @param flushIntervalMillis the longest time a file waits before being flushed
+     */
+    public synchronized void enableWriteBehind(final long flushIntervalMillis) {
+        if (dirtyFiles != null) {
+            throw new IllegalStateException("Write-behind is already enabled.");
+        }
+        if (flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Invalid flush interval: " + flushIntervalMillis);
+        }
+
+        dirtyFiles = new ConcurrentHashMap<>();
+        dataCache.setPinnedKeys(dirtyFiles.keySet());
+
+        flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runFlusher(flushIntervalMillis);
+            }
+        }, "FileCache-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Write every file queued by write-behind to disk, and wait until they are synced. Files put
+     * while the flush is running may be left for the next flush. Files that could not be written
+     * stay queued, and are retried by the flusher.
+     *
+     * @throws IOException if a file could not be written
+     */
+    public void flush() throws IOException {
+        synchronized (flushLock) {
+            Map<String, String> batch;
+
+            synchronized (this) {
+                if (dirtyFiles == null || dirtyFiles.isEmpty()) {
+                    return;
+                }
+                batch = new LinkedHashMap<>(dirtyFiles);
+            }
+
+            IOException failure = writeFiles(batch);
+
+            synchronized (this) {
+                for (Map.Entry<String, String> entry : batch.entrySet()) {
+                    /* Files put again during the flush stay dirty */
+                    if (dirtyFiles.get(entry.getKey()) == entry.getValue()) {
+                        dirtyFiles.remove(entry.getKey());
+                    }
+                    /* The blocks and the size read before the flush are out of date */
+                    blockCache.invalidate(entry.getKey());
+                    largeFiles.remove(entry.getKey());
+                }
+                dataCache.clearStaleEntries();
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Get the number of files waiting to be written by write-behind.
+     *
+     * @return the number of dirty files
+     */
+    public synchronized int getDirtyCount() {
+        return dirtyFiles == null ? 0 : dirtyFiles.size();
+    }
+
+    /* The contents of a file waiting for write-behind, read without the lock of the cache */
+    private String getDirtyContents(final String path) {
+        Map<String, String> dirty = dirtyFiles;
+
+        return dirty == null ? null : dirty.get(path);
+    }
+
+    private void markDirty(final String path, final String contents) {
+        if (dirtyFiles == null) {
+            return;
+        }
+
+        dirtyFiles.put(path, contents);
+        /* Wake the flusher to start its interval, or to flush a full batch at once */
+        if (dirtyFiles.size() == 1 || dirtyFiles.size() >= WRITE_BEHIND_BATCH) {
+            notifyAll();
+        }
+    }
+
+    private void runFlusher(final long flushIntervalMillis) {
+        boolean failed = false;
+
+        while (true) {
+            try {
+                synchronized (this) {
+                    while (dirtyFiles.isEmpty()) {
+                        wait();
+                    }
+                    if (failed) {
+                        /* Puts still wake the flusher, so wait until the whole interval is over */
+                        long deadline = System.nanoTime()
+                                + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                        long remaining = deadline - System.nanoTime();
+                        while (remaining > 0) {
+                            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                            remaining = deadline - System.nanoTime();
+                        }
+                    } else if (dirtyFiles.size() < WRITE_BEHIND_BATCH) {
+                        wait(flushIntervalMillis);
+                    }
+                }
+                failed = false;
+                flush();
+            } catch (InterruptedException excp) {
+                return;
+            } catch (IOException excp) {
+                writeFailures.increment();
+                failed = true;
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /*
+     * Writes each file of the batch to a temporary file next to it, syncs them, then renames them
+     * over the files and syncs their directories, so that a crash leaves either the old or the
+     * new contents. The files are written WRITE_BEHIND_BATCH at a time, so that a large batch
+     * does not hold a channel per file. The files that fail are removed from the batch.
+     */
+    private static IOException writeFiles(final Map<String, String> batch) {
+        List<Map.Entry<String, String>> chunk = new ArrayList<>(WRITE_BEHIND_BATCH);
+        List<String> failed = new ArrayList<>();
+        IOException failure = null;
+
+        for (Map.Entry<String, String> entry : batch.entrySet()) {
+            chunk.add(entry);
+            if (chunk.size() == WRITE_BEHIND_BATCH) {
+                failure = writeChunk(chunk, failed, failure);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            failure = writeChunk(chunk, failed, failure);
+        }
+
+        batch.keySet().removeAll(failed);
+        return failure;
+    }
+
+    /* Adds the paths that fail to @failed, and returns the last failure */
+    private static IOException writeChunk(final List<Map.Entry<String, String>> chunk,
+                                          final List<String> failed, final IOException failure) {
+        List<FileChannel> channels = new ArrayList<>();
+        List<String> written = new ArrayList<>();
+        IOException lastFailure = failure;
+
+        for (Map.Entry<String, String> entry : chunk) {
+            FileChannel channel = null;
+
+            try {
+                channel = FileChannel.open(temporaryFile(entry.getKey()),
+                        StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                ByteBuffer bytes = ByteBuffer.wrap(
+                        entry.getValue().getBytes(Charset.defaultCharset()));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channels.add(channel);
+                written.add(entry.getKey());
+            } catch (IOException excp) {
+                lastFailure = excp;
+                failed.add(entry.getKey());
+                closeQuietly(channel);
+                deleteQuietly(temporaryFile(entry.getKey()));
+            }
+        }
+
+        Set<Path> directories = new LinkedHashSet<>();
+        for (int i = 0; i < channels.size(); i++) {
+            FileChannel channel = channels.get(i);
+            Path file = Paths.get(written.get(i));
+            Path temporary = temporaryFile(written.get(i));
+            try {
+                channel.force(true);
+                channel.close();
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+                directories.add(file.toAbsolutePath().getParent());
+            } catch (IOException excp) {
+                lastFailure = excp;
+                failed.add(written.get(i));
+                closeQuietly(channel);
+                deleteQuietly(temporary);
+            }
+        }
+
+        /* The files are renamed already, a failure here only leaves the renames unsynced */
+        for (Path directory : directories) {
+            try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException excp) {
+                lastFailure = excp;
+            }
+        }
+        return lastFailure;
+    }
+
+    /* In the directory of the file, so that it can be renamed over the file atomically */
+    private static Path temporaryFile(final String path) {
+        Path file = Paths.get(path);
+
+        return file.resolveSibling("." + file.getFileName() + ".flush");
+    }
+
+    private static void deleteQuietly(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException excp) {
+            /* Overwritten by the next flush of the file */
+        }
+    }
+
+    private static void closeQuietly(final FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            channel.close();
+        } catch (IOException excp) {
+            /* Nothing left to release */
+        }
+    }
+
+    /**
+     * Write the bytes of a file to a channel. A cached file, including one put and not yet
+     * written to disk, is sent from its cached contents, encoded with the platform charset as the
+     * flusher writes them, and counts as a hit. Other files up to the large file threshold are
+     * sent from the block cache used by getFileRange, so they are read from disk once and sent as
+     * they are stored, whatever their encoding. Larger files are sent straight from disk with
+     * FileChannel.transferTo, which lets the operating system copy them without going through the
+     * heap; their size is remembered, so the next transfer of a large file skips the stat and
+     * sends that many bytes, or fewer if the file has shrunk. Non-blocking channels are waited on
+     * until they accept more bytes.
+     *
+     * @param path   the path of the file
+     * @param target the channel to write to
+     * @return the number of bytes written
+     * @throws IOException if the file cannot be read or the channel cannot be written
+     */
+    public long transferTo(final String path, final WritableByteChannel target)
+            throws IOException {
+        String cached = null;
+        Long size;
+        long threshold;
+
+        synchronized (this) {
+            if (dirtyFiles != null) {
+                cached = dirtyFiles.get(path);
+            }
+            if (cached == null && dataCache.containsKey(path)) {
+                cached = getCachedContents(path);
+            }
+            size = largeFiles.get(path);
+            threshold = largeFileThreshold;
+        }
+
+        if (cached != null) {
+            return writeFully(ByteBuffer.wrap(cached.getBytes(Charset.defaultCharset())), target);
+        }
+
+        if (size == null) {
+            size = Files.size(Paths.get(path));
+
+            if (size > threshold) {
+                synchronized (this) {
+                    largeFiles.put(path, size);
+                }
+            }
+        }
+
+        if (size > threshold || size > Integer.MAX_VALUE) {
+            return transferFile(Paths.get(path), size, target);
+        }
+        return writeFully(ByteBuffer.wrap(blockCache.read(path, 0, size.intValue())), target);
+    }
+
+    /**
+     * Read a range of bytes of a file. Ranges are served from a separate cache of fixed-size
+     * blocks, so reading a small range of a large file does not load the whole file nor evict the
+     * cached files. Blocks are shared between overlapping ranges, and sequential reads of a file
+     * read the following blocks ahead.
+     *
+     * @param path   the path of the file
+     * @param offset the position of the first byte
+     * @param length the number of bytes to read
+     * @return the bytes of the range, cut short at the end of the file
+     * @throws IOException if the file cannot be read
+     */
+    public byte[] getFileRange(final String path, final long offset, final int length)
+            throws IOException {
+        return blockCache.read(path, offset, length);
+    }
+
+    /* Send at most @size bytes of a file; stops early if the file is shorter */
+    private static long transferFile(final Path path, final long size,
+                                     final WritableByteChannel target) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+             WriteWaiter waiter = new WriteWaiter(target)) {
+            long position = 0;
+
+            while (position < size) {
+                long count = file.transferTo(position, size - position, target);
+
+                if (count > 0) {
+                    position += count;
+                } else if (position >= file.size()) {
+                    break;
+                } else {
+                    waiter.await();
+                }
+            }
+            return position;
+        }
+    }
+
+    private static long writeFully(final ByteBuffer bytes, final WritableByteChannel target)
+            throws IOException {
+        long written = bytes.remaining();
+
+        try (WriteWaiter waiter = new WriteWaiter(target)) {
+            while (bytes.hasRemaining()) {
+                if (target.write(bytes) == 0) {
+                    waiter.await();
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Waits until a non-blocking channel that accepted no bytes can be written again. The
+     * selector is opened on the first wait and kept for the rest of the transfer.
+     */
+    private static final class WriteWaiter implements Closeable {
+        private final WritableByteChannel target;
+        private Selector selector;
+
+        WriteWaiter(final WritableByteChannel target) {
+            this.target = target;
+        }
+
+        void await() throws IOException {
+            if (!(target instanceof SelectableChannel)
+                    || ((SelectableChannel) target).isBlocking()) {
+                throw new IOException("The channel accepts no more bytes");
+            }
+
+            if (selector == null) {
+                selector = Selector.open();
+                ((SelectableChannel) target).register(selector, SelectionKey.OP_WRITE);
+            }
+            selector.select();
+            selector.selectedKeys().clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (selector != null) {
+                selector.close();
+            }
+        }
+    }
+
+    /**
+     * Set the size above which transferTo streams files from disk instead of caching them.
+     *
+     * @param bytes the threshold, in bytes
+     */
+    public synchronized void setLargeFileThreshold(final long bytes) {
+        largeFileThreshold = bytes;
+        largeFiles.clearAll();
+    }
+
+    /**
+     * Resize the cache of blocks that serves getFileRange and the transfers of small files. The
+     * blocks cached so far are dropped.
+     *
+     * @param blockSize the size of a block, in bytes
+     * @param capacity  the maximum number of cached blocks
+     * @param readAhead the number of blocks read ahead on sequential access, 0 to disable it
+     */
+    public synchronized void setBlockCacheSize(final int blockSize, final int capacity,
+                                               final int readAhead) {
+        blockCache = new BlockCache(blockSize, capacity, readAhead);
+    }
+
+    /**
+     * Set a policy that decides which of the files loaded on a miss are stored in the cache. The
+     * files that are not admitted are still returned to the caller. Files stored with
+     * putFileContents are always cached.
+     *
+     * @param admissionPolicy the policy, or null to cache every loaded file
+     */
+    public synchronized void setAdmissionPolicy(
+            final CacheAdmissionPolicy<String, String> admissionPolicy) {
+        this.admissionPolicy = admissionPolicy;
+    }
+
+    /**
+     * Share the files of this cache with the other processes of the host, through a store mapped
+     * in memory by all of them. Files missing from this cache are looked up in the shared store
+     * before being read from disk; files read from disk or put in this cache are published to it.
+     * A file too large for the store is removed from it instead, so that no process reads an older
+     * copy.
+     *
+     * @param tier the shared store, or null to stop using it
+     */
+    public synchronized void setSharedTier(final SharedMemoryCache tier) {
+        sharedTier = tier;
+    }
+
+    /**
+     * Get the number of files loaded from the shared tier instead of disk.
+     *
+     * @return the number of shared tier hits
+     */
+    public long getSharedHitCount() {
+        return sharedHits.sum();
+    }
+
+    private void publish(final String path, final String contents) {
+        if (sharedTier != null) {
+            sharedTier.put(path, contents);
+        }
+    }
+
+    private boolean shouldAdmit(final String path, final String contents) {
+        return admissionPolicy == null || admissionPolicy.shouldAdmit(path, contents);
+    }
+
+    /* Look a file up without loading it on a miss */
+    private String getCachedContents(final String path) {
+        deferLoads = true;
+        try {
+            return dataCache.get(path);
+        } finally {
+            deferLoads = false;
+        }
+    }
+
+    /**
+     * Get the total length of the cached contents.
+     *
+     * @return the number of cached characters
+     */
+    public long getWeight() {
+        return dataCache.getWeight();
+    }
+
+    /**
+     * Get the number of files looked up by getFileContents, getAll and getAllIfPresent. A lookup
+     * that misses also reports a hit when the loaded file is read back, so the hits of the
+     * lookups are this count minus the misses.
+     *
+     * @return the number of lookups
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Get the number of files evicted to respect the capacity of the cache.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the number of files removed because they expired.
+     *
+     * @return the number of expirations
+     */
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    /**
+     * Get the number of files read from disk.
+     *
+     * @return the number of successful loads
+     */
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    /**
+     * Get the number of files that could not be read from disk.
+     *
+     * @return the number of failed loads
+     */
+    public long getLoadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    /**
+     * Get the number of write-behind flushes that failed to write a file.
+     *
+     * @return the number of failed flushes
+     */
+    public long getWriteFailureCount() {
+        return writeFailures.sum();
+    }
+
+    /**
+     * Get the total time spent reading files from disk, failed reads included.
+     *
+     * @return the time, in nanoseconds
+     */
+    public long getTotalLoadNanos() {
+        return loadNanos.sum();
+    }
+
+    /**
+     * Get the number of listeners added with addListener.
+     *
+     * @return the number of listeners
+     */
+    public int getListenerCount() {
+        return listenerCount;
+    }
+
+    /**
+     * Get the number of cached files. The count is updated on every insertion and removal, so it
+     * is read without waiting for the lock of the cache, e.g. while a file is being loaded.
+     *
+     * @return the size
+     */
+    public int size() {
+        return cachedFiles;
+    }
+
+    /**
+     * Get the capacity the cache is being resized to.
+     *
+     * @return the capacity, or UNBOUNDED for caches created with an expiration time
+     */
+    public synchronized int getCapacity() {
+        return capacityPolicy == null ? UNBOUNDED : targetCapacity;
+    }
+
+    /**
+     * Change the capacity of a cache created with createCacheWithCapacity. A larger capacity takes
+     * effect at once. A smaller one is reached gradually by trimToCapacity, so that the surplus
+     * files are not all evicted in a single pause.
+     *
+     * @param capacity the new capacity
+     */
+    public synchronized void setCapacity(final int capacity) {
+        if (capacityPolicy == null) {
+            throw new IllegalStateException("The cache has no capacity.");
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+
+        targetCapacity = capacity;
+        if (capacity >= capacityPolicy.getCapacity()) {
+            capacityPolicy.setCapacity(capacity);
+        } else {
+            capacityPolicy.setCapacity(Math.max(capacity, dataCache.size()));
+        }
+    }
+
+    /**
+     * Evict at most @maxEvictions files towards the capacity set by setCapacity.
+     *
+     * @param maxEvictions the maximum number of files to evict
+     * @return true if the cache is still above its capacity
+     */
+    public synchronized boolean trimToCapacity(final int maxEvictions) {
+        if (capacityPolicy == null) {
+            return false;
+        }
+
+        int capacity = Math.max(targetCapacity, dataCache.size() - maxEvictions);
+        if (capacity < capacityPolicy.getCapacity()) {
+            capacityPolicy.setCapacity(capacity);
+            dataCache.clearStaleEntries();
+        }
+        return capacityPolicy.getCapacity() > targetCapacity;
+    }
+
+    /**
+     * Get the order in which files are evicted once the cache is over its bound.
+     *
+     * @return FIFO or LRU, or null for caches created with createCacheWithExpiration
+     */
+    public synchronized Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Get the expiration time of a cache created with createCacheWithExpiration.
+     *
+     * @return the expiration time in milliseconds, or UNBOUNDED for caches with a capacity
+     */
+    public synchronized long getExpiration() {
+        return timeAwareCache == null ? UNBOUNDED : millisToExpire;
+    }
+
+    /**
+     * Change the expiration time of a cache created with createCacheWithExpiration.
+     *
+     * @param millis the new expiration time, in milliseconds
+     */
+    public synchronized void setExpiration(final long millis) {
+        if (timeAwareCache == null) {
+            throw new IllegalStateException("The cache has no expiration time.");
+        }
+
+        millisToExpire = millis;
+        timeAwareCache.setExpirePolicy(millis);
+    }
+
+    public synchronized void addListener(final CacheListener<String, String> listener) {
         broadcastListener.addListener(listener);
+        listenerCount++;
+    }
+
+    /**
+     * Add a listener that sees each requested file once, on getFileContents, getAll and
+     * getAllIfPresent: onHit if the file was cached, onMiss otherwise. Unlike the listeners of
+     * addListener, it does not see the lookups done by the cache itself, such as the one that
+     * returns a file just loaded on a miss, nor the puts and removals.
+     *
+     * @param listener the listener
+     */
+    public synchronized void addRequestListener(final CacheListener<String, String> listener) {
+        requestListener.addListener(listener);
     }
 
     private ObservableCache<String, String> dataCache;
     private BroadcastListener<String, String> broadcastListener;
+    private final BroadcastListener<String, String> requestListener = new BroadcastListener<>();
+    private volatile int listenerCount = 0;
+    private volatile int cachedFiles = 0;
+    private ExecutorService loaderExecutor;
+    private boolean deferLoads = false;
+
+    private Strategy strategy;
+    private CapacityStalePolicy<String, String> capacityPolicy;
+    private int targetCapacity;
+    private long maximumWeight = UNBOUNDED;
+    private TimeAwareCache<String, String> timeAwareCache;
+    private long millisToExpire;
+
+    private CacheAdmissionPolicy<String, String> admissionPolicy;
+    private volatile SharedMemoryCache sharedTier;
+    private String bypassPath;
+    private String bypassContents;
+
+    /* Read without the lock by the loader threads, written with it */
+    private volatile Map<String, String> dirtyFiles;
+    private final Object flushLock = new Object();
+    private Thread flusher;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    private long largeFileThreshold = DEFAULT_LARGE_FILE_THRESHOLD;
+    private final ObservableCache<String, Long> largeFiles = createLargeFilesCache();
+    private volatile BlockCache blockCache = new BlockCache(BlockCache.DEFAULT_BLOCK_SIZE,
+            BlockCache.DEFAULT_CAPACITY, BlockCache.DEFAULT_READ_AHEAD);
+
+    /**
+     * Builds a FileCache bounded by a number of files or by their total length, whose files
+     * expire after being written, after being accessed, or after a duration chosen per file by a
+     * CacheExpiry. Files are evicted in LRU order when the bound is exceeded.
+     */
+    public static final class Builder {
+
+        private int maximumSize = UNBOUNDED;
+        private long maximumWeight = UNBOUNDED;
+        private CacheExpiry<String, String> expiry;
+
+        private Builder() {
+        }
+
+        /**
+         * Bound the number of cached files.
+         *
+         * @param size the maximum number of files
+         * @return this builder
+         */
+        public Builder maximumSize(final int size) {
+            if (size < 0) {
+                throw new IllegalArgumentException("Invalid capacity: " + size);
+            }
+            if (maximumWeight != UNBOUNDED) {
+                throw new IllegalStateException("The maximum weight is already set.");
+            }
+            maximumSize = size;
+            return this;
+        }
+
+        /**
+         * Bound the total length of the cached files.
+         *
+         * @param weight the maximum number of cached characters
+         * @return this builder
+         */
+        public Builder maximumWeight(final long weight) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Invalid weight: " + weight);
+            }
+            if (maximumSize != UNBOUNDED) {
+                throw new IllegalStateException("The maximum size is already set.");
+            }
+            maximumWeight = weight;
+            return this;
+        }
+
+        /**
+         * Expire each file a fixed time after it was last written.
+         *
+         * @param millis the expiration time, in milliseconds
+         * @return this builder
+         */
+        public Builder expireAfterWrite(final long millis) {
+            checkDuration(millis);
+            return expireAfter(new CacheExpiry<String, String>() {
+                @Override
+                public long expireAfterCreate(final String key, final String value) {
+                    return millis;
+                }
+
+                @Override
+                public long expireAfterUpdate(final String key, final String value,
+                                              final long currentDuration) {
+                    return millis;
+                }
+
+                @Override
+                public long expireAfterRead(final String key, final String value,
+                                            final long currentDuration) {
+                    return currentDuration;
+                }
+            });
+        }
+
+        /**
+         * Expire each file a fixed time after it was last written or read.
+         *
+         * @param millis the expiration time, in milliseconds
+         * @return this builder
+         */
+        public Builder expireAfterAccess(final long millis) {
+            checkDuration(millis);
+            return expireAfter(new CacheExpiry<String, String>() {
+                @Override
+                public long expireAfterCreate(final String key, final String value) {
+                    return millis;
+                }
+
+                @Override
+                public long expireAfterUpdate(final String key, final String value,
+                                              final long currentDuration) {
+                    return millis;
+                }
+
+                @Override
+                public long expireAfterRead(final String key, final String value,
+                                            final long currentDuration) {
+                    return millis;
+                }
+            });
+        }
+
+        /**
+         * Expire each file after a duration chosen by @expiry.
+         *
+         * @param cacheExpiry the expiration durations
+         * @return this builder
+         */
+        public Builder expireAfter(final CacheExpiry<String, String> cacheExpiry) {
+            if (expiry != null) {
+                throw new IllegalStateException("The expiration policy is already set.");
+            }
+            expiry = cacheExpiry;
+            return this;
+        }
+
+        /**
+         * Build the cache.
+         *
+         * @return the cache
+         */
+        public cachingSystem.FileCache build() {
+            ObservableCache<String, String> dataCache = expiry == null
+                    ? new LRUCache<String, String>() : new ExpiringCache<>(expiry);
+            CapacityStalePolicy<String, String> capacityPolicy = null;
+
+            if (maximumSize != UNBOUNDED) {
+                capacityPolicy = new CapacityStalePolicy<>(dataCache, maximumSize);
+                dataCache.setStalePolicy(capacityPolicy);
+            } else if (maximumWeight != UNBOUNDED) {
+                dataCache.setStalePolicy(new WeightStalePolicy<>(dataCache, maximumWeight));
+            } else {
+                dataCache.setStalePolicy(new CacheStalePolicy<String, String>() {
+                    @Override
+                    public boolean shouldRemoveEldestEntry(final Pair<String, String> entry) {
+                        return false;
+                    }
+                });
+            }
+
+            cachingSystem.FileCache fileCache = new cachingSystem.FileCache(dataCache);
+            fileCache.capacityPolicy = capacityPolicy;
+            fileCache.targetCapacity = maximumSize;
+            fileCache.maximumWeight = maximumWeight;
+            fileCache.strategy = Strategy.LRU;
+
+            return fileCache;
+        }
+
+        private static void checkDuration(final long millis) {
+            if (millis < 0) {
+                throw new IllegalArgumentException("Invalid expiration time: " + millis);
+            }
+        }
+    }
 }
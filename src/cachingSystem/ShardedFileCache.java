@@ -0,0 +1,610 @@
+package cachingSystem;
+
+import cachingSystem.interfaces.CacheNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The ShardedFileCache spreads files over several cache nodes, so that the cached files are not
+ * limited by the memory of one node. Paths are routed with a consistent-hash ring: each node is
+ * placed on the ring at a number of points (virtual nodes) and a path belongs to the first node
+ * found clockwise from the hash of the path. Adding or removing one of N nodes only moves the
+ * paths between that node and its ring neighbours, about 1/N of them.
+ *
+ * When the nodes change, the files cached for the moved paths are handed off: the contents held
+ * by the former node of a path are put on its new node, and every other copy of the path is
+ * dropped, so that no node keeps contents older than a later put. Reads and writes wait while
+ * the files are moved. Nodes read missing files from disk, so a put is durable only once it
+ * has reached the disk, e.g. through the write-behind of the nodes: the puts held by a node
+ * that fails, or that cannot be reached when it is removed, are lost, and their paths are read
+ * again from disk.
+ *
+ * Paths that take a large share of the reads are replicated so that they do not overload their
+ * node. The reads are counted in windows of a fixed number of reads; a path read at least a
+ * threshold number of times within a window is hot until the end of the next window in which it
+ * is not. A hot path is copied to the next distinct nodes on the ring, its reads are spread at
+ * random over all its replicas and its writes go to all of them. The replicas of a path that is
+ * not hot are not read, so they cannot serve stale contents. The copy made by a promotion and
+ * the writes of the path hold the same lock, one of a fixed set of locks picked by the hash of
+ * the path, so that a write either reaches every replica or is done before the copy is read.
+ * Until the copy is done, the reads of the path stay on its first node.
+ *
+ * The ring is rebuilt on membership changes and swapped in as a whole. Membership changes also
+ * cool down every hot path, so that reads do not reach replicas that were not copied to.
+ */
+public final class ShardedFileCache {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+    public static final int DEFAULT_HOT_WINDOW = 10000;
+    public static final int DEFAULT_HOT_THRESHOLD = 100;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /* The states of a path returned by recordRead */
+    private static final int COLD = 0;
+    private static final int HOT = 1;
+    private static final int PROMOTED = 2;
+
+    /* The number of locks that serialize the writes of a path with its promotions */
+    private static final int PATH_LOCKS = 64;
+
+    private final int virtualNodes;
+    private final int replicas;
+    private final Map<String, Shard> shards = new LinkedHashMap<>();
+    private volatile Ring ring = new Ring(new Shard[0], new long[0], new int[0]);
+    /* Held for reading by reads and writes, for writing while files are handed off */
+    private final ReadWriteLock routingLock = new ReentrantReadWriteLock();
+
+    private final Object hotLock = new Object();
+    private final Map<String, Integer> windowReads = new HashMap<>();
+    private final Set<String> hotPaths = new LinkedHashSet<>();
+    /* The number of promotions of each path whose copy is not done yet */
+    private final Map<String, Integer> copying = new HashMap<>();
+    private int hotWindow = DEFAULT_HOT_WINDOW;
+    private int hotThreshold = DEFAULT_HOT_THRESHOLD;
+    private int readsInWindow = 0;
+
+    private final LongAdder promotions = new LongAdder();
+    private final Object[] pathLocks = new Object[PATH_LOCKS];
+
+    /**
+     * Create a cache without nodes.
+     *
+     * @param virtualNodes the number of points of each node on the ring; more points spread the
+     *                     paths more evenly
+     * @param replicas     the number of nodes a hot path is stored on, 1 to disable replication
+     */
+    public ShardedFileCache(final int virtualNodes, final int replicas) {
+        if (virtualNodes < 1 || replicas < 1) {
+            throw new IllegalArgumentException("Invalid number of virtual nodes or replicas");
+        }
+
+        this.virtualNodes = virtualNodes;
+        this.replicas = replicas;
+        for (int i = 0; i < PATH_LOCKS; i++) {
+            pathLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Add a node to the ring. The files cached by the other nodes for the paths that move to the
+     * new node are handed off to it.
+     *
+     * @param node the node
+     */
+    public synchronized void addNode(final CacheNode node) {
+        if (shards.containsKey(node.getName())) {
+            throw new IllegalArgumentException("Duplicate node name: " + node.getName());
+        }
+
+        shards.put(node.getName(), new Shard(node));
+        changeRing(null);
+    }
+
+    /**
+     * Remove a node from the ring. Its paths move to the following nodes on the ring, with the
+     * files it cached for them, unless it cannot be reached.
+     *
+     * @param name the name of the node
+     * @return the removed node, or null if there is no node with that name
+     */
+    public synchronized CacheNode removeNode(final String name) {
+        Shard shard = shards.remove(name);
+        if (shard == null) {
+            return null;
+        }
+
+        changeRing(shard);
+        return shard.node;
+    }
+
+    /**
+     * Get the node a path belongs to, ignoring replication.
+     *
+     * @param path the path of the file
+     * @return the node
+     */
+    public CacheNode getNode(final String path) {
+        return ring.route(hash(path), 1)[0].node;
+    }
+
+    /**
+     * Set how hot paths are detected.
+     *
+     * @param window    the number of reads per window
+     * @param threshold the number of reads within a window that makes a path hot
+     */
+    public void setHotPathPolicy(final int window, final int threshold) {
+        if (window < 1 || threshold < 1 || threshold > window) {
+            throw new IllegalArgumentException("Invalid hot path window or threshold");
+        }
+
+        synchronized (hotLock) {
+            hotWindow = window;
+            hotThreshold = threshold;
+            readsInWindow = 0;
+            windowReads.clear();
+        }
+    }
+
+    /**
+     * Get the contents of a file from its node, or from one of its replicas if it is hot.
+     *
+     * @param path the path of the file
+     * @return the contents, or null if the file cannot be read
+     */
+    public String getFileContents(final String path) {
+        routingLock.readLock().lock();
+        try {
+            return read(path);
+        } finally {
+            routingLock.readLock().unlock();
+        }
+    }
+
+    private String read(final String path) {
+        long hash = hash(path);
+        Shard[] route = ring.route(hash, replicas);
+        int hotState = recordRead(path);
+
+        if (hotState == PROMOTED) {
+            /*
+             * Copy the current contents, which may not be on disk yet, to the other replicas. The
+             * path is already hot, so the writes that wait for the copy go to every replica.
+             */
+            try {
+                synchronized (pathLock(hash)) {
+                    String contents = route[0].read(path);
+                    if (contents != null) {
+                        for (int i = 1; i < route.length; i++) {
+                            route[i].write(path, contents);
+                        }
+                    }
+                    return contents;
+                }
+            } finally {
+                copied(path);
+            }
+        }
+
+        if (hotState == COLD || route.length == 1) {
+            return route[0].read(path);
+        }
+
+        return route[ThreadLocalRandom.current().nextInt(route.length)].read(path);
+    }
+
+    /**
+     * Put the contents of a file on its node, and on all its replicas if it is hot.
+     *
+     * @param path     the path of the file
+     * @param contents the new contents
+     */
+    public void putFileContents(final String path, final String contents) {
+        routingLock.readLock().lock();
+        try {
+            long hash = hash(path);
+            Shard[] route = ring.route(hash, replicas);
+
+            synchronized (pathLock(hash)) {
+                boolean hot;
+                synchronized (hotLock) {
+                    hot = hotPaths.contains(path);
+                }
+
+                int count = hot ? route.length : 1;
+                for (int i = 0; i < count; i++) {
+                    route[i].write(path, contents);
+                }
+            }
+        } finally {
+            routingLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of requests served by each node since it was added; reads of hot paths are
+     * counted on the replica that served them.
+     *
+     * @return the number of requests by node name
+     */
+    public synchronized Map<String, Long> getShardLoads() {
+        Map<String, Long> loads = new LinkedHashMap<>();
+
+        for (Shard shard : shards.values()) {
+            loads.put(shard.node.getName(), shard.reads.sum() + shard.writes.sum());
+        }
+        return loads;
+    }
+
+    /**
+     * Get the number of files cached by each node. The nodes are asked outside of the lock of the
+     * cache, so that slow nodes do not delay membership changes.
+     *
+     * @return the number of files by node name
+     */
+    public Map<String, Integer> getShardSizes() {
+        List<Shard> current;
+        synchronized (this) {
+            current = new ArrayList<>(shards.values());
+        }
+
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        for (Shard shard : current) {
+            sizes.put(shard.node.getName(), shard.node.size());
+        }
+        return sizes;
+    }
+
+    /**
+     * Get the share of the hash space owned by each node, i.e. the expected share of the paths
+     * routed to it.
+     *
+     * @return the share, between 0 and 1, by node name
+     */
+    public Map<String, Double> getRingShares() {
+        Ring current = ring;
+        Map<String, Double> shares = new LinkedHashMap<>();
+        double total = Math.pow(2, Long.SIZE);
+
+        for (Shard shard : current.shards) {
+            shares.put(shard.node.getName(), 0.0);
+        }
+        for (int i = 0; i < current.points.length; i++) {
+            /* The arc ending at a point belongs to it; the first arc wraps around the ring */
+            long previous = current.points[i == 0 ? current.points.length - 1 : i - 1];
+            double arc = current.points.length == 1 ? total
+                    : unsignedToDouble(current.points[i] - previous);
+            String name = current.shards[current.owners[i]].node.getName();
+
+            shares.put(name, shares.get(name) + arc / total);
+        }
+        return shares;
+    }
+
+    /**
+     * Get the number of paths that are currently hot.
+     *
+     * @return the number of hot paths
+     */
+    public int getHotPathCount() {
+        synchronized (hotLock) {
+            return hotPaths.size();
+        }
+    }
+
+    /**
+     * Get the number of times a path became hot and was copied to its replicas.
+     *
+     * @return the number of promotions
+     */
+    public long getPromotionCount() {
+        return promotions.sum();
+    }
+
+    /**
+     * Get the number of nodes.
+     *
+     * @return the number of nodes
+     */
+    public synchronized int getNodeCount() {
+        return shards.size();
+    }
+
+    /* Count a read of @path and tell whether it is cold, hot, or just became hot */
+    private int recordRead(final String path) {
+        if (replicas == 1) {
+            return COLD;
+        }
+
+        synchronized (hotLock) {
+            Integer previous = windowReads.get(path);
+            int count = previous == null ? 1 : previous + 1;
+            windowReads.put(path, count);
+
+            /* The replicas are not read until the copy of the promotion is done */
+            int state = hotPaths.contains(path) && !copying.containsKey(path) ? HOT : COLD;
+            if (count == hotThreshold && hotPaths.add(path)) {
+                promotions.increment();
+                Integer pending = copying.get(path);
+                copying.put(path, pending == null ? 1 : pending + 1);
+                state = PROMOTED;
+            }
+
+            if (++readsInWindow == hotWindow) {
+                /* Cool down the paths that were not read often enough in this window */
+                List<String> cooled = new ArrayList<>();
+                for (String hotPath : hotPaths) {
+                    Integer reads = windowReads.get(hotPath);
+                    if (reads == null || reads < hotThreshold) {
+                        cooled.add(hotPath);
+                    }
+                }
+                hotPaths.removeAll(cooled);
+                windowReads.clear();
+                readsInWindow = 0;
+            }
+            return state;
+        }
+    }
+
+    /* Record that the copy of a promotion of @path is done */
+    private void copied(final String path) {
+        synchronized (hotLock) {
+            int pending = copying.get(path) - 1;
+            if (pending == 0) {
+                copying.remove(path);
+            } else {
+                copying.put(path, pending);
+            }
+        }
+    }
+
+    /* The lock shared by the writes and the promotions of the paths with this hash */
+    private Object pathLock(final long hash) {
+        return pathLocks[(int) Long.remainderUnsigned(hash, PATH_LOCKS)];
+    }
+
+    /* Swap in the ring of the current nodes and hand off the files of the moved paths */
+    private void changeRing(final Shard removed) {
+        routingLock.writeLock().lock();
+        try {
+            Ring previous = ring;
+            rebuildRing();
+
+            synchronized (hotLock) {
+                hotPaths.clear();
+                windowReads.clear();
+                readsInWindow = 0;
+            }
+
+            if (previous.shards.length > 0 && ring.shards.length > 0) {
+                handOff(previous, removed);
+            }
+        } finally {
+            routingLock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Drop the copies of the paths whose first node changed, except on their former first node,
+     * whose contents are then moved to the new first node. The cached paths of every node are
+     * listed before anything is moved, so that a handed-off file is not dropped again.
+     */
+    private void handOff(final Ring previous, final Shard removed) {
+        Set<Shard> holders = new LinkedHashSet<>(Arrays.asList(previous.shards));
+        holders.addAll(Arrays.asList(ring.shards));
+
+        Map<Shard, List<String>> cachedPaths = new LinkedHashMap<>();
+        for (Shard shard : holders) {
+            cachedPaths.put(shard, listCachedPaths(shard, shard == removed));
+        }
+
+        Map<String, Shard> moved = new LinkedHashMap<>();
+        for (Map.Entry<Shard, List<String>> entry : cachedPaths.entrySet()) {
+            Shard shard = entry.getKey();
+
+            for (String path : entry.getValue()) {
+                long hash = hash(path);
+                Shard formerFirst = previous.route(hash, 1)[0];
+
+                if (formerFirst == ring.route(hash, 1)[0]) {
+                    continue;
+                }
+                if (shard == formerFirst) {
+                    moved.put(path, shard);
+                } else {
+                    removeCopy(shard, path, shard == removed);
+                }
+            }
+        }
+
+        for (Map.Entry<String, Shard> entry : moved.entrySet()) {
+            String path = entry.getKey();
+            Shard from = entry.getValue();
+            String contents;
+
+            try {
+                contents = from.node.getFileContents(path);
+                from.node.remove(path);
+            } catch (IllegalStateException e) {
+                if (from != removed) {
+                    throw e;
+                }
+                /* The removed node is unreachable: its paths are read again from disk */
+                contents = null;
+            }
+            if (contents != null) {
+                ring.route(hash(path), 1)[0].node.putFileContents(path, contents);
+            }
+        }
+    }
+
+    /* The paths cached by a node; a removed node that cannot be reached has none */
+    private static List<String> listCachedPaths(final Shard shard, final boolean removed) {
+        try {
+            return shard.node.getCachedPaths();
+        } catch (IllegalStateException e) {
+            if (!removed) {
+                throw e;
+            }
+            return new ArrayList<>();
+        }
+    }
+
+    /* Drop one copy of a path; copies on a removed node that cannot be reached are ignored */
+    private static void removeCopy(final Shard shard, final String path, final boolean removed) {
+        try {
+            shard.node.remove(path);
+        } catch (IllegalStateException e) {
+            if (!removed) {
+                throw e;
+            }
+        }
+    }
+
+    private void rebuildRing() {
+        Shard[] ringShards = shards.values().toArray(new Shard[0]);
+        int count = ringShards.length * virtualNodes;
+        final long[] hashes = new long[count];
+        Integer[] order = new Integer[count];
+
+        for (int s = 0; s < ringShards.length; s++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                int index = s * virtualNodes + v;
+                hashes[index] = hash(ringShards[s].node.getName() + "#" + v);
+                order[index] = index;
+            }
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer first, final Integer second) {
+                return Long.compareUnsigned(hashes[first], hashes[second]);
+            }
+        });
+
+        long[] points = new long[count];
+        int[] owners = new int[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = order[i] / virtualNodes;
+        }
+
+        ring = new Ring(ringShards, points, owners);
+    }
+
+    /* 64-bit FNV-1a over the UTF-16 chars, with a final avalanche so close names spread out */
+    static long hash(final String key) {
+        long h = FNV_OFFSET_BASIS;
+
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            h = (h ^ (c & 0xff)) * FNV_PRIME;
+            h = (h ^ (c >>> 8)) * FNV_PRIME;
+        }
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static double unsignedToDouble(final long value) {
+        double result = (double) (value >>> 1) * 2;
+        return result + (value & 1);
+    }
+
+    /**
+     * A node with its load counters, which survive ring rebuilds.
+     */
+    private static final class Shard {
+        private final CacheNode node;
+        private final LongAdder reads = new LongAdder();
+        private final LongAdder writes = new LongAdder();
+
+        Shard(final CacheNode node) {
+            this.node = node;
+        }
+
+        String read(final String path) {
+            reads.increment();
+            return node.getFileContents(path);
+        }
+
+        void write(final String path, final String contents) {
+            writes.increment();
+            node.putFileContents(path, contents);
+        }
+    }
+
+    /**
+     * An immutable snapshot of the ring: the points sorted as unsigned numbers and the index of
+     * the shard that owns each of them.
+     */
+    private static final class Ring {
+        private final Shard[] shards;
+        private final long[] points;
+        private final int[] owners;
+
+        Ring(final Shard[] shards, final long[] points, final int[] owners) {
+            this.shards = shards;
+            this.points = points;
+            this.owners = owners;
+        }
+
+        /* The first @count distinct shards found clockwise from @hash */
+        Shard[] route(final long hash, final int count) {
+            if (shards.length == 0) {
+                throw new IllegalStateException("The sharded cache has no nodes");
+            }
+
+            int start = ceiling(hash);
+            Shard[] route = new Shard[Math.min(count, shards.length)];
+            int found = 0;
+
+            for (int i = 0; found < route.length; i++) {
+                Shard shard = shards[owners[(start + i) % points.length]];
+                boolean duplicate = false;
+
+                for (int j = 0; j < found && !duplicate; j++) {
+                    duplicate = route[j] == shard;
+                }
+                if (!duplicate) {
+                    route[found++] = shard;
+                }
+            }
+            return route;
+        }
+
+        /* The index of the first point at or after @hash, wrapping around to 0 */
+        private int ceiling(final long hash) {
+            int low = 0;
+            int high = points.length;
+
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (Long.compareUnsigned(points[mid], hash) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low == points.length ? 0 : low;
+        }
+    }
+}
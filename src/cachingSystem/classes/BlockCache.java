@@ -0,0 +1,372 @@
+package cachingSystem.classes;
+
+import observerPattern.classes.BroadcastListener;
+import observerPattern.interfaces.CacheListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The BlockCache keeps fixed-size blocks of files in memory, so that ranges of large files can be
+ * read without loading the whole file. Blocks are keyed by path and block index and evicted in
+ * LRU order; overlapping ranges share the cached blocks. When a file is read sequentially, the
+ * blocks that follow the requested range are read ahead in the same disk read.
+ *
+ * Disk reads happen outside the lock of the cache, so a slow read only delays its own caller.
+ * The blocks of a file must be invalidated when the file is written; blocks read while the file
+ * was being invalidated are returned to their caller but not cached.
+ *
+ * The size of a file is remembered with its blocks, so a range that ends before it is served
+ * without a stat. A range that reaches past it looks the size up again: if the file grew, its
+ * short last block is dropped and read again; if it shrank, all its blocks are dropped.
+ */
+public class BlockCache {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final int DEFAULT_READ_AHEAD = 4;
+
+    /* How many files the sequential access detection remembers */
+    private static final int TRACKED_FILES = 1024;
+
+    private final int blockSize;
+    private final int readAhead;
+    private final ObservableCache<BlockKey, byte[]> blocks = new LRUCache<>();
+    private final ObservableCache<String, Long> nextBlocks = new LRUCache<>();
+    /* The cached block indices of each file, so that a file is invalidated without a scan */
+    private final Map<String, Set<Long>> blocksByPath = new HashMap<>();
+    /* The size of each file with cached blocks, as seen when its blocks were last read */
+    private final Map<String, Long> fileSizes = new HashMap<>();
+    /* Incremented by each invalidation; loads that started before one do not cache their blocks */
+    private long invalidations = 0;
+
+    /**
+     * Create a cache of @capacity blocks of @blockSize bytes.
+     *
+     * @param blockSize the size of a block, in bytes
+     * @param capacity  the maximum number of cached blocks
+     * @param readAhead the number of blocks read ahead on sequential access, 0 to disable it
+     */
+    public BlockCache(final int blockSize, final int capacity, final int readAhead) {
+        if (blockSize < 1 || capacity < 1 || readAhead < 0) {
+            throw new IllegalArgumentException("Invalid block cache size");
+        }
+
+        this.blockSize = blockSize;
+        this.readAhead = readAhead;
+
+        blocks.setStalePolicy(new CapacityStalePolicy<>(blocks, capacity));
+        blocks.setCacheListener(createIndexListener());
+        nextBlocks.setStalePolicy(new CapacityStalePolicy<>(nextBlocks, TRACKED_FILES));
+        nextBlocks.setCacheListener(new BroadcastListener<String, Long>());
+    }
+
+    /**
+     * Read a range of a file. The range is cut short at the end of the file, which is looked up
+     * first unless the range ends before the remembered size, so that no more than the size of the
+     * file is allocated for a long range.
+     *
+     * @param path   the path of the file
+     * @param offset the position of the first byte
+     * @param length the number of bytes to read
+     * @return the bytes of the range
+     * @throws IOException if the file cannot be read
+     */
+    public byte[] read(final String path, final long offset, final int length)
+            throws IOException {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Invalid range: " + offset + "+" + length);
+        }
+        long fileSize = fileSize(path, offset, length);
+        if (length == 0 || offset >= fileSize) {
+            return new byte[0];
+        }
+
+        int clampedLength = (int) Math.min(length, fileSize - offset);
+        long first = offset / blockSize;
+        long last = (offset + clampedLength - 1) / blockSize;
+        byte[][] parts = new byte[(int) (last - first + 1)][];
+        int missing = 0;
+        int ahead = 0;
+        long generation;
+
+        synchronized (this) {
+            generation = invalidations;
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = blocks.get(new BlockKey(path, first + i));
+                if (parts[i] == null) {
+                    missing++;
+                }
+            }
+
+            Long expected = nextBlocks.get(path);
+            if (expected != null && (first == expected || first == expected - 1)) {
+                while (ahead < readAhead && blocks.get(new BlockKey(path, last + 1 + ahead))
+                        == null) {
+                    ahead++;
+                }
+            }
+            nextBlocks.put(path, last + 1);
+        }
+
+        if (missing > 0 || ahead > 0) {
+            load(path, first, parts, ahead, generation);
+        }
+
+        byte[] result = new byte[clampedLength];
+        int copied = 0;
+        for (int i = 0; i < parts.length && parts[i] != null; i++) {
+            long blockStart = (first + i) * blockSize;
+            int from = (int) Math.max(0, offset - blockStart);
+            int count = Math.min(parts[i].length - from, clampedLength - copied);
+            if (count <= 0) {
+                break;
+            }
+
+            System.arraycopy(parts[i], from, result, copied, count);
+            copied += count;
+            if (parts[i].length < blockSize) {
+                break;
+            }
+        }
+
+        return copied == clampedLength ? result : Arrays.copyOf(result, copied);
+    }
+
+    /* The remembered size if the range ends before it, the size on disk otherwise */
+    private long fileSize(final String path, final long offset, final int length)
+            throws IOException {
+        Long knownSize;
+        synchronized (this) {
+            knownSize = fileSizes.get(path);
+        }
+        if (knownSize != null && length <= knownSize - offset) {
+            return knownSize;
+        }
+
+        long fileSize = Files.size(Paths.get(path));
+        if (knownSize != null && fileSize != knownSize) {
+            resize(path, knownSize, fileSize);
+        }
+        return fileSize;
+    }
+
+    /* Drops the blocks that no longer match a file that changed size without being invalidated */
+    private synchronized void resize(final String path, final long oldSize, final long newSize) {
+        Long knownSize = fileSizes.get(path);
+        if (knownSize == null || knownSize != oldSize) {
+            return;
+        }
+
+        if (newSize < oldSize) {
+            invalidate(path);
+            return;
+        }
+
+        invalidations++;
+        if (oldSize % blockSize != 0) {
+            blocks.remove(new BlockKey(path, oldSize / blockSize));
+        }
+        if (blocksByPath.containsKey(path)) {
+            fileSizes.put(path, newSize);
+        }
+    }
+
+    /**
+     * Get the number of cached blocks.
+     *
+     * @return the number of blocks
+     */
+    public synchronized int size() {
+        return blocks.size();
+    }
+
+    /**
+     * Get the size of a block.
+     *
+     * @return the block size, in bytes
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Drop the cached blocks of a file, e.g. after it was written. Reads of the file that are in
+     * progress return what they read, but do not cache it.
+     *
+     * @param path the path of the file
+     */
+    public synchronized void invalidate(final String path) {
+        invalidations++;
+
+        Set<Long> indices = blocksByPath.remove(path);
+        if (indices != null) {
+            for (Long index : indices) {
+                blocks.remove(new BlockKey(path, index));
+            }
+        }
+        fileSizes.remove(path);
+        nextBlocks.remove(path);
+    }
+
+    /**
+     * Drop every cached block.
+     */
+    public synchronized void clearAll() {
+        invalidations++;
+        blocks.clearAll();
+        blocksByPath.clear();
+        fileSizes.clear();
+        nextBlocks.clearAll();
+    }
+
+    /* Keeps blocksByPath in step with the cached blocks */
+    private CacheListener<BlockKey, byte[]> createIndexListener() {
+        return new CacheListener<BlockKey, byte[]>() {
+            @Override
+            public void onHit(final BlockKey key) {
+            }
+
+            @Override
+            public void onMiss(final BlockKey key) {
+            }
+
+            @Override
+            public void onPut(final BlockKey key, final byte[] value) {
+                Set<Long> indices = blocksByPath.get(key.path);
+                if (indices == null) {
+                    indices = new HashSet<>();
+                    blocksByPath.put(key.path, indices);
+                }
+                indices.add(key.block);
+            }
+
+            @Override
+            public void onRemoval(final BlockKey key, final byte[] value,
+                                  final RemovalCause cause) {
+                if (cause == RemovalCause.REPLACED) {
+                    return;
+                }
+
+                Set<Long> indices = blocksByPath.get(key.path);
+                if (indices != null) {
+                    indices.remove(key.block);
+                    if (indices.isEmpty()) {
+                        blocksByPath.remove(key.path);
+                        fileSizes.remove(key.path);
+                    }
+                }
+            }
+        };
+    }
+
+    /* Read each run of missing blocks with a single read, the last one extended by read-ahead */
+    private void load(final String path, final long first, final byte[][] parts, final int ahead,
+                      final long generation) throws IOException {
+        int blockCount = parts.length + ahead;
+        byte[][] loaded = new byte[blockCount][];
+        long fileSize;
+
+        try (FileChannel file = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            fileSize = file.size();
+            int start = 0;
+            while (start < blockCount) {
+                if (start < parts.length && parts[start] != null) {
+                    start++;
+                    continue;
+                }
+
+                int end = start + 1;
+                while (end < blockCount && (end >= parts.length || parts[end] == null)) {
+                    end++;
+                }
+                if (!readBlocks(file, first + start, loaded, start, end)) {
+                    break;
+                }
+                start = end;
+            }
+        }
+
+        synchronized (this) {
+            boolean current = generation == invalidations;
+
+            for (int i = 0; i < blockCount; i++) {
+                if (loaded[i] != null) {
+                    if (current) {
+                        blocks.put(new BlockKey(path, first + i), loaded[i]);
+                    }
+                    if (i < parts.length) {
+                        parts[i] = loaded[i];
+                    }
+                }
+            }
+            if (current && blocksByPath.containsKey(path)) {
+                fileSizes.put(path, fileSize);
+            }
+        }
+    }
+
+    /* Returns false if the end of the file was reached */
+    private boolean readBlocks(final FileChannel file, final long firstBlock,
+                               final byte[][] loaded, final int start, final int end)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((end - start) * blockSize);
+        long position = firstBlock * blockSize;
+
+        while (buffer.hasRemaining()) {
+            int read = file.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+
+        byte[] bytes = buffer.array();
+        int available = buffer.position();
+        for (int i = start; i < end; i++) {
+            int from = (i - start) * blockSize;
+            if (from >= available) {
+                return false;
+            }
+
+            loaded[i] = Arrays.copyOfRange(bytes, from, Math.min(from + blockSize, available));
+            if (loaded[i].length < blockSize) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class BlockKey {
+        private final String path;
+        private final long block;
+
+        BlockKey(final String path, final long block) {
+            this.path = path;
+            this.block = block;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof BlockKey)) {
+                return false;
+            }
+
+            BlockKey key = (BlockKey) other;
+            return block == key.block && path.equals(key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode() * 31 + Long.hashCode(block);
+        }
+    }
+}
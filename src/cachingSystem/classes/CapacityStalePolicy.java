@@ -0,0 +1,53 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.Cache;
+import cachingSystem.interfaces.CacheStalePolicy;
+import dataStructures.classes.Pair;
+
+/**
+ * Stale policy that limits the number of entries of a cache. The capacity can be changed while
+ * the cache is in use; the entries above a lowered capacity are removed the next time the stale
+ * entries of the cache are cleared.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class CapacityStalePolicy<K, V> implements CacheStalePolicy<K, V> {
+
+    private final Cache<K, V> cache;
+    private volatile int capacity;
+
+    /**
+     * Create a capacity policy.
+     *
+     * @param cache    the cache whose size is limited
+     * @param capacity the maximum number of entries
+     */
+    public CapacityStalePolicy(final Cache<K, V> cache, final int capacity) {
+        this.cache = cache;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean shouldRemoveEldestEntry(final Pair<K, V> entry) {
+        return cache.size() > capacity;
+    }
+
+    /**
+     * Get the maximum number of entries.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Change the maximum number of entries.
+     *
+     * @param capacity the new capacity
+     */
+    public void setCapacity(final int capacity) {
+        this.capacity = capacity;
+    }
+}
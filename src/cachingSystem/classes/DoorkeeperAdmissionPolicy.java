@@ -0,0 +1,58 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.CacheAdmissionPolicy;
+import dataStructures.classes.BloomFilter;
+
+/**
+ * Admission policy that keeps keys requested only once out of the cache. The first miss on a key
+ * only records it in a Bloom filter (the doorkeeper); a second miss within the same window admits
+ * it. The doorkeeper is cleared after every @windowSize misses, so keys have to be requested
+ * twice within a window to be admitted. Values longer than a size limit are never admitted.
+ *
+ * @param <K> the key type
+ */
+public class DoorkeeperAdmissionPolicy<K> implements CacheAdmissionPolicy<K, String> {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final BloomFilter doorkeeper;
+    private final int windowSize;
+    private final long maxLength;
+    private int recorded = 0;
+
+    /**
+     * Create a doorkeeper without a size limit.
+     *
+     * @param windowSize the number of misses after which the doorkeeper is cleared
+     */
+    public DoorkeeperAdmissionPolicy(final int windowSize) {
+        this(windowSize, Long.MAX_VALUE);
+    }
+
+    /**
+     * Create a doorkeeper.
+     *
+     * @param windowSize the number of misses after which the doorkeeper is cleared
+     * @param maxLength  the length above which values are never admitted
+     */
+    public DoorkeeperAdmissionPolicy(final int windowSize, final long maxLength) {
+        this.doorkeeper = new BloomFilter(windowSize, FALSE_POSITIVE_RATE);
+        this.windowSize = windowSize;
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public boolean shouldAdmit(final K key, final String value) {
+        if (value.length() > maxLength) {
+            return false;
+        }
+
+        if (recorded == windowSize) {
+            doorkeeper.clear();
+            recorded = 0;
+        }
+        recorded++;
+
+        return doorkeeper.add(key);
+    }
+}
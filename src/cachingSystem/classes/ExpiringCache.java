@@ -0,0 +1,150 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.CacheExpiry;
+import dataStructures.classes.TimerWheel;
+import dataStructures.classes.TimerWheel.Timer;
+import metrics.classes.CacheExpirySweepEvent;
+import observerPattern.interfaces.CacheListener.RemovalCause;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The ExpiringCache offers the same functionality as the LRUCache, but each pair also expires
+ * after a duration chosen by a CacheExpiry when the pair is created, updated or read. The
+ * deadlines are kept in a TimerWheel, so expired pairs are found in O(1) amortized time instead
+ * of by scanning the cache. The stale policy can still bound the size or the weight of the cache.
+ */
+public class ExpiringCache<K, V> extends LRUCache<K, V> {
+
+    /* How long a pinned pair that is due waits before it is checked again */
+    private static final long PINNED_RETRY_MILLIS = 1000;
+
+    private final CacheExpiry<K, V> expiry;
+    private final TimerWheel<K> timerWheel = new TimerWheel<>(System.currentTimeMillis());
+    private final HashMap<K, Timer<K>> timers = new HashMap<>();
+    private final List<K> expired = new ArrayList<>();
+
+    /**
+     * Create a cache whose pairs expire as decided by @expiry.
+     *
+     * @param expiry the expiration durations
+     */
+    public ExpiringCache(final CacheExpiry<K, V> expiry) {
+        this.expiry = expiry;
+    }
+
+    /**
+     * Gets the value assigned to the key, as the LRUCache does, unless the pair has expired.
+     * Reading a pair reschedules its expiration as decided by expireAfterRead.
+     *
+     * @param key the key to lookup
+     * @return the value
+     */
+    @Override
+    public V get(final K key) {
+        long now = System.currentTimeMillis();
+
+        cleanUp(now);
+
+        Timer<K> timer = timers.get(key);
+        if (timer != null && timer.getDeadline() <= now && !isPinned(key)) {
+            expire(key);
+        }
+
+        V result = super.get(key);
+        if (result != null) {
+            timer = timers.get(key);
+            timerWheel.reschedule(timer, deadline(now,
+                    expiry.expireAfterRead(key, result, remaining(timer, now))));
+        }
+        return result;
+    }
+
+    /**
+     * Inserts or updates the key-value pair, as the LRUCache does, and schedules its expiration
+     * as decided by expireAfterCreate or expireAfterUpdate.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    @Override
+    public void put(final K key, final V value) {
+        long now = System.currentTimeMillis();
+
+        cleanUp(now);
+
+        Timer<K> timer = timers.get(key);
+        if (timer == null) {
+            timers.put(key, timerWheel.schedule(key,
+                    deadline(now, expiry.expireAfterCreate(key, value))));
+        } else {
+            timerWheel.reschedule(timer, deadline(now,
+                    expiry.expireAfterUpdate(key, value, remaining(timer, now))));
+        }
+        super.put(key, value);
+    }
+
+    @Override
+    protected V removeEntry(final K key) {
+        Timer<K> timer = timers.remove(key);
+        if (timer != null) {
+            timerWheel.cancel(timer);
+        }
+        return super.removeEntry(key);
+    }
+
+    /**
+     * Remove the expired pairs, sending onRemoval with the EXPIRED cause for each of them. Pinned
+     * pairs are kept, and checked again a second later. This is done by every get and put, so it
+     * only needs to be called to release the memory of an idle cache.
+     */
+    public void cleanUp() {
+        cleanUp(System.currentTimeMillis());
+    }
+
+    private void cleanUp(final long now) {
+        CacheExpirySweepEvent event = new CacheExpirySweepEvent();
+        long weight = getWeight();
+
+        event.begin();
+        timerWheel.advance(now, expired);
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        int expiredCount = 0;
+        for (K key : expired) {
+            if (isPinned(key)) {
+                timerWheel.reschedule(timers.get(key), now + PINNED_RETRY_MILLIS);
+            } else {
+                expire(key);
+                expiredCount++;
+            }
+        }
+        expired.clear();
+
+        if (expiredCount > 0 && event.shouldCommit()) {
+            event.entries = expiredCount;
+            event.weight = weight - getWeight();
+            event.commit();
+        }
+    }
+
+    private void expire(final K key) {
+        V value = removeEntry(key);
+        cacheListener.onRemoval(key, value, RemovalCause.EXPIRED);
+    }
+
+    private static long deadline(final long now, final long duration) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Invalid expiration time: " + duration);
+        }
+        return duration >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + duration;
+    }
+
+    private static long remaining(final Timer<?> timer, final long now) {
+        return timer.getDeadline() == Long.MAX_VALUE ? Long.MAX_VALUE : timer.getDeadline() - now;
+    }
+}
@@ -3,7 +3,9 @@ package cachingSystem.classes;
 import cachingSystem.interfaces.Cache;
 import dataStructures.classes.Pair;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -47,6 +49,15 @@ public class FIFOCache<K, V> implements Cache<K, V> {
         cache.clear();
     }
 
+    /**
+     * Get the stored keys, eldest first.
+     *
+     * @return the keys
+     */
+    public List<K> keys() {
+        return new ArrayList<>(cache.keySet());
+    }
+
     @Override
     public Pair<K, V> getEldestEntry() {
         if (isEmpty()) {
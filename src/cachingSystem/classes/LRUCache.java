@@ -1,8 +1,11 @@
 package cachingSystem.classes;
 
 import dataStructures.classes.Pair;
+import observerPattern.interfaces.CacheListener.RemovalCause;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * This cache is very similar to the FIFOCache, but guarantees O(1) complexity for the get, put and
@@ -29,28 +32,7 @@ public class LRUCache<K, V> extends ObservableCache<K, V> {
             V result = hash.get(key).info.getValue();
             cacheListener.onHit(key);
 
-            Node r = hash.get(key);
-
-            if (r == first) {
-                return result;
-            }
-
-            Node prev = r.prev;
-            Node next = r.next;
-
-            if (r == last) {
-                prev.next = null;
-                last = prev;
-            } else {
-                prev.next = next;
-                next.prev = prev;
-            }
-
-            r.next = first;
-            first.prev = r;
-            first = r;
-            r.prev = null;
-
+            moveToFront(hash.get(key));
             return result;
         }
         cacheListener.onMiss(key);
@@ -61,7 +43,7 @@ public class LRUCache<K, V> extends ObservableCache<K, V> {
      * Inserts the new key-value pair if it does not exist or it updates the contents. Either way
      * the item will be considered the most recently used and will be moved to the front of the
      * list.
-     * Sends onPut.
+     * Sends onRemoval with the REPLACED cause if the key existed, then onPut.
      *
      * @param key   the key
      * @param value the value
@@ -69,28 +51,14 @@ public class LRUCache<K, V> extends ObservableCache<K, V> {
     @Override
     public void put(final K key, final V value) {
         if (hash.containsKey(key)) {
-            hash.get(key).info.setValue(value);
-
             Node r = hash.get(key);
 
-            if (r != first) {
-
-                Node prev = r.prev;
-                Node next = r.next;
-
-                if (r == last) {
-                    prev.next = null;
-                    last = prev;
-                } else {
-                    prev.next = next;
-                    next.prev = prev;
-                }
-
-                r.next = first;
-                first.prev = r;
-                first = r;
-                r.prev = null;
-            }
+            V previous = r.info.getValue();
+            removeWeight(key, previous);
+            r.info.setValue(value);
+            addWeight(key, value);
+            cacheListener.onRemoval(key, previous, RemovalCause.REPLACED);
+            moveToFront(r);
         } else {
             Node newNode = new Node(new Pair<>(key, value));
             newNode.prev = null;
@@ -101,6 +69,7 @@ public class LRUCache<K, V> extends ObservableCache<K, V> {
             first = newNode;
 
             hash.put(key, newNode);
+            addWeight(key, value);
             if (size() == 1) {
                 last = newNode;
             }
@@ -137,7 +106,7 @@ public class LRUCache<K, V> extends ObservableCache<K, V> {
      * @return the value
      */
     @Override
-    public V remove(final K key) {
+    protected V removeEntry(final K key) {
         V result = null;
         if (hash.containsKey(key)) {
             result = hash.get(key).info.getValue();
@@ -159,18 +128,56 @@ public class LRUCache<K, V> extends ObservableCache<K, V> {
             }
 
             hash.remove(key);
+            removeWeight(key, result);
         }
         return result;
     }
 
+    @Override
+    public boolean containsKey(final K key) {
+        return hash.containsKey(key);
+    }
+
+    @Override
+    public List<K> getKeys() {
+        List<K> keys = new ArrayList<>(hash.size());
+
+        for (Node n = last; n != null; n = n.prev) {
+            keys.add(n.info.getKey());
+        }
+        return keys;
+    }
+
     /**
-     * Clears the cache.
+     * Moves the pair to the front of the list, as if it had just been used.
+     *
+     * @param key the key
      */
     @Override
-    public void clearAll() {
-        first = null;
-        last = null;
-        hash.clear();
+    protected void requeue(final K key) {
+        moveToFront(hash.get(key));
+    }
+
+    private void moveToFront(final Node r) {
+        if (r == first) {
+            return;
+        }
+
+        Node prev = r.prev;
+        Node next = r.next;
+
+        if (r == last) {
+            prev.next = null;
+            last = prev;
+        } else {
+            prev.next = next;
+            next.prev = prev;
+        }
+
+        r.next = first;
+        first.prev = r;
+        first = r;
+        r.prev = null;
     }
 
     /**
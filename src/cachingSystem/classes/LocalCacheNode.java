@@ -0,0 +1,67 @@
+package cachingSystem.classes;
+
+import cachingSystem.FileCache;
+import cachingSystem.interfaces.CacheNode;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A CacheNode backed by a FileCache of the same process.
+ */
+public class LocalCacheNode implements CacheNode {
+
+    private final String name;
+    private final FileCache cache;
+
+    /**
+     * Create a node.
+     *
+     * @param name  the name of the node
+     * @param cache the cache that stores the files of the node
+     */
+    public LocalCacheNode(final String name, final FileCache cache) {
+        this.name = name;
+        this.cache = cache;
+    }
+
+    /**
+     * Get the cache that stores the files of the node.
+     *
+     * @return the cache
+     */
+    public FileCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getFileContents(final String path) {
+        /* Unlike getFileContents, getAll leaves out the files that cannot be read */
+        return cache.getAll(Collections.singletonList(path)).get(path);
+    }
+
+    @Override
+    public void putFileContents(final String path, final String contents) {
+        cache.putFileContents(path, contents);
+    }
+
+    @Override
+    public boolean remove(final String path) {
+        return cache.remove(path);
+    }
+
+    @Override
+    public List<String> getCachedPaths() {
+        return cache.getCachedPaths();
+    }
+
+    @Override
+    public int size() {
+        return cache.size();
+    }
+}
@@ -2,7 +2,15 @@ package cachingSystem.classes;
 
 import cachingSystem.interfaces.Cache;
 import cachingSystem.interfaces.CacheStalePolicy;
+import cachingSystem.interfaces.CacheWeigher;
+import dataStructures.classes.Pair;
+import metrics.classes.CacheEvictionEvent;
 import observerPattern.interfaces.CacheListener;
+import observerPattern.interfaces.CacheListener.RemovalCause;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Abstract class that adds support for listeners and stale element policies to the Cache
@@ -14,15 +22,36 @@ import observerPattern.interfaces.CacheListener;
 public abstract class ObservableCache<K, V> implements Cache<K, V> {
 
     private CacheStalePolicy<K, V> stalePolicy;
+    private RemovalCause staleCause = RemovalCause.SIZE;
     protected CacheListener<K, V> cacheListener;
 
+    private boolean deferStaleEntries = false;
+    private Set<K> pinnedKeys;
+
+    private CacheWeigher<K, V> weigher;
+    private volatile long weight = 0;
+    private volatile long staleRemovals = 0;
+
     /**
      * Set a policy for removing stale elements from the cache.
      *
      * @param stalePolicy
      */
     public void setStalePolicy(final CacheStalePolicy<K, V> stalePolicy) {
+        setStalePolicy(stalePolicy, RemovalCause.SIZE);
+    }
+
+    /**
+     * Set a policy for removing stale elements from the cache, and the cause reported to the
+     * listener for the elements it removes.
+     *
+     * @param stalePolicy the policy
+     * @param cause       the removal cause, SIZE or EXPIRED
+     */
+    public void setStalePolicy(final CacheStalePolicy<K, V> stalePolicy,
+                               final RemovalCause cause) {
         this.stalePolicy = stalePolicy;
+        this.staleCause = cause;
     }
 
     /**
@@ -34,13 +63,211 @@ public abstract class ObservableCache<K, V> implements Cache<K, V> {
         this.cacheListener = cacheListener;
     }
 
+    /**
+     * Protect keys from being removed as stale. Pinned entries are stepped over, and the next
+     * unpinned entries are removed in their place; if every entry is pinned, the cache grows past
+     * its capacity until some keys are unpinned.
+     *
+     * @param keys a live view of the pinned keys, or null to pin nothing
+     */
+    public void setPinnedKeys(final Set<K> keys) {
+        this.pinnedKeys = keys;
+    }
+
+    /**
+     * Tell whether a key is protected from being removed as stale.
+     *
+     * @param key the key
+     * @return true if the key is pinned
+     */
+    protected boolean isPinned(final K key) {
+        return pinnedKeys != null && pinnedKeys.contains(key);
+    }
+
     /**
      * Clear the stale elements from the cache. This method must make use of the stale policy.
      *
      */
     public void clearStaleEntries() {
-        while (stalePolicy.shouldRemoveEldestEntry(getEldestEntry())) {
-            remove(getEldestEntry().getKey());
+        if (deferStaleEntries) {
+            return;
+        }
+
+        Pair<K, V> eldest = getEldestEntry();
+        int skipped = 0;
+        while (stalePolicy.shouldRemoveEldestEntry(eldest)) {
+            if (isPinned(eldest.getKey())) {
+                /* Every remaining entry was stepped over once, so they are all pinned */
+                if (skipped == size()) {
+                    break;
+                }
+                requeue(eldest.getKey());
+                skipped++;
+                eldest = getEldestEntry();
+                continue;
+            }
+
+            CacheEvictionEvent event = new CacheEvictionEvent();
+            event.begin();
+            removeEntry(eldest.getKey());
+            staleRemovals++;
+            if (event.shouldCommit()) {
+                event.key = String.valueOf(eldest.getKey());
+                event.cause = staleCause.name();
+                event.weight = weigh(eldest.getKey(), eldest.getValue());
+                event.commit();
+            }
+            cacheListener.onRemoval(eldest.getKey(), eldest.getValue(), staleCause);
+            eldest = getEldestEntry();
+        }
+    }
+
+    /**
+     * Removes the key-value pair and sends onRemoval with the EXPLICIT cause.
+     *
+     * @param key the key to be removed
+     * @return the value, or null if the key was not stored
+     */
+    @Override
+    public V remove(final K key) {
+        V result = removeEntry(key);
+        if (result != null) {
+            cacheListener.onRemoval(key, result, RemovalCause.EXPLICIT);
+        }
+        return result;
+    }
+
+    /**
+     * Removes all the pairs, eldest first, sending onRemoval with the EXPLICIT cause for each of
+     * them.
+     */
+    @Override
+    public void clearAll() {
+        for (K key : getKeys()) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Tell whether a key is stored, without sending any event or changing the order of the
+     * entries.
+     *
+     * @param key the key
+     * @return true if the key is stored
+     */
+    public abstract boolean containsKey(K key);
+
+    /**
+     * Get the stored keys, without sending any event.
+     *
+     * @return the keys, in the order in which they would be removed as stale
+     */
+    public abstract List<K> getKeys();
+
+    /**
+     * Moves an entry to the end of the order in which entries are removed as stale, as if it had
+     * just been inserted, without sending any event. Used to step over pinned entries.
+     *
+     * @param key the key of the entry, which must be stored
+     */
+    protected abstract void requeue(K key);
+
+    /**
+     * Removes the key-value pair without sending any event.
+     *
+     * @param key the key to be removed
+     * @return the value, or null if the key was not stored
+     */
+    protected abstract V removeEntry(K key);
+
+    /**
+     * Get the number of entries removed by the stale policy since the cache was created.
+     *
+     * @return the number of removed entries
+     */
+    public long getStaleRemovalCount() {
+        return staleRemovals;
+    }
+
+    /**
+     * Set the weigher used to compute the total weight of the cache. Must be set while the cache
+     * is empty.
+     *
+     * @param weigher the weigher
+     */
+    public void setWeigher(final CacheWeigher<K, V> weigher) {
+        this.weigher = weigher;
+    }
+
+    /**
+     * Get the sum of the weights of the stored pairs, as defined by the weigher.
+     *
+     * @return the weight, or 0 if no weigher was set
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Tell whether the weight of the cache is tracked, so that implementations can skip looking
+     * up replaced values otherwise.
+     *
+     * @return true if a weigher was set
+     */
+    protected boolean isWeighted() {
+        return weigher != null;
+    }
+
+    /**
+     * Get the weight of a pair, as defined by the weigher.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the weight, or 0 if no weigher was set
+     */
+    protected long weigh(final K key, final V value) {
+        return weigher == null ? 0 : weigher.weigh(key, value);
+    }
+
+    /**
+     * Account for a stored pair in the weight of the cache.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    protected void addWeight(final K key, final V value) {
+        if (weigher != null) {
+            weight += weigher.weigh(key, value);
+        }
+    }
+
+    /**
+     * Account for a removed pair in the weight of the cache.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    protected void removeWeight(final K key, final V value) {
+        if (weigher != null) {
+            weight -= weigher.weigh(key, value);
+        }
+    }
+
+    /**
+     * Insert a batch of key-value pairs. The stale elements are cleared only once, after the whole
+     * batch has been inserted, instead of once per inserted pair.
+     *
+     * @param entries the pairs to insert
+     */
+    public void putAll(final Map<K, V> entries) {
+        deferStaleEntries = true;
+        try {
+            for (Map.Entry<K, V> entry : entries.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            deferStaleEntries = false;
         }
+        clearStaleEntries();
     }
 }
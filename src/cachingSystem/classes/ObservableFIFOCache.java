@@ -1,6 +1,9 @@
 package cachingSystem.classes;
 
 import dataStructures.classes.Pair;
+import observerPattern.interfaces.CacheListener.RemovalCause;
+
+import java.util.List;
 
 /**
  * Class that adapts the FIFOCache class to the ObservableCache abstract class.
@@ -30,14 +33,22 @@ public class ObservableFIFOCache<K, V> extends ObservableCache<K, V> {
 
     /**
      * Puts the new key-value pair in the Cache (or updates existing), clears the stale elements and
-     * sends onPut.
+     * sends onPut. Sends onRemoval with the REPLACED cause first if the key existed.
      *
      * @param key   the key
      * @param value the value
      */
     @Override
     public void put(final K key, final V value) {
+        V previous = cache.get(key);
+        if (previous != null) {
+            removeWeight(key, previous);
+        }
+        addWeight(key, value);
         cache.put(key, value);
+        if (previous != null) {
+            cacheListener.onRemoval(key, previous, RemovalCause.REPLACED);
+        }
         clearStaleEntries();
         cacheListener.onPut(key, value);
     }
@@ -69,16 +80,32 @@ public class ObservableFIFOCache<K, V> extends ObservableCache<K, V> {
      * @return the value
      */
     @Override
-    public V remove(final K key) {
-        return cache.remove(key);
+    protected V removeEntry(final K key) {
+        V result = cache.remove(key);
+        if (result != null) {
+            removeWeight(key, result);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean containsKey(final K key) {
+        return cache.get(key) != null;
+    }
+
+    @Override
+    public List<K> getKeys() {
+        return cache.keys();
     }
 
     /**
-     * Clears the cache.
+     * Moves the pair to the tail of the queue.
+     *
+     * @param key the key
      */
     @Override
-    public void clearAll() {
-        cache.clearAll();
+    protected void requeue(final K key) {
+        cache.put(key, cache.remove(key));
     }
 
 
@@ -0,0 +1,327 @@
+package cachingSystem.classes;
+
+import dataStructures.classes.Pair;
+import observerPattern.interfaces.CacheListener.RemovalCause;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * FIFO cache that keeps its keys and values in parallel arrays used as a ring buffer, in insertion
+ * order, and finds them through an open-addressing index of slot numbers. Once the arrays have
+ * grown to the size the stale policy allows, get, put and the eviction of the eldest entry do not
+ * allocate. Removing an entry from the middle of the ring leaves an empty slot, which is reclaimed
+ * when the ring is compacted.
+ */
+public class RingBufferFIFOCache<K, V> extends ObservableCache<K, V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int GOLDEN_RATIO = 0x9e3779b9;
+
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int head = 0;
+    private int used = 0;
+    private int size = 0;
+
+    /* Slot numbers plus one, 0 marking a free position, placed by the top bits of the hashes */
+    private int[] index;
+    private int indexShift;
+
+    private final Pair<K, V> eldest = new Pair<>(null, null);
+
+    /**
+     * Create a cache with room for 16 entries before its arrays grow.
+     */
+    public RingBufferFIFOCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a cache with room for @initialCapacity entries before its arrays grow.
+     *
+     * @param initialCapacity the initial length of the ring, rounded up to a power of two
+     */
+    public RingBufferFIFOCache(final int initialCapacity) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + initialCapacity);
+        }
+        allocate(initialCapacity);
+    }
+
+    /**
+     * Returns the value assigned to the input key or null. Sends onHit if the item is found or
+     * onMiss if it is not.
+     *
+     * @param key the key to lookup
+     * @return the value
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(final K key) {
+        int position = find(key);
+        if (position < 0) {
+            cacheListener.onMiss(key);
+            return null;
+        }
+
+        cacheListener.onHit(key);
+        return (V) values[index[position] - 1];
+    }
+
+    /**
+     * Puts the new key-value pair at the tail of the ring, or updates the value of an existing key
+     * in place. Clears the stale elements and sends onPut; sends onRemoval with the REPLACED cause
+     * first if the key existed.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void put(final K key, final V value) {
+        int position = find(key);
+
+        if (position >= 0) {
+            int slot = index[position] - 1;
+            V previous = (V) values[slot];
+
+            removeWeight(key, previous);
+            values[slot] = value;
+            addWeight(key, value);
+            cacheListener.onRemoval(key, previous, RemovalCause.REPLACED);
+        } else {
+            append(key, value);
+        }
+
+        clearStaleEntries();
+        cacheListener.onPut(key, value);
+    }
+
+    private void append(final K key, final V value) {
+        if (used == keys.length) {
+            makeRoom();
+        }
+
+        int slot = (head + used) & (keys.length - 1);
+        keys[slot] = key;
+        values[slot] = value;
+        hashes[slot] = hash(key);
+        used++;
+        size++;
+        insert(slot);
+        addWeight(key, value);
+    }
+
+    /**
+     * Returns the size of the Cache.
+     *
+     * @return the size
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if the Cache contains no elements.
+     *
+     * @return empty status: True/False
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes the key-value pair.
+     *
+     * @param key the key to be removed
+     * @return the value
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected V removeEntry(final K key) {
+        int position = find(key);
+        if (position < 0) {
+            return null;
+        }
+
+        int slot = index[position] - 1;
+        V result = (V) values[slot];
+
+        delete(position);
+        keys[slot] = null;
+        values[slot] = null;
+        size--;
+        removeWeight(key, result);
+
+        while (used > 0 && keys[head] == null) {
+            head = (head + 1) & (keys.length - 1);
+            used--;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean containsKey(final K key) {
+        return find(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<K> getKeys() {
+        List<K> result = new ArrayList<>(size);
+
+        for (int i = 0; i < used; i++) {
+            Object key = keys[(head + i) & (keys.length - 1)];
+            if (key != null) {
+                result.add((K) key);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Moves the pair to the tail of the ring, leaving an empty slot where it was.
+     *
+     * @param key the key
+     */
+    @Override
+    protected void requeue(final K key) {
+        append(key, removeEntry(key));
+    }
+
+    /**
+     * Gets the eldest item in the Cache. The returned pair is reused by the next call, so it must
+     * not be kept.
+     *
+     * @return the eldest pair.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Pair<K, V> getEldestEntry() {
+        if (size == 0) {
+            return null;
+        }
+
+        eldest.setKey((K) keys[head]);
+        eldest.setValue((V) values[head]);
+        return eldest;
+    }
+
+    private int find(final K key) {
+        int mask = index.length - 1;
+        int hash = hash(key);
+        int position = hash >>> indexShift;
+
+        while (index[position] != 0) {
+            int slot = index[position] - 1;
+            if (hashes[slot] == hash && key.equals(keys[slot])) {
+                return position;
+            }
+            position = (position + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(final int slot) {
+        int mask = index.length - 1;
+        int position = hashes[slot] >>> indexShift;
+
+        while (index[position] != 0) {
+            position = (position + 1) & mask;
+        }
+        index[position] = slot + 1;
+    }
+
+    /* Backward-shift deletion, so that lookups never have to skip deleted positions */
+    private void delete(final int position) {
+        int mask = index.length - 1;
+        int free = position;
+        int next = position;
+
+        while (true) {
+            next = (next + 1) & mask;
+            if (index[next] == 0) {
+                break;
+            }
+
+            int home = hashes[index[next] - 1] >>> indexShift;
+            boolean movable = free <= next
+                    ? home <= free || home > next
+                    : home <= free && home > next;
+            if (movable) {
+                index[free] = index[next];
+                free = next;
+            }
+        }
+        index[free] = 0;
+    }
+
+    private static int hash(final Object key) {
+        return key.hashCode() * GOLDEN_RATIO;
+    }
+
+    /* Called when the ring is full: drop the empty slots, or grow if there are only a few */
+    private void makeRoom() {
+        if (size * 4 >= keys.length * 3) {
+            Object[] oldKeys = keys;
+            Object[] oldValues = values;
+            int[] oldHashes = hashes;
+            int oldHead = head;
+            int oldUsed = used;
+
+            allocate(keys.length * 2);
+            for (int i = 0; i < oldUsed; i++) {
+                int from = (oldHead + i) & (oldKeys.length - 1);
+                if (oldKeys[from] != null) {
+                    keys[used] = oldKeys[from];
+                    values[used] = oldValues[from];
+                    hashes[used] = oldHashes[from];
+                    insert(used);
+                    used++;
+                }
+            }
+            return;
+        }
+
+        int write = 0;
+        for (int read = 0; read < used; read++) {
+            int from = (head + read) & (keys.length - 1);
+            if (keys[from] != null) {
+                int to = (head + write) & (keys.length - 1);
+                keys[to] = keys[from];
+                values[to] = values[from];
+                hashes[to] = hashes[from];
+                write++;
+            }
+        }
+        for (int i = write; i < used; i++) {
+            int slot = (head + i) & (keys.length - 1);
+            keys[slot] = null;
+            values[slot] = null;
+        }
+        used = write;
+
+        Arrays.fill(index, 0);
+        for (int i = 0; i < used; i++) {
+            insert((head + i) & (keys.length - 1));
+        }
+    }
+
+    /* The ring length is rounded up to a power of two, and the index is twice as long */
+    private void allocate(final int capacity) {
+        int ringBits = Integer.SIZE - Integer.numberOfLeadingZeros(capacity - 1);
+
+        keys = new Object[1 << ringBits];
+        values = new Object[1 << ringBits];
+        hashes = new int[1 << ringBits];
+        index = new int[2 << ringBits];
+        indexShift = Integer.SIZE - ringBits - 1;
+        head = 0;
+        used = 0;
+    }
+}
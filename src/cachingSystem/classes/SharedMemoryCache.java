@@ -0,0 +1,547 @@
+package cachingSystem.classes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The SharedMemoryCache is a key-value store kept in a memory-mapped file, so that every process
+ * that maps the same file (typically under /dev/shm) shares its contents. The file holds a header,
+ * a fixed-size open-addressing table of slots and an arena of key-value records.
+ *
+ * Writers are serialized by a lock on the file, taken by one thread of a process at a time; a
+ * process that dies releases it. Readers never lock, and use each slot's sequence number as a
+ * seqlock to get a consistent view of it. A removed or replaced key leaves a tombstone in its slot.
+ * When the arena or the table is full, the writer compacts the store, dropping the tombstones and
+ * the replaced records; if that is not enough, it clears the store. The header holds an epoch,
+ * odd while the store is compacted, that readers check around each lookup.
+ */
+public class SharedMemoryCache implements Closeable {
+
+    public static final String DEFAULT_DIRECTORY = "/dev/shm";
+
+    private static final int MAGIC = 0x46435348;
+    private static final int VERSION = 2;
+
+    /* Header: magic, version, slot count, arena end, arena top, epoch */
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int SLOT_COUNT_OFFSET = 8;
+    private static final int ARENA_END_OFFSET = 16;
+    private static final int ARENA_TOP_OFFSET = 24;
+    private static final int EPOCH_OFFSET = 32;
+    private static final int HEADER_SIZE = 64;
+
+    /*
+     * Slot: sequence number (odd while written, 0 if never used), key hash, record offset. A slot
+     * whose record offset is 0 is a tombstone: it holds no key, but lookups probe past it.
+     */
+    private static final int SLOT_SIZE = 24;
+    private static final int HASH_OFFSET = 8;
+    private static final int RECORD_OFFSET = 16;
+    private static final long TOMBSTONE = 0;
+
+    /* Record: key length, value length, key bytes, value bytes */
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    /* How long a reader waits for a slot or an epoch held by a writer, which may have died */
+    private static final int MAX_SPINS = 1 << 16;
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    /*
+     * A process may hold a single lock on a file, so the threads of this JVM take the lock of the
+     * file in turn, whichever SharedMemoryCache they go through. The map is never pruned: it holds
+     * a lock per shared file opened by the JVM.
+     */
+    private static final ConcurrentHashMap<Path, ReentrantLock> FILE_LOCKS =
+            new ConcurrentHashMap<>();
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final ReentrantLock writeLock;
+    private final int slotCount;
+    private final long arenaStart;
+    private final long arenaEnd;
+    /* Apart from the channel of the mapping, since an interrupt closes the channel it waits on */
+    private FileChannel lockChannel;
+    private FileLock fileLock;
+    private boolean closed = false;
+
+    private SharedMemoryCache(final Path path, final FileChannel channel,
+                              final MappedByteBuffer buffer, final ReentrantLock writeLock) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.writeLock = writeLock;
+        this.slotCount = buffer.getInt(SLOT_COUNT_OFFSET);
+        this.arenaStart = HEADER_SIZE + (long) slotCount * SLOT_SIZE;
+        this.arenaEnd = buffer.getLong(ARENA_END_OFFSET);
+    }
+
+    /**
+     * Map a shared store, creating and formatting the file if no process did it yet. The
+     * geometry of an existing file takes precedence over @slotCount and @arenaBytes.
+     *
+     * @param path       the path of the file, e.g. under DEFAULT_DIRECTORY
+     * @param slotCount  the number of entries the table can hold
+     * @param arenaBytes the space for keys and values, in bytes
+     * @return the store
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static SharedMemoryCache open(final Path path, final int slotCount,
+                                         final long arenaBytes) throws IOException {
+        long size = HEADER_SIZE + (long) slotCount * SLOT_SIZE + align(arenaBytes);
+        if (slotCount < 1 || arenaBytes < 1 || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid shared cache size");
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ReentrantLock writeLock = new ReentrantLock();
+            ReentrantLock existing = FILE_LOCKS.putIfAbsent(path.toRealPath(), writeLock);
+            if (existing != null) {
+                writeLock = existing;
+            }
+
+            writeLock.lock();
+            try {
+                FileLock lock = channel.lock(0, HEADER_SIZE, false);
+                try {
+                    if (channel.size() < HEADER_SIZE) {
+                        format(channel, slotCount, size);
+                    }
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                writeLock.unlock();
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    channel.size());
+            buffer.order(ByteOrder.nativeOrder());
+            if (buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION) {
+                throw new IOException("Not a shared cache file: " + path);
+            }
+            return new SharedMemoryCache(path, channel, buffer, writeLock);
+        } catch (IOException | RuntimeException excp) {
+            channel.close();
+            throw excp;
+        }
+    }
+
+    private static void format(final FileChannel channel, final int slotCount, final long size)
+            throws IOException {
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+        header.order(ByteOrder.nativeOrder());
+        header.putInt(VERSION_OFFSET, VERSION);
+        header.putInt(SLOT_COUNT_OFFSET, slotCount);
+        header.putLong(ARENA_END_OFFSET, size);
+        header.putLong(ARENA_TOP_OFFSET, HEADER_SIZE + (long) slotCount * SLOT_SIZE);
+        header.putLong(EPOCH_OFFSET, 0);
+        header.putInt(MAGIC_OFFSET, MAGIC);
+        header.force();
+    }
+
+    /**
+     * Get the value of a key. A lookup that overlaps a compaction of the store is done again; if
+     * the store stays locked for too long, the key is reported missing.
+     *
+     * @param key the key
+     * @return the value, or null if the key is not stored
+     */
+    public String get(final String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(keyBytes);
+
+        for (int spins = 0; spins < MAX_SPINS; spins++) {
+            long epoch = (long) LONGS.getAcquire(buffer, EPOCH_OFFSET);
+            if ((epoch & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            String value = find(hash, keyBytes);
+            VarHandle.acquireFence();
+            if ((long) LONGS.getVolatile(buffer, EPOCH_OFFSET) == epoch) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /* Probes the table without locking; the result is only valid if the epoch did not change */
+    private String find(final long hash, final byte[] keyBytes) {
+        for (int probe = 0; probe < slotCount; probe++) {
+            int slot = slotPosition(hash, probe);
+
+            for (int spins = 0; ; spins++) {
+                long sequence = (long) LONGS.getAcquire(buffer, slot);
+                if (sequence == 0) {
+                    return null;
+                }
+                /* A slot written for too long may hold another key: probe past it */
+                if ((sequence & 1) != 0) {
+                    if (spins == MAX_SPINS) {
+                        break;
+                    }
+                    Thread.onSpinWait();
+                    continue;
+                }
+
+                long slotHash = (long) LONGS.get(buffer, slot + HASH_OFFSET);
+                long record = (long) LONGS.get(buffer, slot + RECORD_OFFSET);
+                VarHandle.acquireFence();
+                if ((long) LONGS.get(buffer, slot) != sequence) {
+                    continue;
+                }
+
+                if (record == TOMBSTONE || slotHash != hash || !keyMatches(record, keyBytes)) {
+                    break;
+                }
+                return readValue(record);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Store the value of a key, replacing the previous one. If the arena or the table is full,
+     * the store is compacted first, and cleared if compacting does not make enough room. If the
+     * value cannot be stored, the previous value is removed, so that no process reads it.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return false if the record is larger than the whole arena
+     */
+    public boolean put(final String key, final String value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(keyBytes);
+        long recordSize = align(RECORD_HEADER_SIZE + (long) keyBytes.length + valueBytes.length);
+
+        lock();
+        try {
+            int slot = findSlotForWrite(hash, keyBytes);
+
+            if (recordSize > arenaEnd - arenaStart) {
+                if (slot >= 0 && holdsKey(slot, hash, keyBytes)) {
+                    writeSlot(slot, 0, TOMBSTONE);
+                }
+                return false;
+            }
+
+            long top = (long) LONGS.getVolatile(buffer, ARENA_TOP_OFFSET);
+            if (slot < 0 || top + recordSize > arenaEnd) {
+                compact(true);
+                slot = findSlotForWrite(hash, keyBytes);
+                top = (long) LONGS.getVolatile(buffer, ARENA_TOP_OFFSET);
+            }
+            if (slot < 0 || top + recordSize > arenaEnd) {
+                compact(false);
+                slot = findSlotForWrite(hash, keyBytes);
+                top = (long) LONGS.getVolatile(buffer, ARENA_TOP_OFFSET);
+            }
+
+            buffer.putInt((int) top, keyBytes.length);
+            buffer.putInt((int) top + 4, valueBytes.length);
+            buffer.put((int) top + RECORD_HEADER_SIZE, keyBytes);
+            buffer.put((int) top + RECORD_HEADER_SIZE + keyBytes.length, valueBytes);
+            LONGS.setRelease(buffer, ARENA_TOP_OFFSET, top + recordSize);
+
+            writeSlot(slot, hash, top);
+            return true;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Remove a key, leaving a tombstone in its slot.
+     *
+     * @param key the key
+     * @return true if the key was stored
+     */
+    public boolean remove(final String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(keyBytes);
+
+        lock();
+        try {
+            int slot = findSlotForWrite(hash, keyBytes);
+            if (slot < 0 || !holdsKey(slot, hash, keyBytes)) {
+                return false;
+            }
+
+            writeSlot(slot, 0, TOMBSTONE);
+            return true;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Get the number of arena bytes used by the records, including the replaced and removed ones
+     * that the next compaction drops.
+     *
+     * @return the used bytes
+     */
+    public long getArenaUsed() {
+        return (long) LONGS.getVolatile(buffer, ARENA_TOP_OFFSET) - arenaStart;
+    }
+
+    /**
+     * Get the number of times the store was compacted or cleared to make room, by any process.
+     *
+     * @return the number of compactions
+     */
+    public long getCompactionCount() {
+        return (long) LONGS.getVolatile(buffer, EPOCH_OFFSET) / 2;
+    }
+
+    /**
+     * Unmap nothing, but release the file. The mapping stays valid until it is garbage collected.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            closed = true;
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+            channel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /*
+     * The slot holding the key, or else the first tombstone, or else the first empty slot, or -1
+     * if the table is full. Called with the lock held, so a slot left odd was abandoned by a
+     * writer that died: it is turned into a tombstone.
+     */
+    private int findSlotForWrite(final long hash, final byte[] keyBytes) {
+        int free = -1;
+
+        for (int probe = 0; probe < slotCount; probe++) {
+            int slot = slotPosition(hash, probe);
+            long sequence = (long) LONGS.getAcquire(buffer, slot);
+
+            if ((sequence & 1) != 0) {
+                LONGS.set(buffer, slot + HASH_OFFSET, 0L);
+                LONGS.set(buffer, slot + RECORD_OFFSET, TOMBSTONE);
+                LONGS.setRelease(buffer, slot, sequence + 1);
+                sequence++;
+            }
+            if (sequence == 0) {
+                return free >= 0 ? free : slot;
+            }
+            if (holdsKey(slot, hash, keyBytes)) {
+                return slot;
+            }
+            if (free < 0 && (long) LONGS.get(buffer, slot + RECORD_OFFSET) == TOMBSTONE) {
+                free = slot;
+            }
+        }
+        return free;
+    }
+
+    private boolean holdsKey(final int slot, final long hash, final byte[] keyBytes) {
+        long record = (long) LONGS.get(buffer, slot + RECORD_OFFSET);
+
+        return record != TOMBSTONE && (long) LONGS.get(buffer, slot + HASH_OFFSET) == hash
+                && keyMatches(record, keyBytes);
+    }
+
+    /* Updates a slot under its seqlock, so that readers never see half of it */
+    private void writeSlot(final int slot, final long hash, final long record) {
+        long sequence = (long) LONGS.getAcquire(buffer, slot);
+
+        LONGS.setVolatile(buffer, slot, sequence + 1);
+        LONGS.set(buffer, slot + HASH_OFFSET, hash);
+        LONGS.set(buffer, slot + RECORD_OFFSET, record);
+        LONGS.setRelease(buffer, slot, sequence + 2);
+    }
+
+    /*
+     * Rebuilds the table and the arena with the live records only, or with none of them if
+     * @keepEntries is false. The epoch is odd meanwhile, so readers wait and then look again.
+     */
+    private void compact(final boolean keepEntries) {
+        long epoch = (long) LONGS.getVolatile(buffer, EPOCH_OFFSET);
+        LONGS.setVolatile(buffer, EPOCH_OFFSET, epoch + 1);
+        VarHandle.fullFence();
+
+        List<long[]> live = new ArrayList<>();
+        for (int i = 0; i < slotCount && keepEntries; i++) {
+            int slot = HEADER_SIZE + i * SLOT_SIZE;
+            long sequence = (long) LONGS.get(buffer, slot);
+            long record = (long) LONGS.get(buffer, slot + RECORD_OFFSET);
+
+            if (sequence != 0 && (sequence & 1) == 0 && record != TOMBSTONE) {
+                live.add(new long[] {(long) LONGS.get(buffer, slot + HASH_OFFSET), record});
+            }
+        }
+        /* Moved in arena order, each record to an offset no higher than its own */
+        Collections.sort(live, new Comparator<long[]>() {
+            @Override
+            public int compare(final long[] first, final long[] second) {
+                return Long.compare(first[1], second[1]);
+            }
+        });
+
+        long top = arenaStart;
+        for (long[] entry : live) {
+            int record = (int) entry[1];
+            long size = align(RECORD_HEADER_SIZE + (long) buffer.getInt(record)
+                    + buffer.getInt(record + 4));
+
+            if (record != top) {
+                byte[] bytes = new byte[(int) size];
+                buffer.get(record, bytes);
+                buffer.put((int) top, bytes);
+            }
+            entry[1] = top;
+            top += size;
+        }
+
+        for (int i = 0; i < slotCount; i++) {
+            int slot = HEADER_SIZE + i * SLOT_SIZE;
+            LONGS.set(buffer, slot, 0L);
+            LONGS.set(buffer, slot + HASH_OFFSET, 0L);
+            LONGS.set(buffer, slot + RECORD_OFFSET, TOMBSTONE);
+        }
+        for (long[] entry : live) {
+            for (int probe = 0; ; probe++) {
+                int slot = slotPosition(entry[0], probe);
+                if ((long) LONGS.get(buffer, slot) == 0) {
+                    LONGS.set(buffer, slot + HASH_OFFSET, entry[0]);
+                    LONGS.set(buffer, slot + RECORD_OFFSET, entry[1]);
+                    LONGS.set(buffer, slot, 2L);
+                    break;
+                }
+            }
+        }
+        LONGS.set(buffer, ARENA_TOP_OFFSET, top);
+
+        LONGS.setRelease(buffer, EPOCH_OFFSET, epoch + 2);
+    }
+
+    /*
+     * Takes the lock of this JVM on the file, then the lock of the file. An interrupt closes the
+     * channel a lock is waited on, so the lock is then waited on again through a new channel.
+     */
+    private void lock() {
+        writeLock.lock();
+
+        boolean interrupted = Thread.interrupted();
+        boolean locked = false;
+        try {
+            while (!locked) {
+                if (closed) {
+                    throw new IllegalStateException("The shared cache is closed");
+                }
+                try {
+                    if (lockChannel == null || !lockChannel.isOpen()) {
+                        lockChannel = FileChannel.open(path, StandardOpenOption.WRITE);
+                    }
+                    fileLock = lockChannel.lock(0, HEADER_SIZE, false);
+                    locked = true;
+                } catch (ClosedChannelException excp) {
+                    interrupted |= Thread.interrupted();
+                } catch (IOException excp) {
+                    throw new IllegalStateException("Could not lock the shared cache", excp);
+                }
+            }
+        } finally {
+            if (!locked) {
+                writeLock.unlock();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void unlock() {
+        try {
+            if (fileLock.isValid()) {
+                fileLock.release();
+            }
+        } catch (IOException excp) {
+            /* The lock went away with its channel */
+        } finally {
+            fileLock = null;
+            writeLock.unlock();
+        }
+    }
+
+    /* Record offsets and lengths may be torn while the store is compacted, so they are checked */
+    private boolean keyMatches(final long record, final byte[] keyBytes) {
+        if (record < arenaStart || record + RECORD_HEADER_SIZE > arenaEnd
+                || buffer.getInt((int) record) != keyBytes.length
+                || record + RECORD_HEADER_SIZE + keyBytes.length > arenaEnd) {
+            return false;
+        }
+
+        byte[] stored = new byte[keyBytes.length];
+        buffer.get((int) record + RECORD_HEADER_SIZE, stored);
+        return Arrays.equals(stored, keyBytes);
+    }
+
+    private String readValue(final long record) {
+        int keyLength = buffer.getInt((int) record);
+        int valueLength = buffer.getInt((int) record + 4);
+        if (keyLength < 0 || valueLength < 0
+                || record + RECORD_HEADER_SIZE + keyLength + (long) valueLength > arenaEnd) {
+            return null;
+        }
+
+        byte[] value = new byte[valueLength];
+        buffer.get((int) record + RECORD_HEADER_SIZE + keyLength, value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private int slotPosition(final long hash, final int probe) {
+        return HEADER_SIZE + (int) Long.remainderUnsigned(hash + probe, slotCount) * SLOT_SIZE;
+    }
+
+    /* FNV-1a, so that every process computes the same hash */
+    private static long hash(final byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long align(final long bytes) {
+        return (bytes + Long.BYTES - 1) & -Long.BYTES;
+    }
+}
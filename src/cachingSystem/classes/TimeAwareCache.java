@@ -2,6 +2,8 @@ package cachingSystem.classes;
 
 import cachingSystem.interfaces.CacheStalePolicy;
 import dataStructures.classes.Pair;
+import metrics.classes.CacheExpirySweepEvent;
+import observerPattern.interfaces.CacheListener.RemovalCause;
 
 import java.sql.Timestamp;
 import java.util.TreeMap;
@@ -44,9 +46,9 @@ public class TimeAwareCache<K, V> extends LRUCache<K, V> {
      * @return the value
      */
     @Override
-    public V remove(final K key) {
+    protected V removeEntry(final K key) {
         times.remove(key);
-        return super.remove(key);
+        return super.removeEntry(key);
     }
 
     /**
@@ -67,6 +69,30 @@ public class TimeAwareCache<K, V> extends LRUCache<K, V> {
     }
 
 
+    /**
+     * Removes the expired pairs, and records the pass as a CacheExpirySweepEvent if any pair
+     * expired.
+     */
+    @Override
+    public void clearStaleEntries() {
+        CacheExpirySweepEvent event = new CacheExpirySweepEvent();
+        if (!event.isEnabled()) {
+            super.clearStaleEntries();
+            return;
+        }
+
+        long removals = getStaleRemovalCount();
+        long weight = getWeight();
+
+        event.begin();
+        super.clearStaleEntries();
+        if (getStaleRemovalCount() > removals && event.shouldCommit()) {
+            event.entries = getStaleRemovalCount() - removals;
+            event.weight = weight - getWeight();
+            event.commit();
+        }
+    }
+
     /**
      * Get the timestamp associated with a key, or null if the key is not stored in the cache.
      *
@@ -98,6 +124,6 @@ public class TimeAwareCache<K, V> extends LRUCache<K, V> {
                         > millisToExpire;
             }
         };
-        setStalePolicy(stalePolicy);
+        setStalePolicy(stalePolicy, RemovalCause.EXPIRED);
     }
 }
@@ -0,0 +1,41 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.CacheStalePolicy;
+import dataStructures.classes.Pair;
+
+/**
+ * Stale policy that limits the total weight of a cache, as computed by the weigher of the cache.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class WeightStalePolicy<K, V> implements CacheStalePolicy<K, V> {
+
+    private final ObservableCache<K, V> cache;
+    private final long maximumWeight;
+
+    /**
+     * Create a weight policy.
+     *
+     * @param cache         the cache whose weight is limited
+     * @param maximumWeight the maximum total weight
+     */
+    public WeightStalePolicy(final ObservableCache<K, V> cache, final long maximumWeight) {
+        this.cache = cache;
+        this.maximumWeight = maximumWeight;
+    }
+
+    @Override
+    public boolean shouldRemoveEldestEntry(final Pair<K, V> entry) {
+        return entry != null && cache.getWeight() > maximumWeight;
+    }
+
+    /**
+     * Get the maximum total weight.
+     *
+     * @return the maximum weight
+     */
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+}
@@ -0,0 +1,20 @@
+package cachingSystem.interfaces;
+
+/**
+ * The CacheAdmissionPolicy interface defines the logic for deciding whether a value that was
+ * loaded on a miss should be stored in the cache, or only returned to the caller.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public interface CacheAdmissionPolicy<K, V> {
+
+    /**
+     * Return whether or not a loaded value should be stored in the cache.
+     *
+     * @param key   the key that missed
+     * @param value the loaded value
+     * @return true if the value should be cached, false otherwise
+     */
+    boolean shouldAdmit(K key, V value);
+}
@@ -0,0 +1,40 @@
+package cachingSystem.interfaces;
+
+/**
+ * The CacheExpiry interface defines how long each key-value pair stays in a cache. The durations
+ * are in milliseconds; Long.MAX_VALUE means that the pair never expires.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public interface CacheExpiry<K, V> {
+
+    /**
+     * Return how long a new pair stays in the cache.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the duration, in milliseconds
+     */
+    long expireAfterCreate(K key, V value);
+
+    /**
+     * Return how long a pair stays in the cache after its value is replaced.
+     *
+     * @param key             the key
+     * @param value           the new value
+     * @param currentDuration the time the pair had left before the update
+     * @return the duration, in milliseconds
+     */
+    long expireAfterUpdate(K key, V value, long currentDuration);
+
+    /**
+     * Return how long a pair stays in the cache after it is read.
+     *
+     * @param key             the key
+     * @param value           the value
+     * @param currentDuration the time the pair had left before the read
+     * @return the duration, in milliseconds
+     */
+    long expireAfterRead(K key, V value, long currentDuration);
+}
@@ -0,0 +1,57 @@
+package cachingSystem.interfaces;
+
+import java.util.List;
+
+/**
+ * The CacheNode interface defines one shard of a ShardedFileCache: a file cache that can live in
+ * the same process or in another process on the same host. Every node can load any file on a
+ * miss, so a file can be read from whichever node it is routed to.
+ */
+public interface CacheNode {
+
+    /**
+     * Return the name of the node, which places it on the hash ring. Names must be unique within
+     * a ShardedFileCache and should stay the same across restarts.
+     *
+     * @return the name
+     */
+    String getName();
+
+    /**
+     * Get the contents of a file, loading it on a miss.
+     *
+     * @param path the path of the file
+     * @return the contents, or null if the file cannot be read
+     */
+    String getFileContents(String path);
+
+    /**
+     * Put the contents of a file in the node.
+     *
+     * @param path     the path of the file
+     * @param contents the new contents
+     */
+    void putFileContents(String path, String contents);
+
+    /**
+     * Drop a file from the node, without loading it.
+     *
+     * @param path the path of the file
+     * @return true if the file was cached
+     */
+    boolean remove(String path);
+
+    /**
+     * Get the paths of the files cached by the node.
+     *
+     * @return the paths
+     */
+    List<String> getCachedPaths();
+
+    /**
+     * Get the number of files cached by the node.
+     *
+     * @return the number of files
+     */
+    int size();
+}
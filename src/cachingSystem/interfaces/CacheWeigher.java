@@ -0,0 +1,20 @@
+package cachingSystem.interfaces;
+
+/**
+ * The CacheWeigher interface defines how much a key-value pair weighs in a cache, e.g. the memory
+ * it takes.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public interface CacheWeigher<K, V> {
+
+    /**
+     * Return the weight of a pair. The weight of a pair must not change while it is cached.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the weight, 0 or greater
+     */
+    long weigh(K key, V value);
+}
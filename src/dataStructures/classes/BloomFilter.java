@@ -0,0 +1,87 @@
+package dataStructures.classes;
+
+/**
+ * The BloomFilter is a fixed-size set of hashes that answers whether an element might have been
+ * added (with a small rate of false positives) or has certainly not been added.
+ */
+public class BloomFilter {
+
+    private final long[] bits;
+    private final int bitCount;
+    private final int hashCount;
+
+    /**
+     * Create a filter sized for a number of elements and a false positive rate.
+     *
+     * @param expectedElements  the number of elements the filter should hold
+     * @param falsePositiveRate the rate of false positives once the filter holds them
+     */
+    public BloomFilter(final int expectedElements, final double falsePositiveRate) {
+        if (expectedElements < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter size");
+        }
+
+        double ln2 = Math.log(2);
+        long optimalBits = (long) Math.ceil(-expectedElements * Math.log(falsePositiveRate)
+                / (ln2 * ln2));
+
+        bitCount = (int) Math.min(Integer.MAX_VALUE - Long.SIZE, Math.max(Long.SIZE, optimalBits));
+        hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedElements * ln2));
+        bits = new long[(bitCount + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    /**
+     * Add an element.
+     *
+     * @param element the element
+     * @return true if the element might have been added before, false if it certainly was not
+     */
+    public boolean add(final Object element) {
+        int h = element.hashCode();
+        int first = Hashing.mix(h);
+        int second = Hashing.mix(h ^ 0x9e3779b9) | 1;
+        boolean present = true;
+
+        for (int i = 0; i < hashCount; i++) {
+            int bit = ((first + i * second) & Integer.MAX_VALUE) % bitCount;
+            long mask = 1L << bit;
+            int word = bit >>> 6;
+
+            if ((bits[word] & mask) == 0) {
+                present = false;
+                bits[word] |= mask;
+            }
+        }
+        return present;
+    }
+
+    /**
+     * Tell whether an element might have been added.
+     *
+     * @param element the element
+     * @return true if it might have been added, false if it certainly was not
+     */
+    public boolean mightContain(final Object element) {
+        int h = element.hashCode();
+        int first = Hashing.mix(h);
+        int second = Hashing.mix(h ^ 0x9e3779b9) | 1;
+
+        for (int i = 0; i < hashCount; i++) {
+            int bit = ((first + i * second) & Integer.MAX_VALUE) % bitCount;
+
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove all the elements.
+     */
+    public void clear() {
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = 0;
+        }
+    }
+}
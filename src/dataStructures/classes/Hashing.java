@@ -0,0 +1,29 @@
+package dataStructures.classes;
+
+/**
+ * Hash functions shared by the data structures and listeners that spread keys by their hashCode.
+ */
+public final class Hashing {
+
+    private Hashing() {
+
+    }
+
+    /**
+     * The MurmurHash3 finalizer: every bit of @hash affects every bit of the result, so that
+     * similar hash codes land far apart.
+     *
+     * @param hash the hash code
+     * @return the mixed hash
+     */
+    public static int mix(final int hash) {
+        int h = hash;
+
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
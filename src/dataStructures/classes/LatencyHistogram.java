@@ -0,0 +1,110 @@
+package dataStructures.classes;
+
+/**
+ * The LatencyHistogram records durations in log-linear buckets: values below 64 have their own
+ * bucket and larger values share a bucket with the values that have the same 5 most significant
+ * bits, which bounds the relative error of any reported percentile to about 3%. Recording is O(1)
+ * and does not allocate.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long totalCount = 0;
+    private long max = 0;
+
+    /**
+     * Record a value.
+     *
+     * @param value the value, negative values are recorded as 0
+     */
+    public void record(final long value) {
+        long v = Math.max(0, value);
+
+        counts[bucketOf(v)]++;
+        totalCount++;
+        if (v > max) {
+            max = v;
+        }
+    }
+
+    /**
+     * Add all the values recorded by another histogram to this one.
+     *
+     * @param other the other histogram
+     */
+    public void add(final LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Get the number of recorded values.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * Get the largest recorded value.
+     *
+     * @return the maximum, or 0 if nothing was recorded
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Get the value below which @percentile percent of the recorded values fall.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the value, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(percentile / 100.0 * totalCount);
+        rank = Math.max(1, Math.min(totalCount, rank));
+
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, highestValueOf(i));
+            }
+        }
+        return max;
+    }
+
+    private static int bucketOf(final long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long highestValueOf(final int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = SUB_BUCKETS + bucket % SUB_BUCKETS;
+        long highest = ((mantissa + 1) << shift) - 1;
+
+        /* The topmost bucket ends past Long.MAX_VALUE */
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+}
@@ -0,0 +1,194 @@
+package dataStructures.classes;
+
+import java.util.List;
+
+/**
+ * The TimerWheel is a hierarchical timing wheel that tracks a deadline per key. Scheduling,
+ * rescheduling and cancelling a timer take O(1) time, and advancing the wheel only visits the
+ * buckets whose time span has passed. Each level has 64 buckets; a bucket of a level spans a
+ * whole turn of the level below, from 1 ms on the first level to about 4.6 hours on the last one.
+ * Timers due further than the last level can hold are parked there and rescheduled once reached.
+ *
+ * @param <K> the key type
+ */
+public class TimerWheel<K> {
+
+    private static final int BUCKET_BITS = 6;
+    private static final int BUCKETS = 1 << BUCKET_BITS;
+    private static final int LEVELS = 5;
+
+    private final Timer<K>[][] wheel;
+    private long time;
+
+    /**
+     * Create an empty wheel.
+     *
+     * @param currentTime the current time, in milliseconds
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(final long currentTime) {
+        wheel = (Timer<K>[][]) new Timer<?>[LEVELS][BUCKETS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                Timer<K> sentinel = new Timer<>(null);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                wheel[level][bucket] = sentinel;
+            }
+        }
+        time = currentTime;
+    }
+
+    /**
+     * Create a timer for a key and schedule it.
+     *
+     * @param key      the key
+     * @param deadline the time the timer is due, in milliseconds; Long.MAX_VALUE never expires
+     * @return the timer
+     */
+    public Timer<K> schedule(final K key, final long deadline) {
+        Timer<K> timer = new Timer<>(key);
+
+        reschedule(timer, deadline);
+        return timer;
+    }
+
+    /**
+     * Move a timer to a new deadline.
+     *
+     * @param timer    the timer
+     * @param deadline the time the timer is due, in milliseconds; Long.MAX_VALUE never expires
+     */
+    public void reschedule(final Timer<K> timer, final long deadline) {
+        cancel(timer);
+        timer.deadline = deadline;
+        if (deadline != Long.MAX_VALUE) {
+            link(timer);
+        }
+    }
+
+    /**
+     * Remove a timer from the wheel. Cancelling a timer that is not scheduled does nothing.
+     *
+     * @param timer the timer
+     */
+    public void cancel(final Timer<K> timer) {
+        if (timer.next != null) {
+            timer.prev.next = timer.next;
+            timer.next.prev = timer.prev;
+            timer.prev = null;
+            timer.next = null;
+        }
+    }
+
+    /**
+     * Advance the wheel to the current time, collecting the keys of the timers that are due. The
+     * due timers are no longer scheduled.
+     *
+     * @param currentTime the current time, in milliseconds
+     * @param expired     the list the keys of the due timers are added to
+     */
+    public void advance(final long currentTime, final List<K> expired) {
+        long previousTime = time;
+        if (currentTime <= previousTime) {
+            return;
+        }
+        time = currentTime;
+
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = BUCKET_BITS * level;
+            long previousTicks = previousTime >>> shift;
+            long delta = (currentTime >>> shift) - previousTicks;
+            if (delta <= 0) {
+                break;
+            }
+
+            int steps = (int) Math.min(delta + 1, BUCKETS);
+            for (int step = 0; step < steps; step++) {
+                expire(wheel[level][(int) ((previousTicks + step) & (BUCKETS - 1))], expired);
+            }
+        }
+    }
+
+    /**
+     * Cancel every timer.
+     */
+    public void clear() {
+        for (Timer<K>[] level : wheel) {
+            for (Timer<K> sentinel : level) {
+                while (sentinel.next != sentinel) {
+                    cancel(sentinel.next);
+                }
+            }
+        }
+    }
+
+    private void expire(final Timer<K> sentinel, final List<K> expired) {
+        Timer<K> timer = sentinel.next;
+
+        sentinel.prev = sentinel;
+        sentinel.next = sentinel;
+        while (timer != sentinel) {
+            Timer<K> next = timer.next;
+
+            timer.prev = null;
+            timer.next = null;
+            if (timer.deadline <= time) {
+                expired.add(timer.key);
+            } else {
+                link(timer);
+            }
+            timer = next;
+        }
+    }
+
+    private void link(final Timer<K> timer) {
+        long duration = timer.deadline - time;
+        int level = 0;
+
+        while (level < LEVELS - 1 && duration >= 1L << (BUCKET_BITS * (level + 1))) {
+            level++;
+        }
+
+        long due = Math.max(timer.deadline, time);
+        Timer<K> sentinel = wheel[level][(int) ((due >>> (BUCKET_BITS * level)) & (BUCKETS - 1))];
+
+        timer.prev = sentinel.prev;
+        timer.next = sentinel;
+        sentinel.prev.next = timer;
+        sentinel.prev = timer;
+    }
+
+    /**
+     * The deadline of a key, as scheduled in a TimerWheel.
+     *
+     * @param <K> the key type
+     */
+    public static final class Timer<K> {
+        private final K key;
+        private long deadline = Long.MAX_VALUE;
+        private Timer<K> prev, next;
+
+        private Timer(final K key) {
+            this.key = key;
+        }
+
+        /**
+         * Get the key of the timer.
+         *
+         * @return the key
+         */
+        public K getKey() {
+            return key;
+        }
+
+        /**
+         * Get the time the timer is due.
+         *
+         * @return the deadline, in milliseconds, or Long.MAX_VALUE if it never expires
+         */
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+}
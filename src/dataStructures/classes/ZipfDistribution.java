@@ -0,0 +1,72 @@
+package dataStructures.classes;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The ZipfDistribution draws ranks between 0 and @items - 1, where the probability of rank r is
+ * proportional to 1 / (r + 1)^skew. A skew of 0 gives a uniform distribution. The cumulative
+ * probabilities are computed once, so each draw is a binary search.
+ */
+public class ZipfDistribution {
+
+    private final double[] cumulative;
+    private final Random random;
+
+    /**
+     * Create a distribution.
+     *
+     * @param items the number of ranks
+     * @param skew  the exponent, 0 or greater
+     * @param seed  the seed of the random generator
+     */
+    public ZipfDistribution(final int items, final double skew, final long seed) {
+        if (items < 1) {
+            throw new IllegalArgumentException("Invalid number of items: " + items);
+        }
+        if (skew < 0) {
+            throw new IllegalArgumentException("Invalid skew: " + skew);
+        }
+
+        cumulative = new double[items];
+        double sum = 0;
+        for (int i = 0; i < items; i++) {
+            sum += 1.0 / Math.pow(i + 1, skew);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < items; i++) {
+            cumulative[i] /= sum;
+        }
+
+        random = new Random(seed);
+    }
+
+    /**
+     * Draw the next rank.
+     *
+     * @return a rank between 0 and the number of items - 1
+     */
+    public int next() {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return Math.min(index, cumulative.length - 1);
+    }
+
+    /**
+     * Draw several ranks at once.
+     *
+     * @param count the number of ranks
+     * @return the ranks
+     */
+    public int[] next(final int count) {
+        int[] ranks = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            ranks[i] = next();
+        }
+        return ranks;
+    }
+}
@@ -0,0 +1,28 @@
+package metrics.classes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for an entry removed by the stale policy of a cache.
+ */
+@Name("cachingSystem.CacheEviction")
+@Label("Cache Eviction")
+@Category("File Cache")
+@Description("Entry removed by the stale policy of a cache")
+@StackTrace(false)
+public class CacheEvictionEvent extends jdk.jfr.Event {
+
+    @Label("Key")
+    public String key;
+
+    @Label("Cause")
+    public String cause;
+
+    @Label("Weight")
+    @Description("Weight of the entry, as computed by the weigher of the cache")
+    public long weight;
+}
@@ -0,0 +1,26 @@
+package metrics.classes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a pass of a time-based cache over its expired entries. Passes that
+ * expire nothing are not recorded.
+ */
+@Name("cachingSystem.CacheExpirySweep")
+@Label("Cache Expiry Sweep")
+@Category("File Cache")
+@Description("Removal of the expired entries of a cache")
+@StackTrace(false)
+public class CacheExpirySweepEvent extends jdk.jfr.Event {
+
+    @Label("Expired Entries")
+    public long entries;
+
+    @Label("Weight")
+    @Description("Total weight of the expired entries")
+    public long weight;
+}
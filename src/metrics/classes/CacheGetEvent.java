@@ -0,0 +1,30 @@
+package metrics.classes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a FileCache lookup. The duration of a miss includes the load of the
+ * file. Disabled by default, as lookups are frequent.
+ */
+@Name("cachingSystem.CacheGet")
+@Label("Cache Get")
+@Category("File Cache")
+@Description("Lookup of a file in a FileCache")
+@Enabled(false)
+@StackTrace(false)
+public class CacheGetEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Hit")
+    public boolean hit;
+
+    @Label("Characters")
+    public long characters;
+}
@@ -0,0 +1,185 @@
+package metrics.classes;
+
+import cachingSystem.FileCache;
+import metrics.interfaces.CacheMetricsMBean;
+import observerPattern.interfaces.CacheListener;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * The CacheMetrics collects the metrics of a FileCache, to be read over JMX or by the
+ * PrometheusExporter. Hits and misses are counted once per requested file, by a request listener,
+ * and puts by a listener of the cache. The other metrics are counters the cache maintains itself.
+ * Reading a metric never walks the cache nor waits for its lock, so a scrape is not held up by a
+ * file being read from disk.
+ */
+public class CacheMetrics implements CacheMetricsMBean {
+
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final String name;
+    private final FileCache cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private ObjectName objectName;
+
+    /**
+     * Create the metrics of a cache and subscribe them to it.
+     *
+     * @param name  the name of the cache, used to tell caches apart
+     * @param cache the cache
+     */
+    public CacheMetrics(final String name, final FileCache cache) {
+        this.name = name;
+        this.cache = cache;
+
+        cache.addRequestListener(new CacheListener<String, String>() {
+            @Override
+            public void onHit(final String key) {
+                hits.increment();
+            }
+
+            @Override
+            public void onMiss(final String key) {
+                misses.increment();
+            }
+
+            @Override
+            public void onPut(final String key, final String value) {
+            }
+        });
+        cache.addListener(new CacheListener<String, String>() {
+            @Override
+            public void onHit(final String key) {
+            }
+
+            @Override
+            public void onMiss(final String key) {
+            }
+
+            @Override
+            public void onPut(final String key, final String value) {
+                puts.increment();
+            }
+        });
+    }
+
+    /**
+     * Register the metrics with the platform MBean server, as
+     * cachingSystem:type=FileCache,name=@name.
+     */
+    public synchronized void registerMBean() {
+        try {
+            objectName = new ObjectName("cachingSystem:type=FileCache,name="
+                    + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new StandardMBean(this, CacheMetricsMBean.class), objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register the metrics of " + name, e);
+        }
+    }
+
+    /**
+     * Remove the metrics from the platform MBean server.
+     */
+    public synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not unregister the metrics of " + name, e);
+        }
+        objectName = null;
+    }
+
+    /**
+     * Get the name of the cache.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getSize() {
+        return cache.size();
+    }
+
+    @Override
+    public long getWeight() {
+        return cache.getWeight();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getPuts() {
+        return puts.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public long getEvictions() {
+        return cache.getEvictionCount();
+    }
+
+    @Override
+    public long getExpirations() {
+        return cache.getExpirationCount();
+    }
+
+    @Override
+    public long getLoads() {
+        return cache.getLoadCount();
+    }
+
+    @Override
+    public long getLoadFailures() {
+        return cache.getLoadFailureCount();
+    }
+
+    @Override
+    public double getAverageLoadMillis() {
+        long count = cache.getLoadCount() + cache.getLoadFailureCount();
+
+        return count == 0 ? 0 : cache.getTotalLoadNanos() / NANOS_PER_MILLI / count;
+    }
+
+    @Override
+    public int getListeners() {
+        return cache.getListenerCount();
+    }
+
+    /**
+     * Get the total time spent reading files from disk.
+     *
+     * @return the time, in nanoseconds
+     */
+    public long getTotalLoadNanos() {
+        return cache.getTotalLoadNanos();
+    }
+}
@@ -0,0 +1,31 @@
+package metrics.classes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a file loaded by a FileCache, from disk or from the shared tier.
+ */
+@Name("cachingSystem.FileLoad")
+@Label("File Load")
+@Category("File Cache")
+@Description("File read by a FileCache after a miss")
+@StackTrace(false)
+public class FileLoadEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Source")
+    @Description("disk, shared, or dirty for a file waiting for write-behind")
+    public String source;
+
+    @Label("Success")
+    public boolean success;
+
+    @Label("Characters")
+    public long characters;
+}
@@ -0,0 +1,174 @@
+package metrics.classes;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The PrometheusExporter serves the metrics of one or more caches at /metrics, in the Prometheus
+ * text exposition format. Each sample is labelled with the name of its cache.
+ */
+public class PrometheusExporter {
+
+    private static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String PREFIX = "filecache_";
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_BAD_METHOD = 405;
+
+    private final HttpServer server;
+    private final List<CacheMetrics> caches = new CopyOnWriteArrayList<>();
+
+    /**
+     * Create an exporter bound to an address. The exporter serves nothing until started.
+     *
+     * @param address the address to listen on
+     * @throws IOException if the address cannot be bound
+     */
+    public PrometheusExporter(final InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, 0);
+        server.createContext(PATH, new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+    }
+
+    /**
+     * Add the metrics of a cache to the exported ones.
+     *
+     * @param metrics the metrics
+     */
+    public void addCache(final CacheMetrics metrics) {
+        caches.add(metrics);
+    }
+
+    /**
+     * Get the port the exporter listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Start serving on a background thread.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop serving.
+     */
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * Render the metrics of all the caches.
+     *
+     * @return the metrics, in the Prometheus text format
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder();
+
+        header(sb, "size", "gauge", "Number of cached files.");
+        for (CacheMetrics metrics : caches) {
+            sample(sb, "size", metrics, metrics.getSize());
+        }
+        header(sb, "weight", "gauge", "Total length of the cached contents, in characters.");
+        for (CacheMetrics metrics : caches) {
+            sample(sb, "weight", metrics, metrics.getWeight());
+        }
+        header(sb, "hits_total", "counter", "Lookups that found the file cached.");
+        for (CacheMetrics metrics : caches) {
+            sample(sb, "hits_total", metrics, metrics.getHits());
+        }
+        header(sb, "misses_total", "counter", "Lookups that had to load the file.");
+        for (CacheMetrics metrics : caches) {
+            sample(sb, "misses_total", metrics, metrics.getMisses());
+        }
+        header(sb, "puts_total", "counter", "Puts reported by the cache.");
+        for (CacheMetrics metrics : caches) {
+            sample(sb, "puts_total", metrics, metrics.getPuts());
+        }
+        header(sb, "evictions_total", "counter", "Files evicted to respect the capacity.");
+        for (CacheMetrics metrics : caches) {
+            sample(sb, "evictions_total", metrics, metrics.getEvictions());
+        }
+        header(sb, "expirations_total", "counter", "Files removed because they expired.");
+        for (CacheMetrics metrics : caches) {
+            sample(sb, "expirations_total", metrics, metrics.getExpirations());
+        }
+        header(sb, "load_failures_total", "counter", "Files that could not be read from disk.");
+        for (CacheMetrics metrics : caches) {
+            sample(sb, "load_failures_total", metrics, metrics.getLoadFailures());
+        }
+        header(sb, "load_seconds", "summary", "Time spent reading files from disk.");
+        for (CacheMetrics metrics : caches) {
+            sample(sb, "load_seconds_count", metrics,
+                    metrics.getLoads() + metrics.getLoadFailures());
+            sample(sb, "load_seconds_sum", metrics,
+                    metrics.getTotalLoadNanos() / NANOS_PER_SECOND);
+        }
+        header(sb, "listeners", "gauge", "Listeners subscribed to the cache.");
+        for (CacheMetrics metrics : caches) {
+            sample(sb, "listeners", metrics, metrics.getListeners());
+        }
+
+        return sb.toString();
+    }
+
+    private void serve(final HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(HTTP_BAD_METHOD, -1);
+                return;
+            }
+
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(HTTP_OK, body.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void header(final StringBuilder sb, final String name, final String type,
+                               final String help) {
+        sb.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(final StringBuilder sb, final String name,
+                               final CacheMetrics metrics, final double value) {
+        sb.append(PREFIX).append(name).append("{cache=\"").append(escape(metrics.getName()))
+                .append("\"} ");
+
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            sb.append((long) value);
+        } else {
+            sb.append(value);
+        }
+        sb.append('\n');
+    }
+
+    private static String escape(final String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,67 @@
+package metrics.interfaces;
+
+/**
+ * The CacheMetricsMBean interface defines the attributes a FileCache exposes over JMX.
+ */
+public interface CacheMetricsMBean {
+
+    /**
+     * @return the number of cached files
+     */
+    int getSize();
+
+    /**
+     * @return the total length of the cached contents, in characters
+     */
+    long getWeight();
+
+    /**
+     * @return the number of lookups that found the file cached
+     */
+    long getHits();
+
+    /**
+     * @return the number of lookups that had to load the file
+     */
+    long getMisses();
+
+    /**
+     * @return the number of puts reported by the cache
+     */
+    long getPuts();
+
+    /**
+     * @return the fraction of the lookups (hits and misses) that hit
+     */
+    double getHitRatio();
+
+    /**
+     * @return the number of files evicted to respect the capacity
+     */
+    long getEvictions();
+
+    /**
+     * @return the number of files removed because they expired
+     */
+    long getExpirations();
+
+    /**
+     * @return the number of files read from disk
+     */
+    long getLoads();
+
+    /**
+     * @return the number of files that could not be read from disk
+     */
+    long getLoadFailures();
+
+    /**
+     * @return the average time spent reading a file from disk, in milliseconds
+     */
+    double getAverageLoadMillis();
+
+    /**
+     * @return the number of listeners subscribed to the cache
+     */
+    int getListeners();
+}
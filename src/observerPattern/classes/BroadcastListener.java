@@ -21,6 +21,15 @@ public class BroadcastListener<K, V> implements CacheListener<K, V> {
         listeners.add(listener);
     }
 
+    /**
+     * Get the number of listeners in the broadcast list.
+     *
+     * @return the number of listeners
+     */
+    public int getListenerCount() {
+        return listeners.size();
+    }
+
     /**
      * Broadcasts the onHit event to the subscribed listeners.
      *
@@ -56,4 +65,18 @@ public class BroadcastListener<K, V> implements CacheListener<K, V> {
             listener.onPut(key, value);
         }
     }
+
+    /**
+     * Broadcasts the onRemoval event to the subscribed listeners.
+     *
+     * @param key   the key of the removed entry
+     * @param value the removed value
+     * @param cause the reason of the removal
+     */
+    @Override
+    public void onRemoval(final K key, final V value, final RemovalCause cause) {
+        for (CacheListener<K, V> listener : listeners) {
+            listener.onRemoval(key, value, cause);
+        }
+    }
 }
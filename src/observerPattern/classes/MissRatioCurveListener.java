@@ -0,0 +1,291 @@
+package observerPattern.classes;
+
+import dataStructures.classes.Hashing;
+import observerPattern.interfaces.CacheListener;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * The MissRatioCurveListener estimates the hit ratio that the observed cache would have at any
+ * capacity, from the stream of gets it reports. It uses fixed-size SHARDS sampling: a key is
+ * tracked only if its hash falls below a threshold, and the threshold is lowered whenever more
+ * than @maxSampledKeys keys would be tracked. The reuse distance of each tracked access (the
+ * number of distinct tracked keys accessed since the previous access of the same key) is counted
+ * with a Fenwick tree over the access times and scaled by the sampling rate.
+ *
+ * Untracked keys cost one hash and one comparison; tracked keys cost O(log @maxSampledKeys). The
+ * memory used is fixed by @maxSampledKeys and the number of histogram buckets.
+ *
+ * Hits and misses are the accesses; puts are ignored. Each hit or miss must stand for one request,
+ * so on a FileCache the estimator is added with addRequestListener: the events of addListener
+ * also include the lookup that returns a file just loaded on a miss.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class MissRatioCurveListener<K, V> implements CacheListener<K, V> {
+
+    private static final int HASH_BITS = 24;
+    private static final int HASH_MODULUS = 1 << HASH_BITS;
+    private static final int TIME_SLACK = 2;
+
+    private final int maxSampledKeys;
+    private final int bucketWidth;
+    private final long[] histogram;
+
+    /* A key is tracked if its hash is below the threshold; the sampling rate is the ratio */
+    private int threshold = HASH_MODULUS;
+    private final HashMap<K, Sample<K>> samples = new HashMap<>();
+    private final PriorityQueue<Sample<K>> samplesByHash;
+
+    private final long[] fenwick;
+    private final Sample<K>[] slotOwners;
+    private int now = 0;
+
+    private long references = 0;
+    private long sampledReferences = 0;
+    private double expectedSampledReferences = 0;
+
+    /**
+     * Create an estimator.
+     *
+     * @param maxSampledKeys the maximum number of tracked keys
+     * @param maxCapacity    the largest capacity for which the hit ratio is estimated
+     * @param buckets        the number of histogram buckets between 0 and @maxCapacity
+     */
+    @SuppressWarnings("unchecked")
+    public MissRatioCurveListener(final int maxSampledKeys, final int maxCapacity,
+                                  final int buckets) {
+        if (maxSampledKeys < 1 || maxCapacity < 1 || buckets < 1) {
+            throw new IllegalArgumentException("Invalid estimator size");
+        }
+
+        this.maxSampledKeys = maxSampledKeys;
+        this.bucketWidth = (maxCapacity + buckets - 1) / buckets;
+        this.histogram = new long[buckets];
+
+        this.samplesByHash = new PriorityQueue<>(maxSampledKeys + 1, new LargestHashFirst());
+        this.fenwick = new long[maxSampledKeys * TIME_SLACK + 1];
+        this.slotOwners = (Sample<K>[]) new Sample<?>[maxSampledKeys * TIME_SLACK];
+    }
+
+    /**
+     * Counts the access to @key.
+     *
+     * @param key the key
+     */
+    @Override
+    public synchronized void onHit(final K key) {
+        access(key);
+    }
+
+    /**
+     * Counts the access to @key.
+     *
+     * @param key the key
+     */
+    @Override
+    public synchronized void onMiss(final K key) {
+        access(key);
+    }
+
+    /**
+     * Puts are not accesses.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    @Override
+    public void onPut(final K key, final V value) {
+    }
+
+    /**
+     * Estimate the hit ratio of a cache that holds @capacity entries.
+     *
+     * @param capacity the capacity
+     * @return the hit ratio, between 0 and 1
+     */
+    public synchronized double getHitRatio(final int capacity) {
+        if (sampledReferences == 0 || capacity <= 0) {
+            return 0;
+        }
+
+        /* SHARDS_adj: credit the difference between expected and actual samples to distance 0 */
+        double hits = expectedSampledReferences - sampledReferences;
+        int fullBuckets = Math.min(capacity / bucketWidth, histogram.length);
+
+        for (int i = 0; i < fullBuckets; i++) {
+            hits += histogram[i];
+        }
+        if (fullBuckets < histogram.length) {
+            hits += histogram[fullBuckets] * (double) (capacity % bucketWidth) / bucketWidth;
+        }
+
+        double ratio = hits / expectedSampledReferences;
+        return Math.max(0, Math.min(1, ratio));
+    }
+
+    /**
+     * Estimate the miss ratio of a cache that holds @capacity entries.
+     *
+     * @param capacity the capacity
+     * @return the miss ratio, between 0 and 1
+     */
+    public double getMissRatio(final int capacity) {
+        return 1 - getHitRatio(capacity);
+    }
+
+    /**
+     * Get the number of accesses observed.
+     *
+     * @return the number of accesses
+     */
+    public synchronized long getReferences() {
+        return references;
+    }
+
+    /**
+     * Get the current sampling rate.
+     *
+     * @return the fraction of keys that are tracked
+     */
+    public synchronized double getSamplingRate() {
+        return (double) threshold / HASH_MODULUS;
+    }
+
+    /**
+     * Forget the accesses observed so far, so that the estimates only reflect the accesses that
+     * follow. The tracked keys and the sampling rate are kept.
+     */
+    public synchronized void reset() {
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = 0;
+        }
+        references = 0;
+        sampledReferences = 0;
+        expectedSampledReferences = 0;
+    }
+
+    private void access(final K key) {
+        references++;
+
+        int hash = hash(key);
+        double rate = (double) threshold / HASH_MODULUS;
+        expectedSampledReferences += rate;
+
+        if (hash >= threshold) {
+            return;
+        }
+        sampledReferences++;
+
+        if (now == slotOwners.length) {
+            compact();
+        }
+
+        Sample<K> sample = samples.get(key);
+        if (sample == null) {
+            sample = new Sample<>(key, hash);
+            samples.put(key, sample);
+            samplesByHash.add(sample);
+        } else {
+            long distance = count(now - 1) - count(sample.slot);
+            long bucket = (long) (distance / rate) / bucketWidth;
+
+            /* Longer distances miss at every capacity that is estimated */
+            if (bucket < histogram.length) {
+                histogram[(int) bucket]++;
+            }
+
+            update(sample.slot, -1);
+            slotOwners[sample.slot] = null;
+        }
+
+        sample.slot = now;
+        slotOwners[now] = sample;
+        update(now, 1);
+        now++;
+
+        while (samples.size() > maxSampledKeys) {
+            lowerThreshold();
+        }
+    }
+
+    /* Stop tracking the keys with the largest hash */
+    private void lowerThreshold() {
+        Sample<K> evicted = samplesByHash.poll();
+        threshold = evicted.hash;
+
+        removeSample(evicted);
+        while (!samplesByHash.isEmpty() && samplesByHash.peek().hash >= threshold) {
+            removeSample(samplesByHash.poll());
+        }
+    }
+
+    private void removeSample(final Sample<K> sample) {
+        samples.remove(sample.key);
+        update(sample.slot, -1);
+        slotOwners[sample.slot] = null;
+    }
+
+    /* Renumber the access times of the tracked keys so that they start at 0 again */
+    private void compact() {
+        int next = 0;
+
+        for (int slot = 0; slot < slotOwners.length; slot++) {
+            Sample<K> sample = slotOwners[slot];
+            if (sample != null) {
+                slotOwners[slot] = null;
+                slotOwners[next] = sample;
+                sample.slot = next;
+                next++;
+            }
+        }
+
+        for (int i = 0; i < fenwick.length; i++) {
+            fenwick[i] = 0;
+        }
+        for (int slot = 0; slot < next; slot++) {
+            update(slot, 1);
+        }
+        now = next;
+    }
+
+    private void update(final int slot, final long delta) {
+        for (int i = slot + 1; i < fenwick.length; i += i & -i) {
+            fenwick[i] += delta;
+        }
+    }
+
+    /* The number of tracked keys whose last access is at or before @slot */
+    private long count(final int slot) {
+        long sum = 0;
+
+        for (int i = slot + 1; i > 0; i -= i & -i) {
+            sum += fenwick[i];
+        }
+        return sum;
+    }
+
+    private static int hash(final Object key) {
+        return Hashing.mix(key.hashCode()) & (HASH_MODULUS - 1);
+    }
+
+    private class LargestHashFirst implements Comparator<Sample<K>> {
+        public int compare(final Sample<K> o1, final Sample<K> o2) {
+            return Integer.compare(o2.hash, o1.hash);
+        }
+    }
+
+    private static final class Sample<K> {
+        private final K key;
+        private final int hash;
+        private int slot;
+
+        Sample(final K key, final int hash) {
+            this.key = key;
+            this.hash = hash;
+        }
+    }
+}
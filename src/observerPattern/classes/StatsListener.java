@@ -2,17 +2,23 @@ package observerPattern.classes;
 
 import observerPattern.interfaces.CacheListener;
 
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * The StatsListener collects hit / miss / update stats for a cache.
  *
+ * The counters are LongAdders, so the listener takes no lock and can be shared by caches used from
+ * several threads. The counts of recent seconds and the decayed rates are kept by
+ * WindowedStatsListener.
+ *
  * @param <K>
  * @param <V>
  */
 public class StatsListener<K, V> implements CacheListener<K, V> {
 
-    private int hits = 0;
-    private int misses = 0;
-    private int puts = 0;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
 
     /**
      * Increments the total hits counter for the cache.
@@ -21,7 +27,7 @@ public class StatsListener<K, V> implements CacheListener<K, V> {
      */
     @Override
     public void onHit(final K key) {
-        hits++;
+        hits.increment();
     }
 
     /**
@@ -31,7 +37,7 @@ public class StatsListener<K, V> implements CacheListener<K, V> {
      */
     @Override
     public void onMiss(final K key) {
-        misses++;
+        misses.increment();
     }
 
     /**
@@ -41,7 +47,7 @@ public class StatsListener<K, V> implements CacheListener<K, V> {
      */
     @Override
     public void onPut(final K key, final V value) {
-        puts++;
+        puts.increment();
     }
 
     /**
@@ -49,8 +55,8 @@ public class StatsListener<K, V> implements CacheListener<K, V> {
      *
      * @return number of hits
      */
-    public int getHits() {
-        return hits;
+    public long getHits() {
+        return hits.sum();
     }
 
     /**
@@ -58,8 +64,8 @@ public class StatsListener<K, V> implements CacheListener<K, V> {
      *
      * @return number of misses
      */
-    public int getMisses() {
-        return misses;
+    public long getMisses() {
+        return misses.sum();
     }
 
     /**
@@ -67,8 +73,7 @@ public class StatsListener<K, V> implements CacheListener<K, V> {
      *
      * @return number of updates
      */
-    public int getUpdates() {
-        return puts;
+    public long getUpdates() {
+        return puts.sum();
     }
-
 }
@@ -0,0 +1,251 @@
+package observerPattern.classes;
+
+/**
+ * The WindowedStatsListener is a StatsListener that also keeps the counts of the last
+ * @windowSeconds seconds and exponentially decayed per-second rates.
+ *
+ * The counts are kept in a ring of per-second buckets, where each bucket holds the totals at the
+ * start of its second. The count over the last N seconds is then the difference between the
+ * current total and one bucket, so queries take the same time for any N. The decayed rates are
+ * updated once per second. Every event reads the clock and takes the listener's lock, which the
+ * plain StatsListener does not. The clock is monotonic, and a listener left idle for longer than
+ * the window only resets the window.
+ *
+ * Each request must report exactly one hit or miss, so on a FileCache the listener is added with
+ * addRequestListener: the events of addListener also include the lookup that returns a file just
+ * loaded on a miss.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class WindowedStatsListener<K, V> extends StatsListener<K, V> {
+
+    private static final int DEFAULT_WINDOW_SECONDS = 900;
+    private static final double DEFAULT_DECAY_SECONDS = 60;
+    private static final long NANOS_PER_SECOND = 1000000000;
+
+    private final int windowSeconds;
+    private final long[] hitsAtSecond;
+    private final long[] missesAtSecond;
+    private final long[] putsAtSecond;
+    private boolean started = false;
+    private long firstSecond;
+    private long currentSecond;
+
+    private final double decay;
+    private double hitRate = 0;
+    private double missRate = 0;
+    private double putRate = 0;
+
+    /**
+     * Create a listener that keeps the counts of the last 15 minutes, and rates decayed over a
+     * minute.
+     */
+    public WindowedStatsListener() {
+        this(DEFAULT_WINDOW_SECONDS, DEFAULT_DECAY_SECONDS);
+    }
+
+    /**
+     * Create a listener.
+     *
+     * @param windowSeconds the longest window that can be queried, in seconds
+     * @param decaySeconds  the time constant of the decayed rates, in seconds
+     */
+    public WindowedStatsListener(final int windowSeconds, final double decaySeconds) {
+        if (windowSeconds < 1 || decaySeconds <= 0) {
+            throw new IllegalArgumentException("Invalid window: " + windowSeconds + " s, decay "
+                    + decaySeconds + " s");
+        }
+
+        this.windowSeconds = windowSeconds;
+        this.hitsAtSecond = new long[windowSeconds];
+        this.missesAtSecond = new long[windowSeconds];
+        this.putsAtSecond = new long[windowSeconds];
+        this.decay = Math.exp(-1 / decaySeconds);
+    }
+
+    @Override
+    public synchronized void onHit(final K key) {
+        advance();
+        super.onHit(key);
+    }
+
+    @Override
+    public synchronized void onMiss(final K key) {
+        advance();
+        super.onMiss(key);
+    }
+
+    @Override
+    public synchronized void onPut(final K key, final V value) {
+        advance();
+        super.onPut(key, value);
+    }
+
+    /**
+     * Get the number of hits in the last @seconds seconds, the current one included.
+     *
+     * @param seconds the length of the window, at most the window given to the constructor
+     * @return number of hits
+     */
+    public synchronized long getHits(final int seconds) {
+        advance();
+        return getHits() - countAtStartOfWindow(hitsAtSecond, seconds);
+    }
+
+    /**
+     * Get the number of misses in the last @seconds seconds, the current one included.
+     *
+     * @param seconds the length of the window, at most the window given to the constructor
+     * @return number of misses
+     */
+    public synchronized long getMisses(final int seconds) {
+        advance();
+        return getMisses() - countAtStartOfWindow(missesAtSecond, seconds);
+    }
+
+    /**
+     * Get the number of updates in the last @seconds seconds, the current one included.
+     *
+     * @param seconds the length of the window, at most the window given to the constructor
+     * @return number of updates
+     */
+    public synchronized long getUpdates(final int seconds) {
+        advance();
+        return getUpdates() - countAtStartOfWindow(putsAtSecond, seconds);
+    }
+
+    /**
+     * Get the number of requests (hits and misses) in the last @seconds seconds, the current one
+     * included.
+     *
+     * @param seconds the length of the window, at most the window given to the constructor
+     * @return number of requests
+     */
+    public synchronized long getRequests(final int seconds) {
+        return getHits(seconds) + getMisses(seconds);
+    }
+
+    /**
+     * Get the fraction of the requests of the last @seconds seconds that did not miss.
+     *
+     * @param seconds the length of the window, at most the window given to the constructor
+     * @return the hit ratio, or 0 if there was no request
+     */
+    public synchronized double getHitRatio(final int seconds) {
+        long requests = getRequests(seconds);
+
+        return requests == 0 ? 0 : (double) (requests - getMisses(seconds)) / requests;
+    }
+
+    /**
+     * Get the exponentially decayed rate of hits, as of the last complete second.
+     *
+     * @return hits per second
+     */
+    public synchronized double getHitRate() {
+        advance();
+        return hitRate;
+    }
+
+    /**
+     * Get the exponentially decayed rate of misses, as of the last complete second.
+     *
+     * @return misses per second
+     */
+    public synchronized double getMissRate() {
+        advance();
+        return missRate;
+    }
+
+    /**
+     * Get the exponentially decayed rate of updates, as of the last complete second.
+     *
+     * @return updates per second
+     */
+    public synchronized double getUpdateRate() {
+        advance();
+        return putRate;
+    }
+
+    /**
+     * Get the hit ratio computed from the decayed rates.
+     *
+     * @return the hit ratio, or 0 if there was no lookup
+     */
+    public synchronized double getDecayedHitRatio() {
+        advance();
+        double lookups = hitRate + missRate;
+
+        return lookups == 0 ? 0 : hitRate / lookups;
+    }
+
+    private long countAtStartOfWindow(final long[] countsAtSecond, final int seconds) {
+        if (seconds < 1 || seconds > windowSeconds) {
+            throw new IllegalArgumentException("Invalid window: " + seconds + " s");
+        }
+
+        long start = currentSecond - seconds + 1;
+        if (start <= firstSecond) {
+            return 0;
+        }
+        return countsAtSecond[bucket(start)];
+    }
+
+    /**
+     * Read the clock. Overridden by tests.
+     *
+     * @return the current time in nanoseconds, from an arbitrary origin
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /* Close the seconds that passed since the last event */
+    private void advance() {
+        long second = Math.floorDiv(nanoTime(), NANOS_PER_SECOND);
+
+        if (!started) {
+            started = true;
+            firstSecond = second;
+            currentSecond = second;
+            saveTotals(second);
+            return;
+        }
+        if (second <= currentSecond) {
+            return;
+        }
+
+        int closed = bucket(currentSecond);
+        hitRate = hitRate * decay + (getHits() - hitsAtSecond[closed]) * (1 - decay);
+        missRate = missRate * decay + (getMisses() - missesAtSecond[closed]) * (1 - decay);
+        putRate = putRate * decay + (getUpdates() - putsAtSecond[closed]) * (1 - decay);
+
+        long elapsed = second - currentSecond;
+        if (elapsed > 1) {
+            double idleDecay = Math.pow(decay, elapsed - 1);
+            hitRate *= idleDecay;
+            missRate *= idleDecay;
+            putRate *= idleDecay;
+        }
+
+        /* Seconds older than the window are never read, however long the listener was idle */
+        long saved = Math.min(elapsed, windowSeconds);
+        for (long s = second - saved + 1; s <= second; s++) {
+            saveTotals(s);
+        }
+        currentSecond = second;
+    }
+
+    private void saveTotals(final long second) {
+        int bucket = bucket(second);
+
+        hitsAtSecond[bucket] = getHits();
+        missesAtSecond[bucket] = getMisses();
+        putsAtSecond[bucket] = getUpdates();
+    }
+
+    private int bucket(final long second) {
+        return (int) Math.floorMod(second, (long) windowSeconds);
+    }
+}
@@ -7,9 +7,35 @@ package observerPattern.interfaces;
  * @param <V>
  */
 public interface CacheListener<K, V> {
+
+    /**
+     * The reason an entry left a cache.
+     */
+    enum RemovalCause {
+        /** The entry was removed with @Cache.remove. */
+        EXPLICIT,
+        /** The entry was evicted to respect the capacity of the cache. */
+        SIZE,
+        /** The entry was removed because it expired. */
+        EXPIRED,
+        /** The value of the entry was overwritten by a put. */
+        REPLACED
+    }
+
     void onHit(K key);
 
     void onMiss(K key);
 
     void onPut(K key, V value);
+
+    /**
+     * Called when an entry leaves the cache, or when its value is replaced. Listeners that do not
+     * care about removals do not have to override it.
+     *
+     * @param key   the key of the entry
+     * @param value the removed (or replaced) value
+     * @param cause the reason of the removal
+     */
+    default void onRemoval(K key, V value, RemovalCause cause) {
+    }
 }
@@ -0,0 +1,142 @@
+package simulation.classes;
+
+import cachingSystem.FileCache;
+import cachingSystem.classes.ObservableCache;
+import observerPattern.classes.StatsListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The HitRatioSimulator replays a key trace through every FileCache.Strategy at several
+ * capacities, without reading any file, and prints the hit ratios next to the optimal (Belady)
+ * one. The strategies run the same cache classes as a FileCache, with the interned key ids as
+ * keys. A get that misses inserts its key, as a FileCache does. Usage:
+ *
+ * HitRatioSimulator trace [capacity,...]   simulate a trace in the Main or the binary format
+ * HitRatioSimulator -convert trace output  write a trace in the binary format
+ */
+public final class HitRatioSimulator {
+
+    private static final String CONVERT_OPTION = "-convert";
+    private static final Object VALUE = new Object();
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final KeyTrace trace;
+    private final Integer[] keys;
+
+    /**
+     * Prepare the simulation of a trace.
+     *
+     * @param trace the trace
+     */
+    public HitRatioSimulator(final KeyTrace trace) {
+        this.trace = trace;
+
+        /* Box every key once, so that the replay does not allocate */
+        keys = new Integer[trace.getKeyCount()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+        }
+    }
+
+    /**
+     * Run the trace through a strategy.
+     *
+     * @param strategy the strategy
+     * @param capacity the capacity of the cache
+     * @return the number of gets that hit
+     */
+    public long simulate(final FileCache.Strategy strategy, final int capacity) {
+        ObservableCache<Integer, Object> cache = FileCache.createDataCache(strategy, capacity);
+        StatsListener<Integer, Object> statsListener = new StatsListener<>();
+        cache.setCacheListener(statsListener);
+
+        for (int i = 0; i < trace.size(); i++) {
+            Integer key = keys[trace.getKey(i)];
+
+            if (trace.isPut(i) || cache.get(key) == null) {
+                cache.put(key, VALUE);
+            }
+        }
+        return statsListener.getHits();
+    }
+
+    public static void main(final String[] args) {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Missing path to trace file.");
+        }
+
+        if (args[0].equals(CONVERT_OPTION)) {
+            if (args.length < 3) {
+                throw new IllegalArgumentException("Missing path to trace or output file.");
+            }
+            KeyTrace.readTrace(args[1]).writeBinary(args[2]);
+            return;
+        }
+
+        KeyTrace trace = KeyTrace.read(args[0]);
+        List<Integer> capacities = args.length > 1
+                ? parseCapacities(args[1]) : defaultCapacities(trace.getKeyCount());
+        long gets = trace.countGets();
+
+        HitRatioSimulator simulator = new HitRatioSimulator(trace);
+        OptimalSimulator optimal = new OptimalSimulator(trace);
+        FileCache.Strategy[] strategies = FileCache.Strategy.values();
+
+        System.out.println("events " + trace.size() + " gets " + gets + " keys "
+                + trace.getKeyCount());
+
+        StringBuilder header = new StringBuilder(String.format("%10s", "capacity"));
+        for (FileCache.Strategy strategy : strategies) {
+            header.append(String.format(" %8s", strategy));
+        }
+        header.append(String.format(" %8s", "OPT"));
+        System.out.println(header);
+
+        long start = System.nanoTime();
+        long events = 0;
+
+        for (int capacity : capacities) {
+            StringBuilder line = new StringBuilder(String.format("%10d", capacity));
+
+            for (FileCache.Strategy strategy : strategies) {
+                line.append(String.format(" %8.4f", ratio(simulator.simulate(strategy, capacity),
+                        gets)));
+                events += trace.size();
+            }
+            line.append(String.format(" %8.4f", ratio(optimal.simulate(capacity), gets)));
+            events += trace.size();
+
+            System.out.println(line);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format("replayed %d events in %.2f s (%.0f events/s)", events,
+                elapsed / NANOS_PER_SECOND, events * NANOS_PER_SECOND / Math.max(elapsed, 1)));
+    }
+
+    private static double ratio(final long hits, final long gets) {
+        return gets == 0 ? 0 : (double) hits / gets;
+    }
+
+    private static List<Integer> parseCapacities(final String list) {
+        List<Integer> capacities = new ArrayList<>();
+
+        for (String capacity : list.split(",")) {
+            capacities.add(Integer.parseInt(capacity.trim()));
+        }
+        return capacities;
+    }
+
+    /* Powers of two up to the number of keys, then the number of keys itself */
+    private static List<Integer> defaultCapacities(final int keyCount) {
+        List<Integer> capacities = new ArrayList<>();
+
+        for (int capacity = 1; capacity < keyCount; capacity *= 2) {
+            capacities.add(capacity);
+        }
+        capacities.add(Math.max(keyCount, 1));
+        return capacities;
+    }
+}
@@ -0,0 +1,211 @@
+package simulation.classes;
+
+import traceReplay.classes.TraceCommand;
+import traceReplay.classes.TraceReader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The KeyTrace is a compact form of a trace that only keeps its get and put commands, with every
+ * key interned to an integer between 0 and the number of distinct keys - 1. Each event is one int:
+ * the key id, with the sign bit set for puts.
+ *
+ * The binary form starts with the MAGIC int, the number of distinct keys and the number of events,
+ * followed by the events, all in big-endian order.
+ */
+public class KeyTrace {
+
+    public static final int MAGIC = 0x4B545243;
+
+    private static final int PUT_FLAG = 1 << 31;
+    private static final int INITIAL_EVENTS = 1024;
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+
+    private int[] events = new int[INITIAL_EVENTS];
+    private int length = 0;
+    private int keyCount = 0;
+
+    /**
+     * Read the get and put commands of a trace in the Main format. The first command of the trace
+     * (the cache description) is skipped.
+     *
+     * @param filePath the path of the trace
+     * @return the key trace
+     */
+    public static KeyTrace readTrace(final String filePath) {
+        KeyTrace trace = new KeyTrace();
+        HashMap<String, Integer> ids = new HashMap<>();
+
+        try (TraceReader reader = new TraceReader(filePath)) {
+            if (!reader.nextCommand()) {
+                return trace;
+            }
+
+            while (reader.nextCommand()) {
+                TraceCommand command = reader.command();
+
+                if (command != TraceCommand.GET && command != TraceCommand.PUT) {
+                    continue;
+                }
+
+                String key = reader.token(1);
+                Integer id = ids.get(key);
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(key, id);
+                }
+                trace.add(id, command == TraceCommand.PUT);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not close the trace: " + filePath, e);
+        }
+
+        trace.keyCount = ids.size();
+        return trace;
+    }
+
+    /**
+     * Read a key trace in the binary form.
+     *
+     * @param filePath the path of the trace
+     * @return the key trace
+     */
+    public static KeyTrace readBinary(final String filePath) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(filePath), IO_BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a binary key trace: " + filePath);
+            }
+
+            KeyTrace trace = new KeyTrace();
+            trace.keyCount = in.readInt();
+
+            long count = in.readLong();
+            if (count > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Trace too long: " + count + " events");
+            }
+
+            trace.events = new int[(int) Math.max(count, 1)];
+            for (int i = 0; i < count; i++) {
+                trace.events[i] = in.readInt();
+            }
+            trace.length = (int) count;
+
+            return trace;
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Truncated binary key trace: " + filePath);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid file path: " + filePath);
+        }
+    }
+
+    /**
+     * Read a key trace, in the binary form if the file starts with MAGIC or in the Main format
+     * otherwise.
+     *
+     * @param filePath the path of the trace
+     * @return the key trace
+     */
+    public static KeyTrace read(final String filePath) {
+        boolean binary;
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(filePath))) {
+            binary = in.readInt() == MAGIC;
+        } catch (EOFException e) {
+            binary = false;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid file path: " + filePath);
+        }
+
+        return binary ? readBinary(filePath) : readTrace(filePath);
+    }
+
+    /**
+     * Write the trace in the binary form.
+     *
+     * @param filePath the path of the output file
+     */
+    public void writeBinary(final String filePath) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(filePath), IO_BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(keyCount);
+            out.writeLong(length);
+            for (int i = 0; i < length; i++) {
+                out.writeInt(events[i]);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not write the trace: " + filePath, e);
+        }
+    }
+
+    /**
+     * Get the number of events.
+     *
+     * @return the number of events
+     */
+    public int size() {
+        return length;
+    }
+
+    /**
+     * Get the number of distinct keys.
+     *
+     * @return the number of keys
+     */
+    public int getKeyCount() {
+        return keyCount;
+    }
+
+    /**
+     * Get the key id of an event.
+     *
+     * @param index the index of the event
+     * @return the key id
+     */
+    public int getKey(final int index) {
+        return events[index] & ~PUT_FLAG;
+    }
+
+    /**
+     * Tell whether an event is a put or a get.
+     *
+     * @param index the index of the event
+     * @return true for a put, false for a get
+     */
+    public boolean isPut(final int index) {
+        return (events[index] & PUT_FLAG) != 0;
+    }
+
+    /**
+     * Count the get events.
+     *
+     * @return the number of gets
+     */
+    public long countGets() {
+        long gets = 0;
+
+        for (int i = 0; i < length; i++) {
+            if (events[i] >= 0) {
+                gets++;
+            }
+        }
+        return gets;
+    }
+
+    private void add(final int key, final boolean put) {
+        if (length == events.length) {
+            events = Arrays.copyOf(events, events.length * 2);
+        }
+        events[length++] = put ? key | PUT_FLAG : key;
+    }
+}
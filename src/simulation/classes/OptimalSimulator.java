@@ -0,0 +1,154 @@
+package simulation.classes;
+
+import java.util.Arrays;
+
+/**
+ * The OptimalSimulator computes the hit ratio of Belady's optimal (OPT) policy on a key trace: on
+ * a miss with a full cache, the entry evicted is the one whose next use is the farthest away. Like
+ * a FileCache, every get that misses and every put inserts its key.
+ *
+ * A first pass over the trace, done once in the constructor, computes the index of the next use
+ * of every event. Each simulation then keeps the cached keys in a max-heap ordered by next use,
+ * where outdated heap entries are skipped lazily.
+ */
+public class OptimalSimulator {
+
+    private static final int NEVER = Integer.MAX_VALUE;
+    private static final long KEY_MASK = 0xFFFFFFFFL;
+    private static final int HEAP_SLACK = 4;
+
+    private final KeyTrace trace;
+    private final int[] nextUse;
+
+    /**
+     * Prepare the simulation of a trace.
+     *
+     * @param trace the trace
+     */
+    public OptimalSimulator(final KeyTrace trace) {
+        this.trace = trace;
+        this.nextUse = new int[trace.size()];
+
+        int[] upcoming = new int[Math.max(trace.getKeyCount(), 1)];
+        Arrays.fill(upcoming, NEVER);
+
+        for (int i = trace.size() - 1; i >= 0; i--) {
+            int key = trace.getKey(i);
+
+            nextUse[i] = upcoming[key];
+            upcoming[key] = i;
+        }
+    }
+
+    /**
+     * Run the trace through an optimal cache.
+     *
+     * @param capacity the maximum number of cached keys
+     * @return the number of gets that hit
+     */
+    public long simulate(final int capacity) {
+        if (capacity < 1) {
+            return 0;
+        }
+
+        /* The next use of each cached key, or -1 if the key is not cached */
+        int[] cachedUntil = new int[Math.max(trace.getKeyCount(), 1)];
+        Arrays.fill(cachedUntil, -1);
+
+        long[] heap = new long[capacity * HEAP_SLACK + 1];
+        int heapSize = 0;
+        int cached = 0;
+        long hits = 0;
+
+        for (int i = 0; i < trace.size(); i++) {
+            int key = trace.getKey(i);
+
+            if (cachedUntil[key] >= 0) {
+                if (!trace.isPut(i)) {
+                    hits++;
+                }
+            } else {
+                if (cached == capacity) {
+                    while (true) {
+                        long top = heap[0];
+                        heapSize = removeTop(heap, heapSize);
+
+                        int victim = (int) (top & KEY_MASK);
+                        if (cachedUntil[victim] == (int) (top >>> Integer.SIZE)) {
+                            cachedUntil[victim] = -1;
+                            break;
+                        }
+                    }
+                    cached--;
+                }
+                cached++;
+            }
+
+            cachedUntil[key] = nextUse[i];
+
+            if (heapSize == heap.length) {
+                heapSize = compact(heap, heapSize, cachedUntil);
+            }
+            heapSize = insert(heap, heapSize, (long) nextUse[i] << Integer.SIZE | key);
+        }
+        return hits;
+    }
+
+    private static int insert(final long[] heap, final int size, final long value) {
+        int position = size;
+
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (heap[parent] >= value) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = value;
+        return size + 1;
+    }
+
+    private static int removeTop(final long[] heap, final int size) {
+        int last = size - 1;
+        long value = heap[last];
+        int position = 0;
+
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= last) {
+                break;
+            }
+            if (child + 1 < last && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (heap[child] <= value) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        if (last > 0) {
+            heap[position] = value;
+        }
+        return last;
+    }
+
+    /* Drop the outdated entries and restore the heap order */
+    private static int compact(final long[] heap, final int size, final int[] cachedUntil) {
+        int kept = 0;
+
+        for (int i = 0; i < size; i++) {
+            int key = (int) (heap[i] & KEY_MASK);
+            if (cachedUntil[key] == (int) (heap[i] >>> Integer.SIZE)) {
+                heap[kept++] = heap[i];
+            }
+        }
+
+        int rebuilt = 0;
+        for (int i = 0; i < kept; i++) {
+            rebuilt = insert(heap, rebuilt, heap[i]);
+        }
+        return rebuilt;
+    }
+}
@@ -0,0 +1,374 @@
+package simulation.classes;
+
+import dataStructures.classes.ZipfDistribution;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * The WorkloadGenerator writes synthetic traces in the format read by Main, together with the
+ * files they access. Each request picks a file from one of several access patterns:
+ *
+ * - a Zipf distribution over the files, whose hot set can shift by a number of files at a regular
+ *   interval of requests;
+ * - scan bursts, which read a run of consecutive files once;
+ * - a loop, which cycles over a fixed run of files.
+ *
+ * A fraction of the requests are puts instead of gets. File sizes follow a log-normal
+ * distribution. The same seed always gives the same trace and files. Usage:
+ *
+ * WorkloadGenerator trace directory [option=value ...]
+ *
+ * with the options requests, files, skew, shiftInterval, shiftSize, scanRate, scanLength,
+ * loopRate, loopLength, writeRatio, sizeMedian, sizeSigma, maxSize, seed, cache and parameter
+ * (see the setters). The trace ends with the total_hits, total_misses and total_updates commands.
+ */
+public final class WorkloadGenerator {
+
+    private static final char[] ALPHABET = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final String FILE_SUFFIX = ".txt";
+
+    private int requests = 100000;
+    private int files = 1000;
+    private double skew = 0.99;
+    private int shiftInterval = 0;
+    private int shiftSize = 0;
+    private double scanRate = 0;
+    private int scanLength = 100;
+    private double loopRate = 0;
+    private int loopLength = 100;
+    private double writeRatio = 0;
+    private int sizeMedian = 100;
+    private double sizeSigma = 0;
+    private int maxSize = 1 << 20;
+    private long seed = 1;
+    private String cacheType = "LRU";
+    private long cacheParameter = 100;
+
+    /**
+     * Set the number of requests of the trace.
+     *
+     * @param count the number of requests
+     * @return this generator
+     */
+    public WorkloadGenerator setRequests(final int count) {
+        requests = checkPositive(count, "requests");
+        return this;
+    }
+
+    /**
+     * Set the number of distinct files.
+     *
+     * @param count the number of files
+     * @return this generator
+     */
+    public WorkloadGenerator setFiles(final int count) {
+        files = checkPositive(count, "files");
+        return this;
+    }
+
+    /**
+     * Set the skew of the Zipf distribution; 0 is uniform.
+     *
+     * @param zipfSkew the skew, 0 or greater
+     * @return this generator
+     */
+    public WorkloadGenerator setSkew(final double zipfSkew) {
+        skew = zipfSkew;
+        return this;
+    }
+
+    /**
+     * Move the hot set of the Zipf distribution by @size files every @interval requests.
+     *
+     * @param interval the number of requests between shifts, 0 to never shift
+     * @param size     the number of files the hot set moves by
+     * @return this generator
+     */
+    public WorkloadGenerator setShift(final int interval, final int size) {
+        shiftInterval = Math.max(0, interval);
+        shiftSize = Math.max(0, size);
+        return this;
+    }
+
+    /**
+     * Start a scan burst of @length consecutive files with probability @rate at each request.
+     *
+     * @param rate   the probability of starting a scan
+     * @param length the number of files a scan reads
+     * @return this generator
+     */
+    public WorkloadGenerator setScans(final double rate, final int length) {
+        scanRate = checkProbability(rate, "scanRate");
+        scanLength = checkPositive(length, "scanLength");
+        return this;
+    }
+
+    /**
+     * Send a fraction of the requests to a loop over @length consecutive files.
+     *
+     * @param rate   the fraction of the requests that follow the loop
+     * @param length the number of files of the loop
+     * @return this generator
+     */
+    public WorkloadGenerator setLoop(final double rate, final int length) {
+        loopRate = checkProbability(rate, "loopRate");
+        loopLength = checkPositive(length, "loopLength");
+        return this;
+    }
+
+    /**
+     * Set the fraction of the requests that are puts.
+     *
+     * @param ratio the fraction of puts
+     * @return this generator
+     */
+    public WorkloadGenerator setWriteRatio(final double ratio) {
+        writeRatio = checkProbability(ratio, "writeRatio");
+        return this;
+    }
+
+    /**
+     * Set the log-normal distribution of the file sizes, in characters.
+     *
+     * @param median the median size
+     * @param sigma  the standard deviation of the log of the size; 0 gives equal sizes
+     * @param max    the largest size
+     * @return this generator
+     */
+    public WorkloadGenerator setSizes(final int median, final double sigma, final int max) {
+        sizeMedian = checkPositive(median, "sizeMedian");
+        sizeSigma = Math.max(0, sigma);
+        maxSize = checkPositive(max, "maxSize");
+        return this;
+    }
+
+    /**
+     * Set the seed of the random generators.
+     *
+     * @param randomSeed the seed
+     * @return this generator
+     */
+    public WorkloadGenerator setSeed(final long randomSeed) {
+        seed = randomSeed;
+        return this;
+    }
+
+    /**
+     * Set the cache the trace configures on its first line.
+     *
+     * @param type      FIFO, LRU or TIME
+     * @param parameter the capacity, or the expiration time in milliseconds
+     * @return this generator
+     */
+    public WorkloadGenerator setCache(final String type, final long parameter) {
+        cacheType = type;
+        cacheParameter = parameter;
+        return this;
+    }
+
+    /**
+     * Write the files accessed by the trace, named 1.txt to @files.txt.
+     *
+     * @param directory the directory of the files, created if needed
+     * @throws IOException if a file cannot be written
+     */
+    public void writeFiles(final Path directory) throws IOException {
+        Random random = new Random(seed);
+
+        Files.createDirectories(directory);
+        for (int file = 1; file <= files; file++) {
+            Files.write(directory.resolve(file + FILE_SUFFIX),
+                    randomContents(random).getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Write the trace.
+     *
+     * @param trace     the path of the trace
+     * @param directory the directory of the files, as it should appear in the trace
+     * @throws IOException if the trace cannot be written
+     */
+    public void writeTrace(final Path trace, final String directory) throws IOException {
+        /* Separate generators, so that changing one pattern does not change the others */
+        Random patterns = new Random(seed);
+        Random contents = new Random(seed + 1);
+        ZipfDistribution zipf = new ZipfDistribution(files, skew, seed + 2);
+
+        int hotOffset = 0;
+        int scanNext = 0;
+        int scanLeft = 0;
+        int loopNext = 0;
+        int loopStart = patterns.nextInt(files);
+
+        try (BufferedWriter out = Files.newBufferedWriter(trace, StandardCharsets.US_ASCII)) {
+            out.write(cacheType + " " + cacheParameter);
+            out.newLine();
+            out.newLine();
+
+            for (int i = 0; i < requests; i++) {
+                if (shiftInterval > 0 && i > 0 && i % shiftInterval == 0) {
+                    hotOffset = (hotOffset + shiftSize) % files;
+                }
+
+                int file;
+                if (scanLeft == 0 && patterns.nextDouble() < scanRate) {
+                    scanNext = patterns.nextInt(files);
+                    scanLeft = scanLength;
+                }
+
+                if (scanLeft > 0) {
+                    file = scanNext;
+                    scanNext = (scanNext + 1) % files;
+                    scanLeft--;
+                } else if (patterns.nextDouble() < loopRate) {
+                    file = (loopStart + loopNext) % files;
+                    loopNext = (loopNext + 1) % loopLength;
+                } else {
+                    file = (zipf.next() + hotOffset) % files;
+                }
+
+                String path = directory + "/" + (file + 1) + FILE_SUFFIX;
+                if (patterns.nextDouble() < writeRatio) {
+                    out.write("put " + path + " " + randomContents(contents));
+                } else {
+                    out.write("get " + path);
+                }
+                out.newLine();
+            }
+
+            out.newLine();
+            out.write("total_hits");
+            out.newLine();
+            out.write("total_misses");
+            out.newLine();
+            out.write("total_updates");
+            out.newLine();
+        }
+    }
+
+    private String randomContents(final Random random) {
+        double size = sizeMedian * Math.exp(sizeSigma * random.nextGaussian());
+        char[] contents = new char[(int) Math.max(1, Math.min(maxSize, Math.round(size)))];
+
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return new String(contents);
+    }
+
+    private static int checkPositive(final int value, final String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+        return value;
+    }
+
+    private static double checkProbability(final double value, final String name) {
+        if (value < 0 || value > 1) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+        return value;
+    }
+
+    public static void main(final String[] args) {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Missing path to trace or file directory.");
+        }
+
+        WorkloadGenerator generator = new WorkloadGenerator();
+        int shiftInterval = 0;
+        int shiftSize = 0;
+        double scanRate = 0;
+        int scanLength = generator.scanLength;
+        double loopRate = 0;
+        int loopLength = generator.loopLength;
+        int sizeMedian = generator.sizeMedian;
+        double sizeSigma = 0;
+        int maxSize = generator.maxSize;
+        String cacheType = generator.cacheType;
+        long cacheParameter = generator.cacheParameter;
+
+        for (int i = 2; i < args.length; i++) {
+            int separator = args[i].indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid option: " + args[i]);
+            }
+            String name = args[i].substring(0, separator);
+            String value = args[i].substring(separator + 1);
+
+            switch (name) {
+                case "requests":
+                    generator.setRequests(Integer.parseInt(value));
+                    break;
+                case "files":
+                    generator.setFiles(Integer.parseInt(value));
+                    break;
+                case "skew":
+                    generator.setSkew(Double.parseDouble(value));
+                    break;
+                case "shiftInterval":
+                    shiftInterval = Integer.parseInt(value);
+                    break;
+                case "shiftSize":
+                    shiftSize = Integer.parseInt(value);
+                    break;
+                case "scanRate":
+                    scanRate = Double.parseDouble(value);
+                    break;
+                case "scanLength":
+                    scanLength = Integer.parseInt(value);
+                    break;
+                case "loopRate":
+                    loopRate = Double.parseDouble(value);
+                    break;
+                case "loopLength":
+                    loopLength = Integer.parseInt(value);
+                    break;
+                case "writeRatio":
+                    generator.setWriteRatio(Double.parseDouble(value));
+                    break;
+                case "sizeMedian":
+                    sizeMedian = Integer.parseInt(value);
+                    break;
+                case "sizeSigma":
+                    sizeSigma = Double.parseDouble(value);
+                    break;
+                case "maxSize":
+                    maxSize = Integer.parseInt(value);
+                    break;
+                case "seed":
+                    generator.setSeed(Long.parseLong(value));
+                    break;
+                case "cache":
+                    cacheType = value;
+                    break;
+                case "parameter":
+                    cacheParameter = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + name);
+            }
+        }
+
+        generator.setShift(shiftInterval, shiftSize)
+                .setScans(scanRate, scanLength)
+                .setLoop(loopRate, loopLength)
+                .setSizes(sizeMedian, sizeSigma, maxSize)
+                .setCache(cacheType, cacheParameter);
+
+        try {
+            generator.writeFiles(Paths.get(args[1]));
+            generator.writeTrace(Paths.get(args[0]), args[1]);
+        } catch (IOException excp) {
+            throw new UncheckedIOException(excp);
+        }
+    }
+}
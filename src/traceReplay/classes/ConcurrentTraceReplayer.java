@@ -0,0 +1,266 @@
+package traceReplay.classes;
+
+import cachingSystem.FileCache;
+import dataStructures.classes.LatencyHistogram;
+import observerPattern.classes.StatsListener;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ConcurrentTraceReplayer replays the get / put / delay commands of a trace from several
+ * worker threads against one shared FileCache, and reports the throughput, the latency percentiles
+ * of each operation and the hit ratio. The reporting commands of the trace are ignored.
+ *
+ * The trace is read by the calling thread, which hands the operations to the workers through
+ * bounded queues and executes the delays itself, so the memory used does not depend on the length
+ * of the trace.
+ */
+public class ConcurrentTraceReplayer {
+
+    /**
+     * The way operations are assigned to workers.
+     */
+    public enum Distribution {
+        /* Each operation goes to the next worker */
+        ROUND_ROBIN,
+        /* All the operations on a key go to the same worker */
+        SHARDED,
+    }
+
+    private static final int QUEUE_CAPACITY = 1024;
+    /* How often the dispatcher checks that a worker with a full queue is still running */
+    private static final long HAND_OFF_TIMEOUT_MILLIS = 100;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final double NANOS_PER_MICRO = 1e3;
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private static final Operation STOP = new Operation(null, null, null);
+
+    private final FileCache cache;
+    private final int threads;
+    private final Distribution distribution;
+    private final StatsListener<String, String> statsListener = new StatsListener<>();
+
+    /**
+     * Create a replayer for a shared cache.
+     *
+     * @param cache        the cache
+     * @param threads      the number of worker threads
+     * @param distribution how operations are assigned to workers
+     */
+    public ConcurrentTraceReplayer(final FileCache cache, final int threads,
+                                   final Distribution distribution) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+
+        this.cache = cache;
+        this.threads = threads;
+        this.distribution = distribution;
+
+        cache.addListener(statsListener);
+    }
+
+    /**
+     * Replay the remaining commands of a trace and print a report.
+     *
+     * @param reader the trace
+     * @param out    the stream the report is printed to
+     * @throws InterruptedException if interrupted while replaying
+     */
+    public void replay(final TraceReader reader, final PrintStream out)
+            throws InterruptedException {
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(i);
+            workers.add(worker);
+        }
+
+        long start = System.nanoTime();
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+
+        long gets = 0;
+        int next = 0;
+        boolean completed = false;
+        try {
+            while (reader.nextCommand()) {
+                TraceCommand command = reader.command();
+
+                if (command == TraceCommand.DELAY) {
+                    Thread.sleep(reader.longToken(1));
+                    continue;
+                }
+                if (command != TraceCommand.GET && command != TraceCommand.PUT) {
+                    continue;
+                }
+
+                String key = reader.token(1);
+                String value = command == TraceCommand.PUT ? reader.token(2) : null;
+                int target;
+
+                if (distribution == Distribution.SHARDED) {
+                    target = (key.hashCode() & Integer.MAX_VALUE) % threads;
+                } else {
+                    target = next;
+                    next = (next + 1) % threads;
+                }
+
+                if (command == TraceCommand.GET) {
+                    gets++;
+                }
+                Worker worker = workers.get(target);
+                if (!hand(worker, new Operation(command, key, value))) {
+                    throw new IllegalStateException("Worker " + worker.index + " failed",
+                            worker.failure);
+                }
+            }
+            completed = true;
+        } finally {
+            stop(workers, !completed);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        LatencyHistogram getLatency = new LatencyHistogram();
+        LatencyHistogram putLatency = new LatencyHistogram();
+        for (Worker worker : workers) {
+            if (worker.failure != null) {
+                throw new IllegalStateException("Worker " + worker.index + " failed",
+                        worker.failure);
+            }
+            getLatency.add(worker.getLatency);
+            putLatency.add(worker.putLatency);
+        }
+
+        printReport(out, elapsed, gets, getLatency, putLatency);
+    }
+
+    /* Queue @operation for @worker; return false if the worker has stopped */
+    private static boolean hand(final Worker worker, final Operation operation)
+            throws InterruptedException {
+        while (!worker.queue.offer(operation, HAND_OFF_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (!worker.thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Let the workers finish their queues, or interrupt them if the replay is aborted */
+    private static void stop(final List<Worker> workers, final boolean abort)
+            throws InterruptedException {
+        try {
+            for (Worker worker : workers) {
+                if (abort) {
+                    worker.thread.interrupt();
+                } else {
+                    hand(worker, STOP);
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Worker worker : workers) {
+                worker.thread.interrupt();
+            }
+            throw e;
+        } finally {
+            for (Worker worker : workers) {
+                worker.thread.join();
+            }
+        }
+    }
+
+    private void printReport(final PrintStream out, final long elapsed, final long gets,
+                             final LatencyHistogram getLatency,
+                             final LatencyHistogram putLatency) {
+        long operations = getLatency.getCount() + putLatency.getCount();
+
+        out.println("threads " + threads + " " + distribution);
+        out.println(String.format("operations %d in %.1f ms (%.0f ops/s)", operations,
+                elapsed / NANOS_PER_MILLI, operations * NANOS_PER_SECOND / Math.max(1, elapsed)));
+        printLatency(out, "get", getLatency);
+        printLatency(out, "put", putLatency);
+
+        /* A get that misses reloads the file and hits, so only the misses are counted */
+        double hitRatio = gets == 0 ? 0 : (double) (gets - statsListener.getMisses()) / gets;
+        out.println(String.format("hit_ratio %.4f", hitRatio));
+        out.flush();
+    }
+
+    private static void printLatency(final PrintStream out, final String name,
+                                     final LatencyHistogram histogram) {
+        StringBuilder sb = new StringBuilder(name);
+
+        sb.append(" count=").append(histogram.getCount());
+        for (double percentile : PERCENTILES) {
+            sb.append(String.format(" p%s=%.1fus", formatPercentile(percentile),
+                    histogram.getValueAtPercentile(percentile) / NANOS_PER_MICRO));
+        }
+        sb.append(String.format(" max=%.1fus", histogram.getMax() / NANOS_PER_MICRO));
+
+        out.println(sb);
+    }
+
+    private static String formatPercentile(final double percentile) {
+        if (percentile == Math.rint(percentile)) {
+            return Long.toString((long) percentile);
+        }
+        return Double.toString(percentile);
+    }
+
+    private static final class Operation {
+        private final TraceCommand command;
+        private final String key;
+        private final String value;
+
+        Operation(final TraceCommand command, final String key, final String value) {
+            this.command = command;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final int index;
+        private final Thread thread;
+        private final BlockingQueue<Operation> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final LatencyHistogram getLatency = new LatencyHistogram();
+        private final LatencyHistogram putLatency = new LatencyHistogram();
+        private Throwable failure;
+
+        Worker(final int index) {
+            this.index = index;
+            this.thread = new Thread(this, "TraceReplay-worker-" + index);
+        }
+
+        @Override
+        public void run() {
+            try {
+                Operation operation = queue.take();
+
+                while (operation != STOP) {
+                    long start = System.nanoTime();
+
+                    if (operation.command == TraceCommand.GET) {
+                        cache.getFileContents(operation.key);
+                        getLatency.record(System.nanoTime() - start);
+                    } else {
+                        cache.putFileContents(operation.key, operation.value);
+                        putLatency.record(System.nanoTime() - start);
+                    }
+
+                    operation = queue.take();
+                }
+            } catch (InterruptedException | RuntimeException e) {
+                /* The dispatcher notices that the thread is gone and stops handing operations */
+                failure = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package traceReplay.classes;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The commands that can appear in a trace file, together with a lookup table that maps the raw
+ * bytes of a keyword to its command without building a String.
+ */
+public enum TraceCommand {
+    DELAY("delay"),
+    GET("get"),
+    PUT("put"),
+    TOP_HITS("top_hits"),
+    TOP_MISSES("top_misses"),
+    TOP_UPDATES("top_updates"),
+    KEY_HITS("key_hits"),
+    KEY_MISSES("key_misses"),
+    KEY_UPDATES("key_updates"),
+    TOTAL_HITS("total_hits"),
+    TOTAL_MISSES("total_misses"),
+    TOTAL_UPDATES("total_updates");
+
+    private static final int TABLE_SIZE = 128;
+    private static final TraceCommand[][] BY_FIRST_BYTE = new TraceCommand[TABLE_SIZE][];
+
+    static {
+        for (TraceCommand command : values()) {
+            int first = command.keyword[0];
+            TraceCommand[] bucket = BY_FIRST_BYTE[first];
+
+            if (bucket == null) {
+                bucket = new TraceCommand[] {command};
+            } else {
+                TraceCommand[] grown = new TraceCommand[bucket.length + 1];
+                System.arraycopy(bucket, 0, grown, 0, bucket.length);
+                grown[bucket.length] = command;
+                bucket = grown;
+            }
+            BY_FIRST_BYTE[first] = bucket;
+        }
+    }
+
+    private final byte[] keyword;
+
+    TraceCommand(final String keyword) {
+        this.keyword = keyword.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Find the command whose keyword is stored in @buffer between @offset and @offset + @length.
+     *
+     * @param buffer the bytes of a trace line
+     * @param offset the start of the keyword
+     * @param length the length of the keyword
+     * @return the command, or null if the keyword is unknown
+     */
+    public static TraceCommand lookup(final byte[] buffer, final int offset, final int length) {
+        if (length == 0 || buffer[offset] < 0) {
+            return null;
+        }
+
+        TraceCommand[] bucket = BY_FIRST_BYTE[buffer[offset]];
+        if (bucket == null) {
+            return null;
+        }
+
+        for (TraceCommand command : bucket) {
+            if (command.matches(buffer, offset, length)) {
+                return command;
+            }
+        }
+        return null;
+    }
+
+    private boolean matches(final byte[] buffer, final int offset, final int length) {
+        if (keyword.length != length) {
+            return false;
+        }
+
+        for (int i = 1; i < length; i++) {
+            if (keyword[i] != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,231 @@
+package traceReplay.classes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The TraceReader streams the commands of a trace file. The file is read through a fixed size
+ * buffer and every line is split into tokens in place, so the memory used does not depend on the
+ * length of the trace. Blank lines and comments (lines starting with '#') are skipped.
+ */
+public class TraceReader implements Closeable {
+
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    private static final int INITIAL_LINE_SIZE = 256;
+    private static final int MAX_TOKENS = 8;
+
+    private final FileChannel channel;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private boolean endOfInput = false;
+
+    private byte[] line = new byte[INITIAL_LINE_SIZE];
+    private int lineLength;
+
+    private final int[] tokenStart = new int[MAX_TOKENS];
+    private final int[] tokenEnd = new int[MAX_TOKENS];
+    private int tokenCount;
+
+    /**
+     * Open a trace file for reading.
+     *
+     * @param filePath the path of the trace
+     */
+    public TraceReader(final String filePath) {
+        try {
+            channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid file path: " + filePath);
+        }
+        readBuffer.flip();
+    }
+
+    /**
+     * Advance to the next command of the trace.
+     *
+     * @return true if a command was read, false at the end of the trace
+     */
+    public boolean nextCommand() {
+        while (readLine()) {
+            tokenize();
+
+            if (tokenCount != 0 && line[tokenStart[0]] != '#') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the command named by the first token of the current line.
+     *
+     * @return the command, or null if the keyword is unknown
+     */
+    public TraceCommand command() {
+        return TraceCommand.lookup(line, tokenStart[0], tokenEnd[0] - tokenStart[0]);
+    }
+
+    /**
+     * Get the number of tokens on the current line, the command keyword included.
+     *
+     * @return the number of tokens
+     */
+    public int tokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * Get a token of the current line as a String.
+     *
+     * @param index the index of the token, 0 being the command keyword
+     * @return the token
+     */
+    public String token(final int index) {
+        checkToken(index);
+        return new String(line, tokenStart[index], tokenEnd[index] - tokenStart[index],
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse a token of the current line as a decimal number, without building a String.
+     *
+     * @param index the index of the token
+     * @return the number
+     */
+    public long longToken(final int index) {
+        checkToken(index);
+
+        int position = tokenStart[index];
+        int end = tokenEnd[index];
+        boolean negative = line[position] == '-';
+
+        if (negative || line[position] == '+') {
+            position++;
+        }
+        if (position == end) {
+            throw new NumberFormatException("For input string: \"" + token(index) + "\"");
+        }
+
+        long result = 0;
+        for (; position < end; position++) {
+            int digit = line[position] - '0';
+
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("For input string: \"" + token(index) + "\"");
+            }
+            result = result * 10 + digit;
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Parse a token of the current line as a decimal int.
+     *
+     * @param index the index of the token
+     * @return the number
+     */
+    public int intToken(final int index) {
+        return (int) longToken(index);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void checkToken(final int index) {
+        if (index >= tokenCount) {
+            throw new IllegalArgumentException("Missing argument " + index + " for command: "
+                    + new String(line, 0, lineLength, StandardCharsets.UTF_8));
+        }
+    }
+
+    private boolean readLine() {
+        lineLength = 0;
+
+        while (true) {
+            if (!readBuffer.hasRemaining() && !fillBuffer()) {
+                return lineLength != 0;
+            }
+
+            byte[] buffer = readBuffer.array();
+            int start = readBuffer.position();
+            int end = readBuffer.limit();
+            int position = start;
+
+            while (position < end && buffer[position] != '\n') {
+                position++;
+            }
+
+            appendToLine(buffer, start, position - start);
+
+            if (position < end) {
+                readBuffer.position(position + 1);
+                return true;
+            }
+            readBuffer.position(end);
+        }
+    }
+
+    private boolean fillBuffer() {
+        if (endOfInput) {
+            return false;
+        }
+
+        readBuffer.clear();
+        try {
+            int read;
+            do {
+                read = channel.read(readBuffer);
+            } while (read == 0);
+
+            if (read < 0) {
+                endOfInput = true;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read the trace", e);
+        } finally {
+            readBuffer.flip();
+        }
+        return readBuffer.hasRemaining();
+    }
+
+    private void appendToLine(final byte[] buffer, final int offset, final int length) {
+        if (lineLength + length > line.length) {
+            byte[] grown = new byte[Math.max(line.length * 2, lineLength + length)];
+            System.arraycopy(line, 0, grown, 0, lineLength);
+            line = grown;
+        }
+        System.arraycopy(buffer, offset, line, lineLength, length);
+        lineLength += length;
+    }
+
+    private void tokenize() {
+        tokenCount = 0;
+        int position = 0;
+
+        while (position < lineLength && tokenCount < MAX_TOKENS) {
+            while (position < lineLength && isSeparator(line[position])) {
+                position++;
+            }
+            if (position == lineLength) {
+                break;
+            }
+
+            tokenStart[tokenCount] = position;
+            while (position < lineLength && !isSeparator(line[position])) {
+                position++;
+            }
+            tokenEnd[tokenCount] = position;
+            tokenCount++;
+        }
+    }
+
+    private static boolean isSeparator(final byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+}
@@ -0,0 +1,159 @@
+package traceReplay.classes;
+
+import cachingSystem.FileCache;
+import observerPattern.classes.KeyStatsListener;
+import observerPattern.classes.StatsListener;
+
+import java.io.PrintStream;
+
+/**
+ * The TraceReplayer executes the commands of a trace against a FileCache, collecting the stats
+ * needed by the reporting commands and printing the results to an output stream.
+ */
+public class TraceReplayer {
+
+    private static final String FIFO_CACHE = "FIFO";
+    private static final String LRU_CACHE = "LRU";
+    private static final String TIME_AWARE_CACHE = "TIME";
+
+    private final FileCache cache;
+    private final KeyStatsListener<String, String> keyStatsListener = new KeyStatsListener<>();
+    private final StatsListener<String, String> statsListener = new StatsListener<>();
+
+    /**
+     * Create a replayer for a cache and subscribe its stats listeners to it.
+     *
+     * @param cache the cache
+     */
+    public TraceReplayer(final FileCache cache) {
+        this.cache = cache;
+
+        cache.addListener(keyStatsListener);
+        cache.addListener(statsListener);
+    }
+
+    /**
+     * Create the cache described by the header of a trace (e.g. "LRU 50" or "TIME 10").
+     *
+     * @param reader the trace, positioned before its first command
+     * @return the cache
+     */
+    public static FileCache createFileCache(final TraceReader reader) {
+        if (!reader.nextCommand()) {
+            throw new IllegalArgumentException("Missing cache type in trace.");
+        }
+
+        return createFileCache(reader.token(0), reader.longToken(1));
+    }
+
+    /**
+     * Create a cache from its type and parameter, as found in the header of a trace.
+     *
+     * @param type      FIFO, LRU or TIME
+     * @param parameter the capacity, or the expiration time in milliseconds for TIME
+     * @return the cache
+     */
+    public static FileCache createFileCache(final String type, final long parameter) {
+        switch (type) {
+            case FIFO_CACHE:
+                return FileCache.createCacheWithCapacity(FileCache.Strategy.FIFO, (int) parameter);
+            case LRU_CACHE:
+                return FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, (int) parameter);
+            case TIME_AWARE_CACHE:
+                return FileCache.createCacheWithExpiration(parameter);
+            default:
+                throw new IllegalArgumentException("Unsupported cache type: " + type);
+        }
+    }
+
+    /**
+     * Execute all the remaining commands of a trace.
+     *
+     * @param reader the trace
+     * @param out    the stream the results are printed to
+     * @throws InterruptedException if interrupted during a delay command
+     */
+    public void replay(final TraceReader reader, final PrintStream out)
+            throws InterruptedException {
+        while (reader.nextCommand()) {
+            TraceCommand command = reader.command();
+
+            if (command != null) {
+                execute(command, reader, out);
+            }
+        }
+        out.flush();
+    }
+
+    private void execute(final TraceCommand command, final TraceReader reader,
+                         final PrintStream out) throws InterruptedException {
+        switch (command) {
+            case DELAY:
+                long parameter = reader.longToken(1);
+
+                /* Let the output through before blocking */
+                out.flush();
+                Thread.sleep(parameter);
+
+                break;
+            case GET:
+                out.println(cache.getFileContents(reader.token(1)));
+
+                break;
+            case PUT:
+                cache.putFileContents(reader.token(1), reader.token(2));
+
+                break;
+            case TOP_HITS:
+                /* Avoid sort differences by printing values instead of keys */
+                for (String key : keyStatsListener.getTopHitKeys(reader.intToken(1))) {
+                    out.print(keyStatsListener.getKeyHits(key));
+                    out.print(' ');
+                }
+
+                out.println();
+
+                break;
+            case TOP_MISSES:
+                /* Avoid sort differences by printing values instead of keys */
+                for (String key : keyStatsListener.getTopMissedKeys(reader.intToken(1))) {
+                    out.print(keyStatsListener.getKeyMisses(key));
+                    out.print(' ');
+                }
+
+                out.println();
+
+                break;
+            case TOP_UPDATES:
+                /* Avoid sort differences by printing values instead of keys */
+                for (String key : keyStatsListener.getTopUpdatedKeys(reader.intToken(1))) {
+                    out.print(keyStatsListener.getKeyUpdates(key));
+                    out.print(' ');
+                }
+
+                out.println();
+
+                break;
+            case KEY_HITS:
+                out.println(keyStatsListener.getKeyHits(reader.token(1)));
+                break;
+            case KEY_MISSES:
+                out.println(keyStatsListener.getKeyMisses(reader.token(1)));
+                break;
+            case KEY_UPDATES:
+                out.println(keyStatsListener.getKeyUpdates(reader.token(1)));
+                break;
+            case TOTAL_HITS:
+                out.println(statsListener.getHits());
+                break;
+            case TOTAL_MISSES:
+                out.println(statsListener.getMisses());
+                break;
+            case TOTAL_UPDATES:
+                out.println(statsListener.getUpdates());
+                break;
+            default:
+                break;
+        }
+    }
+}
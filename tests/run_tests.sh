@@ -0,0 +1,41 @@
+#!/bin/bash
+#
+# Runs the tests against their expected output in ref/:
+#
+# - every trace tests/test_<n> is replayed by Main and compared to ref/ref_<n>;
+# - every test driver tests/src/<package>/<Name>Test.java is run and compared to ref/ref_<Name>Test.
+#
+# The classes must be compiled first (mvn test compiles them and runs this script).
+
+cd "$(dirname "$0")/.." || exit 1
+
+CLASSPATH=target/classes:target/test-classes
+failures=0
+
+check() {
+    local name=$1
+    local expected=$2
+    shift 2
+
+    if java -cp "$CLASSPATH" "$@" 2>&1 | diff - "$expected" > /dev/null; then
+        echo "PASS $name"
+    else
+        echo "FAIL $name"
+        failures=$((failures + 1))
+    fi
+}
+
+for trace in tests/test_*; do
+    check "$trace" "ref/ref_${trace#tests/test_}" Main "$trace"
+done
+
+for driver in $(cd tests/src && find . -name '*Test.java' | sort); do
+    class=${driver#./}
+    class=${class%.java}
+    check "$class" "ref/ref_$(basename "$class")" "${class//\//.}"
+done
+
+if [ "$failures" -ne 0 ]; then
+    echo "$failures test(s) failed"
+    exit 1
+fi
@@ -0,0 +1,178 @@
+package cacheServer.classes;
+
+import cachingSystem.FileCache;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Drives a CacheServer over the loopback interface and prints every response, one line per
+ * protocol line. The requests cover hits, misses loaded by the workers, pipelined requests whose
+ * responses must keep their order, sets with and without noreply, keys and deletes, malformed
+ * requests, set data of the wrong length and quit, and a miss that blocks on a named pipe while
+ * another connection is served.
+ */
+public final class CacheServerTest {
+
+    private static final int CAPACITY = 2;
+    private static final int BUFFER_SIZE = 256;
+
+    private CacheServerTest() {
+
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, CAPACITY);
+        CacheServer server = new CacheServer(cache,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), BUFFER_SIZE);
+        Thread serverThread = new Thread(server, "CacheServer");
+        serverThread.start();
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+
+            System.out.println("# a miss is loaded by a worker");
+            request(out, in, "get in_files/1.txt\r\n", 1);
+
+            System.out.println("# pipelined hit, miss and stats keep their order");
+            request(out, in, "get in_files/1.txt\r\nget in_files/2.txt\r\nstats\r\n", 3);
+
+            System.out.println("# unreadable files are left out, duplicate keys answered once");
+            request(out, in, "get in_files/2.txt in_files/missing.txt in_files/2.txt\r\n", 1);
+
+            System.out.println("# set, with and without noreply");
+            request(out, in, "set in_files/3.txt 0 0 5 noreply\r\nfirst\r\n"
+                    + "set in_files/4.txt 0 0 6\r\nsecond\r\n", 1);
+            request(out, in, "get in_files/3.txt in_files/4.txt\r\n", 1);
+
+            System.out.println("# a set split across two packets");
+            out.write("set in_files/5.txt 0 0 5\r\nsp".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            Thread.sleep(50);
+            request(out, in, "lit\r\n", 1);
+
+            System.out.println("# keys and delete");
+            request(out, in, "keys\r\n", 1);
+            request(out, in, "delete in_files/4.txt\r\ndelete in_files/4.txt\r\n"
+                    + "delete in_files/3.txt noreply\r\nkeys\r\n", 3);
+
+            System.out.println("# malformed requests");
+            request(out, in, "incr in_files/1.txt 1\r\n", 1);
+            request(out, in, "delete\r\n", 1);
+            request(out, in, "set in_files/6.txt 0 0 x\r\n", 1);
+            request(out, in, "get\r\n", 1);
+
+            System.out.println("# extra spaces between the words");
+            request(out, in, "get   in_files/5.txt \r\n", 1);
+
+            System.out.println("# quit");
+            out.write("quit\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            System.out.println(in.read() < 0 ? "closed" : "still open");
+        }
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+
+            System.out.println("# set data longer than announced");
+            request(out, in, "set in_files/6.txt 0 0 2\r\nabc\r\nkeys\r\n", 1);
+            System.out.println(in.read() < 0 ? "closed" : "still open");
+        }
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+
+            System.out.println("# a request larger than the buffer");
+            StringBuilder key = new StringBuilder("get ");
+            while (key.length() <= BUFFER_SIZE) {
+                key.append('k');
+            }
+            request(out, in, key.toString(), 1);
+            System.out.println(in.read() < 0 ? "closed" : "still open");
+        }
+
+        /* A read from a named pipe blocks until the pipe is written, like a very slow disk */
+        Path directory = Files.createTempDirectory("cache-server-test");
+        Path pipe = directory.resolve("pipe");
+        new ProcessBuilder("mkfifo", pipe.toString()).inheritIO().start().waitFor();
+
+        try (Socket slow = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+             Socket fast = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            InputStream slowIn = new BufferedInputStream(slow.getInputStream());
+            OutputStream slowOut = slow.getOutputStream();
+
+            System.out.println("# a blocked miss does not stall the hits of other connections");
+            slowOut.write(("get " + pipe + "\r\n").getBytes(StandardCharsets.UTF_8));
+            slowOut.flush();
+            Thread.sleep(50);
+            request(fast.getOutputStream(), new BufferedInputStream(fast.getInputStream()),
+                    "get in_files/5.txt\r\n", 1);
+
+            Files.write(pipe, "unblocked".getBytes(StandardCharsets.UTF_8));
+            System.out.println(readLine(slowIn).replace(pipe.toString(), "<pipe>"));
+            System.out.println(readLine(slowIn));
+            System.out.println(readLine(slowIn));
+        } finally {
+            Files.delete(pipe);
+            Files.delete(directory);
+        }
+
+        server.close();
+        serverThread.join();
+        System.out.println("cached " + cache.size());
+    }
+
+    /* Send @request and print the lines of the next @responses responses */
+    private static void request(final OutputStream out, final InputStream in,
+                                final String request, final int responses) throws IOException {
+        out.write(request.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+
+        int remaining = responses;
+        while (remaining > 0) {
+            String line = readLine(in);
+
+            if (line.startsWith("VALUE ")) {
+                int length = Integer.parseInt(line.substring(line.lastIndexOf(' ') + 1));
+                byte[] data = in.readNBytes(length);
+
+                readLine(in);
+                System.out.println(line);
+                System.out.println(new String(data, StandardCharsets.UTF_8));
+            } else if (line.startsWith("STAT ") || line.startsWith("KEY ")) {
+                System.out.println(line);
+            } else {
+                System.out.println(line);
+                remaining--;
+            }
+        }
+    }
+
+    private static String readLine(final InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b = in.read();
+
+        while (b != '\n') {
+            if (b < 0) {
+                return "<closed>";
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+            b = in.read();
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,94 @@
+package cacheServer.classes;
+
+import cachingSystem.FileCache;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Drives a RemoteCacheNode against a CacheServer over the loopback interface: puts, gets, keys,
+ * deletes and sizes, a response that takes longer than the read timeout, the reconnect on the
+ * next request, and requests after the server or the node are closed.
+ */
+public final class RemoteCacheNodeTest {
+
+    private static final int CAPACITY = 4;
+    private static final int BUFFER_SIZE = 256;
+    private static final int READ_TIMEOUT_MILLIS = 200;
+
+    private RemoteCacheNodeTest() {
+
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, CAPACITY);
+        CacheServer server = new CacheServer(cache,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), BUFFER_SIZE);
+        Thread serverThread = new Thread(server, "CacheServer");
+        serverThread.start();
+
+        RemoteCacheNode node = new RemoteCacheNode("remote",
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()),
+                READ_TIMEOUT_MILLIS);
+
+        System.out.println("# put, get, keys and size");
+        node.putFileContents("a.txt", "first");
+        node.putFileContents("b.txt", "second");
+        System.out.println(node.getFileContents("a.txt"));
+        System.out.println(node.getFileContents("in_files/1.txt") != null);
+        System.out.println(node.getCachedPaths());
+        System.out.println(node.size());
+
+        System.out.println("# remove");
+        System.out.println(node.remove("a.txt"));
+        System.out.println(node.remove("a.txt"));
+        System.out.println(node.getCachedPaths());
+
+        /* A read from a named pipe blocks until the pipe is written, like a very slow disk */
+        Path directory = Files.createTempDirectory("remote-cache-node-test");
+        Path pipe = directory.resolve("pipe");
+        new ProcessBuilder("mkfifo", pipe.toString()).inheritIO().start().waitFor();
+
+        try {
+            System.out.println("# a response slower than the read timeout fails the request");
+            try {
+                node.getFileContents(pipe.toString());
+                System.out.println("no timeout");
+            } catch (IllegalStateException e) {
+                System.out.println(e.getMessage().replace(pipe.toString(), "<pipe>")
+                        + ": " + e.getCause().getClass().getSimpleName());
+            }
+
+            System.out.println("# the next request reconnects");
+            System.out.println(node.getFileContents("b.txt"));
+        } finally {
+            Files.write(pipe, "unblocked".getBytes(StandardCharsets.UTF_8));
+            Files.delete(pipe);
+            Files.delete(directory);
+        }
+
+        server.close();
+        serverThread.join();
+
+        System.out.println("# requests fail once the server is closed");
+        try {
+            node.getFileContents("b.txt");
+            System.out.println("still served");
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+        }
+
+        System.out.println("# and once the node is closed");
+        node.close();
+        try {
+            node.size();
+            System.out.println("still served");
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
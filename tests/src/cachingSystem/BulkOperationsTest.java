@@ -0,0 +1,150 @@
+package cachingSystem;
+
+import observerPattern.interfaces.CacheListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks getAll, getAllIfPresent, loadAll and putAll: results keep the order of the paths and
+ * answer duplicates once, unreadable files are left out, each batch clears stale entries once
+ * after all of its files are inserted, and a file put while getAll reads it from disk keeps the
+ * put contents.
+ */
+public final class BulkOperationsTest {
+
+    private static final int CAPACITY = 3;
+
+    private BulkOperationsTest() {
+
+    }
+
+    public static void main(final String[] args)
+            throws IOException, InterruptedException, ExecutionException {
+        List<String> events = new ArrayList<>();
+        FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, CAPACITY);
+        cache.addListener(recorder(events));
+
+        System.out.println("# getAllIfPresent loads nothing");
+        System.out.println(cache.getAllIfPresent(Arrays.asList("in_files/1.txt",
+                "in_files/2.txt", "in_files/1.txt")));
+        print(events);
+
+        System.out.println("# getAll loads the missing files, and leaves out unreadable ones");
+        Map<String, String> contents = cache.getAll(Arrays.asList("in_files/2.txt",
+                "in_files/missing.txt", "in_files/1.txt", "in_files/2.txt"));
+        System.out.println(lengths(contents));
+        System.out.println("cached " + cache.getCachedPaths());
+        events.clear();
+
+        System.out.println("# a partial hit only loads the missing files");
+        contents = cache.getAll(Arrays.asList("in_files/1.txt", "in_files/3.txt"));
+        System.out.println(lengths(contents));
+        System.out.println("loads " + cache.getLoadCount());
+        events.clear();
+
+        System.out.println("# putAll inserts every file before evicting");
+        Map<String, String> batch = new LinkedHashMap<>();
+        batch.put("a.txt", "first");
+        batch.put("b.txt", "second");
+        cache.putAll(batch);
+        print(events);
+        System.out.println("cached " + cache.getCachedPaths());
+
+        System.out.println("# so does the batch of loaded files");
+        cache.getAll(Arrays.asList("in_files/4.txt", "in_files/5.txt"));
+        print(events);
+        System.out.println("cached " + cache.getCachedPaths());
+        cache.close();
+
+        Path directory = Files.createTempDirectory("bulk-operations-test");
+        Path pipe = directory.resolve("pipe");
+        new ProcessBuilder("mkfifo", pipe.toString()).inheritIO().start().waitFor();
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            putDuringLoad(pipe, reader);
+        } finally {
+            reader.shutdown();
+            Files.delete(pipe);
+            Files.delete(directory);
+        }
+    }
+
+    /* A read from a named pipe blocks until the pipe is written, so the put lands in between */
+    private static void putDuringLoad(final Path pipe, final ExecutorService reader)
+            throws IOException, InterruptedException, ExecutionException {
+        final FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU,
+                CAPACITY);
+        final String path = pipe.toString();
+
+        System.out.println("# a file put while getAll reads it keeps the put contents");
+        Future<Map<String, String>> load = reader.submit(new Callable<Map<String, String>>() {
+            @Override
+            public Map<String, String> call() {
+                return cache.getAll(Collections.singletonList(path));
+            }
+        });
+        /* Once the lookup has missed, getAll reads the pipe, whatever the put does */
+        while (cache.getRequestCount() == 0) {
+            Thread.sleep(1);
+        }
+        cache.putFileContents(path, "put");
+        Files.write(pipe, "disk".getBytes(StandardCharsets.UTF_8));
+
+        System.out.println("getAll " + load.get().get(path));
+        System.out.println("cached " + cache.getFileContents(path));
+        cache.close();
+    }
+
+    private static CacheListener<String, String> recorder(final List<String> events) {
+        return new CacheListener<String, String>() {
+            @Override
+            public void onHit(final String key) {
+                events.add("hit " + key);
+            }
+
+            @Override
+            public void onMiss(final String key) {
+                events.add("miss " + key);
+            }
+
+            @Override
+            public void onPut(final String key, final String value) {
+                events.add("put " + key);
+            }
+
+            @Override
+            public void onRemoval(final String key, final String value,
+                                  final RemovalCause cause) {
+                events.add(cause + " " + key);
+            }
+        };
+    }
+
+    private static void print(final List<String> events) {
+        System.out.println(events);
+        events.clear();
+    }
+
+    private static Map<String, Integer> lengths(final Map<String, String> contents) {
+        Map<String, Integer> lengths = new LinkedHashMap<>();
+
+        for (Map.Entry<String, String> entry : contents.entrySet()) {
+            lengths.put(entry.getKey(), entry.getValue().length());
+        }
+        return lengths;
+    }
+}
@@ -0,0 +1,134 @@
+package cachingSystem;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks the resize decisions of the CapacityAutoTuner, one tick at a time:
+ *
+ * - an LRU cache grows when a loop over slightly more files than it holds would then hit, and
+ *   shrinks when its hot files fit in a smaller capacity;
+ * - any cache shrinks to the heap budget;
+ * - a FIFO cache is not resized from the LRU curve, but grows back to its first capacity;
+ * - the collection usage thresholds of the JVM are left as they are.
+ *
+ * The memory threshold is set to the whole pools, so that the heap never looks under pressure.
+ */
+public final class CapacityAutoTunerTest {
+
+    private static final int FILES = 105;
+    private static final int HOT_FILES = 20;
+    private static final int CAPACITY = 100;
+    private static final int REQUESTS = 1050;
+    private static final long LARGE_BUDGET = 1L << 30;
+    private static final long BUDGET_OF_50_FILES = 50 * 128;
+
+    private CapacityAutoTunerTest() {
+
+    }
+
+    public static void main(final String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("capacity-auto-tuner-test");
+        try {
+            run(directory);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void run(final Path directory) throws IOException {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < FILES; i++) {
+            Path file = directory.resolve(i + ".txt");
+            Files.write(file, "x".getBytes("US-ASCII"));
+            paths.add(file.toString());
+        }
+
+        System.out.println("# LRU, a loop over " + FILES + " files: the next step would hit");
+        FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, CAPACITY);
+        CapacityAutoTuner tuner = createTuner(cache, LARGE_BUDGET);
+        request(cache, paths);
+        tick(tuner, cache);
+
+        System.out.println("# LRU, " + HOT_FILES + " hot files: the step down loses nothing");
+        cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, CAPACITY);
+        tuner = createTuner(cache, LARGE_BUDGET);
+        request(cache, paths.subList(0, HOT_FILES));
+        tick(tuner, cache);
+
+        System.out.println("# over the heap budget, shrink to it");
+        cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, CAPACITY);
+        tuner = createTuner(cache, BUDGET_OF_50_FILES);
+        tick(tuner, cache);
+
+        System.out.println("# FIFO, the same loop: the LRU curve does not apply");
+        cache = FileCache.createCacheWithCapacity(FileCache.Strategy.FIFO, CAPACITY);
+        tuner = createTuner(cache, LARGE_BUDGET);
+        request(cache, paths);
+        tick(tuner, cache);
+
+        System.out.println("# FIFO, once shrunk, grows back step by step");
+        cache.setCapacity(CAPACITY / 2);
+        StringBuilder capacities = new StringBuilder("capacity " + cache.getCapacity());
+        for (int i = 0; i < 10; i++) {
+            tuner.tick();
+            capacities.append(" -> ").append(cache.getCapacity());
+        }
+        System.out.println(capacities);
+
+        System.out.println("# the thresholds of the JVM are left as they are");
+        List<Long> before = collectionUsageThresholds();
+        createTuner(FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, CAPACITY),
+                LARGE_BUDGET).setMemoryThreshold(0.5);
+        System.out.println(before.equals(collectionUsageThresholds()));
+    }
+
+    private static CapacityAutoTuner createTuner(final FileCache cache, final long budget) {
+        CapacityAutoTuner tuner = new CapacityAutoTuner(cache, budget, 10, 1000);
+        tuner.setMemoryThreshold(1);
+        return tuner;
+    }
+
+    private static void request(final FileCache cache, final List<String> paths) {
+        for (int i = 0; i < REQUESTS; i++) {
+            cache.getFileContents(paths.get(i % paths.size()));
+        }
+    }
+
+    private static void tick(final CapacityAutoTuner tuner, final FileCache cache) {
+        int capacity = cache.getCapacity();
+        tuner.tick();
+        System.out.println("capacity " + capacity + " -> " + cache.getCapacity() + ", size "
+                + cache.size());
+    }
+
+    private static List<Long> collectionUsageThresholds() {
+        List<Long> thresholds = new ArrayList<>();
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.isCollectionUsageThresholdSupported()) {
+                thresholds.add(pool.getCollectionUsageThreshold());
+            }
+        }
+        return thresholds;
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<Path> entries = files.sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+
+            for (Path entry : entries) {
+                Files.delete(entry);
+            }
+        }
+    }
+}
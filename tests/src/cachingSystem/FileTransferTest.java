@@ -0,0 +1,189 @@
+package cachingSystem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks FileCache.transferTo and FileCache.getFileRange against files written to a temporary
+ * directory: binary contents, files that shrink after their size was remembered, non-blocking
+ * targets, files put and not yet written, and ranges that cross blocks or the end of the file.
+ */
+public final class FileTransferTest {
+
+    private static final int LARGE_FILE_THRESHOLD = 1024;
+    private static final int LARGE_FILE_SIZE = 1 << 20;
+    private static final int BLOCK_SIZE = 16;
+    private static final int BLOCK_CAPACITY = 8;
+    private static final int READ_AHEAD = 2;
+    private static final long WRITE_BEHIND_INTERVAL = 60000;
+
+    private FileTransferTest() {
+
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("file-transfer-test");
+        try {
+            transfers(directory);
+            ranges(directory);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void transfers(final Path directory) throws IOException, InterruptedException {
+        FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, 10);
+        cache.setLargeFileThreshold(LARGE_FILE_THRESHOLD);
+
+        System.out.println("# small binary file, sent as stored");
+        byte[] binary = new byte[256];
+        for (int i = 0; i < binary.length; i++) {
+            binary[i] = (byte) i;
+        }
+        Path small = write(directory.resolve("small.bin"), binary);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        long sent = cache.transferTo(small.toString(), Channels.newChannel(sink));
+        System.out.println("sent " + sent + " equal " + Arrays.equals(binary, sink.toByteArray()));
+
+        System.out.println("# large file, then the same file after it shrank");
+        byte[] large = pattern(4 * LARGE_FILE_THRESHOLD);
+        Path shrinking = write(directory.resolve("shrinking.bin"), large);
+        sink.reset();
+        sent = cache.transferTo(shrinking.toString(), Channels.newChannel(sink));
+        System.out.println("sent " + sent + " equal " + Arrays.equals(large, sink.toByteArray()));
+        try (RandomAccessFile file = new RandomAccessFile(shrinking.toFile(), "rw")) {
+            file.setLength(LARGE_FILE_THRESHOLD + 1);
+        }
+        sink.reset();
+        sent = cache.transferTo(shrinking.toString(), Channels.newChannel(sink));
+        System.out.println("sent " + sent + " equal "
+                + Arrays.equals(Arrays.copyOf(large, LARGE_FILE_THRESHOLD + 1),
+                sink.toByteArray()));
+
+        System.out.println("# non-blocking target drained slowly");
+        byte[] huge = pattern(LARGE_FILE_SIZE);
+        Path hugeFile = write(directory.resolve("huge.bin"), huge);
+        System.out.println("large " + transferToPipe(cache, hugeFile, huge));
+        System.out.println("small " + transferToPipe(cache, small, binary));
+
+        System.out.println("# a put file is sent as put, before it is written to disk");
+        Path put = write(directory.resolve("put.txt"), "disk".getBytes(StandardCharsets.US_ASCII));
+        cache.enableWriteBehind(WRITE_BEHIND_INTERVAL);
+        cache.putFileContents(put.toString(), "put");
+        sink.reset();
+        sent = cache.transferTo(put.toString(), Channels.newChannel(sink));
+        System.out.println("sent " + sent + " \"" + sink.toString("US-ASCII") + "\", on disk \""
+                + new String(Files.readAllBytes(put), StandardCharsets.US_ASCII) + "\"");
+
+        System.out.println("# missing file");
+        try {
+            cache.transferTo(directory.resolve("missing").toString(), Channels.newChannel(sink));
+        } catch (IOException e) {
+            System.out.println("IOException");
+        }
+        cache.close();
+    }
+
+    private static void ranges(final Path directory) throws IOException {
+        FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, 10);
+        cache.setBlockCacheSize(BLOCK_SIZE, BLOCK_CAPACITY, READ_AHEAD);
+
+        Path file = write(directory.resolve("ranges.txt"),
+                "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ"
+                        .getBytes(StandardCharsets.US_ASCII));
+        String path = file.toString();
+
+        System.out.println("# ranges within a block, across blocks and past the end");
+        printRange(cache, path, 0, 10);
+        printRange(cache, path, 10, 20);
+        printRange(cache, path, 30, 40);
+        printRange(cache, path, 50, Integer.MAX_VALUE);
+        printRange(cache, path, 62, 5);
+        printRange(cache, path, 100, 5);
+        printRange(cache, path, 5, 0);
+
+        System.out.println("# a rewritten file is read again once it is put");
+        write(file, "rewritten".getBytes(StandardCharsets.US_ASCII));
+        printRange(cache, path, 0, 9);
+        cache.putFileContents(path, "rewritten");
+        printRange(cache, path, 0, 20);
+        cache.close();
+    }
+
+    private static void printRange(final FileCache cache, final String path, final long offset,
+                                   final int length) throws IOException {
+        byte[] range = cache.getFileRange(path, offset, length);
+
+        System.out.println(offset + "+" + length + " -> \""
+                + new String(range, StandardCharsets.US_ASCII) + "\"");
+    }
+
+    /* Send a file through a non-blocking pipe whose reader is slower than the writer */
+    private static boolean transferToPipe(final FileCache cache, final Path file,
+                                          final byte[] expected)
+            throws IOException, InterruptedException {
+        final Pipe pipe = Pipe.open();
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        pipe.sink().configureBlocking(false);
+
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ByteBuffer buffer = ByteBuffer.allocate(4096);
+                try {
+                    while (pipe.source().read(buffer) >= 0) {
+                        received.write(buffer.array(), 0, buffer.position());
+                        buffer.clear();
+                        Thread.sleep(1);
+                    }
+                } catch (IOException | InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        reader.start();
+
+        long sent = cache.transferTo(file.toString(), pipe.sink());
+        pipe.sink().close();
+        reader.join();
+        pipe.source().close();
+
+        return sent == expected.length && Arrays.equals(expected, received.toByteArray());
+    }
+
+    private static byte[] pattern(final int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31 + i / 251);
+        }
+        return bytes;
+    }
+
+    private static Path write(final Path path, final byte[] bytes) throws IOException {
+        Files.write(path, bytes);
+        return path;
+    }
+
+    static void delete(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<Path> entries = files.sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+
+            for (Path entry : entries) {
+                Files.delete(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package cachingSystem;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks FileCache.preload against files written to a temporary directory with fixed modification
+ * times: the newest files are loaded first and end up the most recently used, cached files are
+ * skipped without taking room, files too large for the free weight are skipped while the smaller
+ * ones after them are loaded, and nothing is evicted.
+ */
+public final class PreloadTest {
+
+    private static final int FILE_COUNT = 6;
+    private static final long MINUTE_MILLIS = 60_000;
+    private static final PathMatcher TEXT_FILES =
+            FileSystems.getDefault().getPathMatcher("glob:*.txt");
+
+    private PreloadTest() {
+
+    }
+
+    public static void main(final String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("preload-test");
+        try {
+            preload(directory);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void preload(final Path directory) throws IOException {
+        /* f0.txt is the newest file; f2.txt is much larger than the others */
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < FILE_COUNT; i++) {
+            Path file = directory.resolve("f" + i + ".txt");
+            Files.write(file, (i == 2 ? "a much larger file" : "file" + i)
+                    .getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(file, FileTime.fromMillis((FILE_COUNT - i) * MINUTE_MILLIS));
+            paths.add(file.toString());
+        }
+        Files.write(directory.resolve("ignored.bin"), new byte[] {1});
+
+        System.out.println("# the newest files that fit in an empty cache");
+        FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, 3);
+        System.out.println("loaded " + cache.preload(directory, TEXT_FILES, 2));
+        printCache(directory, cache, paths);
+        cache.close();
+
+        System.out.println("# cached files are skipped and leave room for the others");
+        cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, 4);
+        cache.getFileContents(paths.get(0));
+        cache.getFileContents(paths.get(5));
+        System.out.println("loaded " + cache.preload(directory, TEXT_FILES, 2));
+        printCache(directory, cache, paths);
+
+        System.out.println("# a full cache loads nothing and evicts nothing");
+        System.out.println("loaded " + cache.preload(directory, TEXT_FILES, 2));
+        printCache(directory, cache, paths);
+        cache.close();
+
+        System.out.println("# a file too large for the free weight is skipped, not the rest");
+        cache = FileCache.newBuilder().maximumWeight(15).build();
+        System.out.println("loaded " + cache.preload(directory, TEXT_FILES, 1));
+        System.out.println("weight " + cache.getWeight());
+        printCache(directory, cache, paths);
+        cache.close();
+    }
+
+    private static void printCache(final Path directory, final FileCache cache,
+                                   final List<String> paths) {
+        Map<String, String> cached = cache.getAllIfPresent(paths);
+        StringBuilder sb = new StringBuilder("size " + cache.size() + ":");
+
+        for (Map.Entry<String, String> entry : cached.entrySet()) {
+            if (entry.getValue() != null) {
+                sb.append(' ').append(directory.relativize(directory.resolve(entry.getKey())));
+            }
+        }
+        System.out.println(sb);
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<Path> entries = files.sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+
+            for (Path entry : entries) {
+                Files.delete(entry);
+            }
+        }
+    }
+}
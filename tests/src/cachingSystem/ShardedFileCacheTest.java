@@ -0,0 +1,305 @@
+package cachingSystem;
+
+import cachingSystem.classes.LocalCacheNode;
+import cachingSystem.interfaces.CacheNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks the routing and the membership changes of a ShardedFileCache of local nodes: the share
+ * of the paths that move when a node is added or removed, and that the files of the moved paths
+ * are handed off, so that no node serves contents older than the last put. Then puts race with
+ * the promotions of hot paths to their replicas: no node may be sent a put older than one it
+ * already holds, and the reads spread over the replicas must all return the last put.
+ */
+public final class ShardedFileCacheTest {
+
+    private static final int NODES = 4;
+    private static final int PATHS = 10000;
+    private static final int NODE_CAPACITY = 100;
+
+    private static final int REPLICAS = 2;
+    private static final int RACE_PATHS = 4;
+    private static final int READERS = 4;
+    private static final int VERSIONS = 20000;
+    private static final int HOT_WINDOW = 8;
+    private static final int HOT_THRESHOLD = 2;
+    private static final int FINAL_READS = 1000;
+
+    private ShardedFileCacheTest() {
+
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        rebalance();
+
+        Path directory = Files.createTempDirectory("sharded-file-cache-test");
+        try {
+            handOff(directory);
+            promotionRace(directory);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void rebalance() {
+        ShardedFileCache cache = new ShardedFileCache(ShardedFileCache.DEFAULT_VIRTUAL_NODES, 1);
+        for (int i = 0; i < NODES; i++) {
+            cache.addNode(createNode("node-" + i));
+        }
+
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < PATHS; i++) {
+            paths.add("/files/" + i + ".txt");
+        }
+        List<String> before = owners(cache, paths);
+
+        System.out.println("# adding a fifth node moves about a fifth of the paths, all to it");
+        cache.addNode(createNode("node-" + NODES));
+        List<String> after = owners(cache, paths);
+        int moved = 0;
+        boolean allToNewNode = true;
+        for (int i = 0; i < PATHS; i++) {
+            if (!before.get(i).equals(after.get(i))) {
+                moved++;
+                allToNewNode &= after.get(i).equals("node-" + NODES);
+            }
+        }
+        System.out.println(String.format("moved %.4f, all to node-%d: %b",
+                (double) moved / PATHS, NODES, allToNewNode));
+
+        System.out.println("# removing it moves them back");
+        cache.removeNode("node-" + NODES);
+        System.out.println("same owners as before: " + owners(cache, paths).equals(before));
+    }
+
+    private static void handOff(final Path directory) throws IOException {
+        ShardedFileCache cache = new ShardedFileCache(ShardedFileCache.DEFAULT_VIRTUAL_NODES, 1);
+        List<CacheNode> nodes = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            CacheNode node = createNode("node-" + i);
+            nodes.add(node);
+            cache.addNode(node);
+        }
+
+        Path file = directory.resolve("file.txt");
+        Files.write(file, "v1 on disk".getBytes(StandardCharsets.UTF_8));
+        String path = file.toString();
+
+        System.out.println("# read through by its node");
+        System.out.println(cache.getFileContents(path));
+        CacheNode owner = cache.getNode(path);
+        printHolders(nodes, path, owner, null);
+
+        /* The first of these names the path moves to */
+        CacheNode extra = null;
+        for (int i = 0; extra == null; i++) {
+            CacheNode candidate = createNode("extra-" + i);
+            cache.addNode(candidate);
+            if (cache.getNode(path) == candidate) {
+                extra = candidate;
+            } else {
+                cache.removeNode(candidate.getName());
+            }
+        }
+        nodes.add(extra);
+
+        System.out.println("# a new node takes the path, and the former node drops it");
+        printHolders(nodes, path, owner, extra);
+        cache.putFileContents(path, "v2 put");
+        System.out.println(cache.getFileContents(path));
+
+        System.out.println("# removing the new node hands the put back");
+        cache.removeNode(extra.getName());
+        System.out.println(cache.getFileContents(path));
+        printHolders(nodes, path, owner, extra);
+
+        System.out.println("# adding it again hands the put over instead of reading the disk");
+        cache.addNode(extra);
+        System.out.println(cache.getFileContents(path));
+        printHolders(nodes, path, owner, extra);
+
+        System.out.println("# sizes");
+        int files = 0;
+        for (int size : cache.getShardSizes().values()) {
+            files += size;
+        }
+        System.out.println(files + " file(s), " + extra.size() + " on the new node");
+    }
+
+    private static void promotionRace(final Path directory)
+            throws IOException, InterruptedException {
+        final ShardedFileCache cache = new ShardedFileCache(
+                ShardedFileCache.DEFAULT_VIRTUAL_NODES, REPLICAS);
+        List<VersionCheckingNode> nodes = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            VersionCheckingNode node = new VersionCheckingNode(createNode("node-" + i));
+            nodes.add(node);
+            cache.addNode(node);
+        }
+        /* About half of the windows cool a path down, so that it is promoted again and again */
+        cache.setHotPathPolicy(HOT_WINDOW, HOT_THRESHOLD);
+
+        final String[] paths = new String[RACE_PATHS];
+        for (int i = 0; i < RACE_PATHS; i++) {
+            Path file = directory.resolve("race-" + i + ".txt");
+            Files.write(file, "version -1".getBytes(StandardCharsets.UTF_8));
+            paths[i] = file.toString();
+        }
+
+        System.out.println("# puts racing with the promotions of their paths");
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        List<Thread> writers = new ArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int w = 0; w < RACE_PATHS; w++) {
+            final String path = paths[w];
+            writers.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int version = 0; version < VERSIONS; version++) {
+                        cache.putFileContents(path, "version " + version);
+                    }
+                }
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            final Random random = new Random(r);
+            readers.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (writing.get()) {
+                        cache.getFileContents(paths[random.nextInt(RACE_PATHS)]);
+                    }
+                }
+            }));
+        }
+
+        for (Thread thread : readers) {
+            thread.start();
+        }
+        for (Thread thread : writers) {
+            thread.start();
+        }
+        for (Thread thread : writers) {
+            thread.join();
+        }
+        writing.set(false);
+        for (Thread thread : readers) {
+            thread.join();
+        }
+
+        boolean forward = true;
+        for (VersionCheckingNode node : nodes) {
+            forward &= !node.wentBack;
+        }
+
+        /* Every read spreads over the replicas of a hot path, and none may be behind */
+        String last = "version " + (VERSIONS - 1);
+        boolean latest = true;
+        for (int i = 0; i < FINAL_READS; i++) {
+            latest &= last.equals(cache.getFileContents(paths[i % RACE_PATHS]));
+        }
+        System.out.println("promoted " + (cache.getPromotionCount() > RACE_PATHS)
+                + ", no node was sent an older put " + forward
+                + ", every read returns the last put " + latest);
+    }
+
+    private static CacheNode createNode(final String name) {
+        return new LocalCacheNode(name,
+                FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, NODE_CAPACITY));
+    }
+
+    private static List<String> owners(final ShardedFileCache cache, final List<String> paths) {
+        List<String> owners = new ArrayList<>();
+
+        for (String path : paths) {
+            owners.add(cache.getNode(path).getName());
+        }
+        return owners;
+    }
+
+    /* The names depend on the temporary path, so the nodes are printed by their role */
+    private static void printHolders(final List<CacheNode> nodes, final String path,
+                                     final CacheNode owner, final CacheNode extra) {
+        StringBuilder sb = new StringBuilder("cached by:");
+
+        for (CacheNode node : nodes) {
+            if (node.getCachedPaths().contains(path)) {
+                sb.append(node == owner ? " the first node" : node == extra ? " the new node"
+                        : " " + node.getName());
+            }
+        }
+        System.out.println(sb);
+    }
+
+    /**
+     * A node that checks that the puts of each path reach it in order.
+     */
+    private static final class VersionCheckingNode implements CacheNode {
+        private final CacheNode node;
+        private final Map<String, Integer> versions = new HashMap<>();
+        private volatile boolean wentBack = false;
+
+        VersionCheckingNode(final CacheNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public String getName() {
+            return node.getName();
+        }
+
+        @Override
+        public String getFileContents(final String path) {
+            return node.getFileContents(path);
+        }
+
+        @Override
+        public synchronized void putFileContents(final String path, final String contents) {
+            int version = Integer.parseInt(contents.substring(contents.indexOf(' ') + 1));
+            Integer previous = versions.put(path, version);
+            if (previous != null && previous > version) {
+                wentBack = true;
+            }
+            node.putFileContents(path, contents);
+        }
+
+        @Override
+        public boolean remove(final String path) {
+            return node.remove(path);
+        }
+
+        @Override
+        public List<String> getCachedPaths() {
+            return node.getCachedPaths();
+        }
+
+        @Override
+        public int size() {
+            return node.size();
+        }
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<Path> entries = files.sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+
+            for (Path entry : entries) {
+                Files.delete(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package cachingSystem;
+
+import cachingSystem.classes.ObservableCache;
+import observerPattern.classes.BroadcastListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks write-behind: dirty files are stepped over by eviction instead of stopping it, flushes
+ * replace the files whole and leave no temporary file behind, and the ranges and sizes read
+ * before a flush are not served after it. A dirty file dropped from the cache is read back from
+ * its put contents, a batch larger than the chunk written at once is flushed whole, the flusher
+ * backs off after a failure, and close flushes and stops the flusher. Also checks pinned keys on
+ * the backing caches of both strategies.
+ */
+public final class WriteBehindTest {
+
+    private static final int CAPACITY = 2;
+    /* Long enough that the flusher never runs during the test: every flush is explicit */
+    private static final long FLUSH_INTERVAL_MILLIS = 3_600_000;
+    /* More than the files written at once by a flush, and than the batch that wakes the flusher */
+    private static final int LARGE_BATCH = 150;
+    private static final long RETRY_INTERVAL_MILLIS = 200;
+    private static final long FAILING_MILLIS = 1000;
+    private static final long MAX_FAILURES = 8;
+
+    private WriteBehindTest() {
+
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        pinnedKeys(FileCache.Strategy.LRU);
+        pinnedKeys(FileCache.Strategy.FIFO);
+
+        Path directory = Files.createTempDirectory("write-behind-test");
+        try {
+            writeBehind(directory);
+            largeBatch(directory.resolve("large"));
+            failingFlusher(directory.resolve("failing"));
+            System.out.println("# no flusher is left running");
+            System.out.println("flushers " + countFlushers());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void pinnedKeys(final FileCache.Strategy strategy) {
+        Set<Integer> pinned = new HashSet<>();
+
+        System.out.println("# " + strategy + ": pinned keys are stepped over");
+        ObservableCache<Integer, Integer> cache = createPinnedCache(strategy, pinned);
+        pinned.add(0);
+        pinned.add(1);
+        for (int key = 0; key < 6; key++) {
+            cache.put(key, key);
+        }
+        System.out.println(drain(cache));
+
+        System.out.println("# " + strategy + ": grows while every key is pinned, then shrinks");
+        cache = createPinnedCache(strategy, pinned);
+        for (int key = 0; key < 5; key++) {
+            pinned.add(key);
+            cache.put(key, key);
+        }
+        System.out.println("size " + cache.size());
+        pinned.clear();
+        cache.put(5, 5);
+        System.out.println(drain(cache));
+    }
+
+    private static ObservableCache<Integer, Integer> createPinnedCache(
+            final FileCache.Strategy strategy, final Set<Integer> pinned) {
+        ObservableCache<Integer, Integer> cache = FileCache.createDataCache(strategy, 3);
+
+        cache.setCacheListener(new BroadcastListener<Integer, Integer>());
+        cache.setPinnedKeys(pinned);
+        return cache;
+    }
+
+    /* Empty the cache, eldest entry first */
+    private static String drain(final ObservableCache<Integer, Integer> cache) {
+        StringBuilder sb = new StringBuilder("size " + cache.size() + ", eldest first:");
+
+        while (!cache.isEmpty()) {
+            Integer key = cache.getEldestEntry().getKey();
+
+            sb.append(' ').append(key);
+            cache.remove(key);
+        }
+        return sb.toString();
+    }
+
+    private static void writeBehind(final Path directory) throws IOException {
+        FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, CAPACITY);
+        cache.enableWriteBehind(FLUSH_INTERVAL_MILLIS);
+        cache.setLargeFileThreshold(4);
+
+        String[] paths = new String[4];
+        for (int i = 0; i < paths.length; i++) {
+            Path file = directory.resolve(i + ".txt");
+            Files.write(file, ("disk" + i).getBytes(StandardCharsets.UTF_8));
+            paths[i] = file.toString();
+        }
+
+        System.out.println("# a dirty file is kept, the clean ones are evicted");
+        System.out.println(new String(cache.getFileRange(paths[0], 0, 100),
+                StandardCharsets.UTF_8));
+        System.out.println(cache.transferTo(paths[0], new DiscardingChannel()));
+        cache.putFileContents(paths[0], "written to 0, longer");
+        for (int i = 1; i < paths.length; i++) {
+            cache.getFileContents(paths[i]);
+        }
+        System.out.println("size " + cache.size() + " dirty " + cache.getDirtyCount());
+        printCached(directory, cache, paths);
+
+        System.out.println("# a flush replaces the file and leaves no temporary file");
+        System.out.println(new String(Files.readAllBytes(Paths.get(paths[0])),
+                StandardCharsets.UTF_8));
+        cache.flush();
+        System.out.println(new String(Files.readAllBytes(Paths.get(paths[0])),
+                StandardCharsets.UTF_8));
+        System.out.println("dirty " + cache.getDirtyCount() + " files " + listFiles(directory));
+
+        System.out.println("# ranges and sizes read before the flush are dropped");
+        System.out.println(new String(cache.getFileRange(paths[0], 0, 100),
+                StandardCharsets.UTF_8));
+        System.out.println(cache.transferTo(paths[0], new DiscardingChannel()));
+
+        System.out.println("# the flushed file can be evicted");
+        cache.getFileContents(paths[1]);
+        cache.getFileContents(paths[2]);
+        printCached(directory, cache, paths);
+
+        System.out.println("# a file that cannot be written stays dirty");
+        String unwritable = directory.resolve("missing").resolve("file.txt").toString();
+        cache.putFileContents(unwritable, "lost");
+        try {
+            cache.flush();
+        } catch (IOException e) {
+            System.out.println("IOException");
+        }
+        System.out.println("dirty " + cache.getDirtyCount() + " files " + listFiles(directory));
+
+        System.out.println("# a dirty file dropped from the cache is read from its put contents");
+        cache.putFileContents(paths[3], "put 3");
+        cache.remove(paths[3]);
+        System.out.println(cache.getFileContents(paths[3]));
+        cache.remove(paths[3]);
+        System.out.println(cache.loadAll(Collections.singletonList(paths[3])).get(paths[3]));
+        System.out.println(new String(Files.readAllBytes(Paths.get(paths[3])),
+                StandardCharsets.UTF_8));
+
+        System.out.println("# close flushes, and fails while a file cannot be written");
+        try {
+            cache.close();
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+        }
+        System.out.println("dirty " + cache.getDirtyCount());
+        Files.createDirectory(directory.resolve("missing"));
+        cache.close();
+        System.out.println("dirty " + cache.getDirtyCount() + " files " + listFiles(directory));
+        System.out.println(new String(Files.readAllBytes(Paths.get(paths[3])),
+                StandardCharsets.UTF_8) + ", " + new String(Files.readAllBytes(
+                Paths.get(unwritable)), StandardCharsets.UTF_8));
+
+        System.out.println("# write-behind ends with close");
+        cache.putFileContents(paths[1], "not written");
+        System.out.println("dirty " + cache.getDirtyCount());
+    }
+
+    private static void largeBatch(final Path directory) throws IOException {
+        Files.createDirectory(directory);
+        FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, CAPACITY);
+        cache.enableWriteBehind(FLUSH_INTERVAL_MILLIS);
+
+        System.out.println("# a batch of " + LARGE_BATCH + " files is flushed whole");
+        for (int i = 0; i < LARGE_BATCH; i++) {
+            cache.putFileContents(directory.resolve(i + ".txt").toString(), "file " + i);
+        }
+        cache.flush();
+
+        List<String> names = listFiles(directory);
+        boolean written = true;
+        for (int i = 0; i < LARGE_BATCH; i++) {
+            written &= new String(Files.readAllBytes(directory.resolve(i + ".txt")),
+                    StandardCharsets.UTF_8).equals("file " + i);
+        }
+        System.out.println("dirty " + cache.getDirtyCount() + ", files " + names.size()
+                + ", contents written " + written);
+        cache.close();
+    }
+
+    private static void failingFlusher(final Path directory)
+            throws IOException, InterruptedException {
+        FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, CAPACITY);
+        cache.enableWriteBehind(RETRY_INTERVAL_MILLIS);
+
+        System.out.println("# the flusher waits between failed flushes of a full batch");
+        for (int i = 0; i < LARGE_BATCH; i++) {
+            cache.putFileContents(directory.resolve(i + ".txt").toString(), "file " + i);
+        }
+        Thread.sleep(FAILING_MILLIS);
+        long failures = cache.getWriteFailureCount();
+        System.out.println("failed at least once " + (failures > 0) + ", at most "
+                + MAX_FAILURES + " times " + (failures <= MAX_FAILURES));
+
+        System.out.println("# once the files can be written, close flushes them");
+        Files.createDirectory(directory);
+        cache.close();
+        System.out.println("dirty " + cache.getDirtyCount() + ", files "
+                + listFiles(directory).size());
+    }
+
+    private static int countFlushers() {
+        int flushers = 0;
+
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("FileCache-flusher") && thread.isAlive()) {
+                flushers++;
+            }
+        }
+        return flushers;
+    }
+
+    private static void printCached(final Path directory, final FileCache cache,
+                                    final String[] paths) {
+        Map<String, String> cached = cache.getAllIfPresent(Arrays.asList(paths));
+        StringBuilder sb = new StringBuilder("cached");
+
+        for (Map.Entry<String, String> entry : cached.entrySet()) {
+            if (entry.getValue() != null) {
+                sb.append(' ').append(directory.relativize(Paths.get(entry.getKey())));
+            }
+        }
+        System.out.println(sb);
+    }
+
+    private static List<String> listFiles(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<String> names = files.map(new Function<Path, String>() {
+                @Override
+                public String apply(final Path path) {
+                    return path.getFileName().toString();
+                }
+            }).collect(Collectors.toList());
+
+            Collections.sort(names);
+            return names;
+        }
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<Path> entries = files.sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+
+            for (Path entry : entries) {
+                Files.delete(entry);
+            }
+        }
+    }
+
+    /* Counts the bytes written to it */
+    private static final class DiscardingChannel implements WritableByteChannel {
+        @Override
+        public int write(final ByteBuffer source) {
+            int count = source.remaining();
+
+            source.position(source.limit());
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package cachingSystem.classes;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks that the BlockCache follows a file that changes size without being invalidated: the
+ * short last block is read again once the file grew, and every block is dropped once it shrank.
+ * A range that ends before the remembered size is served from the cached blocks without looking
+ * at the file, which is shown by reading it after the file was deleted.
+ */
+public final class BlockCacheTest {
+
+    private static final int BLOCK_SIZE = 4;
+    private static final int CAPACITY = 16;
+    private static final int LONG_RANGE = 100;
+
+    private BlockCacheTest() {
+
+    }
+
+    public static void main(final String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("block-cache-test");
+        try {
+            run(directory);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void run(final Path directory) throws IOException {
+        Path file = directory.resolve("file.txt");
+        String path = file.toString();
+        BlockCache cache = new BlockCache(BLOCK_SIZE, CAPACITY, 0);
+
+        Files.write(file, bytes("abcdef"));
+        print("the whole file", cache.read(path, 0, LONG_RANGE), cache);
+
+        System.out.println("# the file grows: the short last block is read again");
+        Files.write(file, bytes("ghij"), StandardOpenOption.APPEND);
+        print("the whole file", cache.read(path, 0, LONG_RANGE), cache);
+        print("the new bytes", cache.read(path, 6, LONG_RANGE), cache);
+
+        System.out.println("# the file shrinks: its blocks are dropped");
+        Files.write(file, bytes("xyz"));
+        print("the whole file", cache.read(path, 0, LONG_RANGE), cache);
+
+        System.out.println("# a range before the remembered size does not look at the file");
+        Files.write(file, bytes("klmnopqrst"));
+        cache.invalidate(path);
+        print("the whole file", cache.read(path, 0, LONG_RANGE), cache);
+        Files.delete(file);
+        print("a deleted file", cache.read(path, 2, 6), cache);
+        try {
+            cache.read(path, 8, LONG_RANGE);
+        } catch (IOException e) {
+            System.out.println("past the remembered size: " + e.getClass().getSimpleName());
+        }
+    }
+
+    private static void print(final String name, final byte[] range, final BlockCache cache) {
+        System.out.println(name + ": \"" + new String(range, StandardCharsets.US_ASCII)
+                + "\", " + cache.size() + " blocks cached");
+    }
+
+    private static byte[] bytes(final String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<Path> entries = files.sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+
+            for (Path entry : entries) {
+                Files.delete(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package cachingSystem.classes;
+
+import cachingSystem.FileCache;
+import dataStructures.classes.BloomFilter;
+import observerPattern.classes.StatsListener;
+
+/**
+ * Checks the doorkeeper on its own (a key is admitted on its second miss within a window, never
+ * when too long, and forgotten when the window ends), the false positive rate of its Bloom
+ * filter, and that it keeps a scan of files read once from evicting the hot files of a cache.
+ */
+public final class DoorkeeperAdmissionPolicyTest {
+
+    private static final int WINDOW_SIZE = 4;
+    private static final int MAX_LENGTH = 5;
+
+    private static final int FILTER_ELEMENTS = 10000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int FILTER_PROBES = 100000;
+
+    private static final int HOT_FILES = 10;
+    private static final int SCANNED_FILES = 80;
+
+    private DoorkeeperAdmissionPolicyTest() {
+
+    }
+
+    public static void main(final String[] args) {
+        policy();
+        filter();
+        scan(false);
+        scan(true);
+    }
+
+    private static void policy() {
+        DoorkeeperAdmissionPolicy<String> policy =
+                new DoorkeeperAdmissionPolicy<>(WINDOW_SIZE, MAX_LENGTH);
+
+        System.out.println("# admitted on the second miss, unless too long");
+        System.out.println("a " + policy.shouldAdmit("a", "value"));
+        System.out.println("a " + policy.shouldAdmit("a", "value"));
+        System.out.println("b " + policy.shouldAdmit("b", "too long"));
+        System.out.println("b " + policy.shouldAdmit("b", "too long"));
+
+        System.out.println("# forgotten when the window ends");
+        policy = new DoorkeeperAdmissionPolicy<>(WINDOW_SIZE, MAX_LENGTH);
+        for (int i = 0; i < WINDOW_SIZE; i++) {
+            System.out.println(i + " " + policy.shouldAdmit(Integer.toString(i), "value"));
+        }
+        System.out.println("0 " + policy.shouldAdmit("0", "value"));
+        System.out.println("0 " + policy.shouldAdmit("0", "value"));
+    }
+
+    private static void filter() {
+        BloomFilter filter = new BloomFilter(FILTER_ELEMENTS, FALSE_POSITIVE_RATE);
+
+        boolean addedFound = true;
+        for (int i = 0; i < FILTER_ELEMENTS; i++) {
+            filter.add("added-" + i);
+        }
+        for (int i = 0; i < FILTER_ELEMENTS; i++) {
+            addedFound &= filter.mightContain("added-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < FILTER_PROBES; i++) {
+            if (filter.mightContain("probe-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        System.out.println("# Bloom filter");
+        System.out.println("every added element found: " + addedFound);
+        System.out.println(String.format("false positive rate %.4f, at most %.2f: %b",
+                (double) falsePositives / FILTER_PROBES, 2 * FALSE_POSITIVE_RATE,
+                falsePositives <= 2 * FALSE_POSITIVE_RATE * FILTER_PROBES));
+    }
+
+    /* Read the hot files twice, scan other files once, then read the hot files again */
+    private static void scan(final boolean doorkeeper) {
+        FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, HOT_FILES);
+        if (doorkeeper) {
+            cache.setAdmissionPolicy(
+                    new DoorkeeperAdmissionPolicy<String>(HOT_FILES + SCANNED_FILES));
+        }
+
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 1; i <= HOT_FILES; i++) {
+                cache.getFileContents("in_files/" + i + ".txt");
+            }
+        }
+        for (int i = HOT_FILES + 1; i <= HOT_FILES + SCANNED_FILES; i++) {
+            cache.getFileContents("in_files/" + i + ".txt");
+        }
+
+        StatsListener<String, String> stats = new StatsListener<>();
+        cache.addListener(stats);
+        for (int i = 1; i <= HOT_FILES; i++) {
+            cache.getFileContents("in_files/" + i + ".txt");
+        }
+
+        System.out.println("# hot files after a scan, " + (doorkeeper ? "with" : "without")
+                + " the doorkeeper");
+        System.out.println("misses " + stats.getMisses() + " of " + HOT_FILES);
+    }
+}
@@ -0,0 +1,150 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.CacheExpiry;
+import observerPattern.interfaces.CacheListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Checks the expiration of an ExpiringCache on the wall clock: pairs expire after their create
+ * duration, an update keeps the remaining time, a read can extend it, pairs that never expire
+ * stay, and pinned pairs outlive their deadline until unpinned. The cached keys are tracked from the put and removal events. The durations are
+ * far apart from the sleeps, so that a slow machine does not change the output.
+ */
+public final class ExpiringCacheTest {
+
+    private static final long SHORT_MILLIS = 300;
+    private static final long LONG_MILLIS = 1500;
+    private static final long SLEEP_MILLIS = 900;
+    private static final int CAPACITY = 100;
+
+    private ExpiringCacheTest() {
+
+    }
+
+    public static void main(final String[] args) throws InterruptedException {
+        final List<String> removals = new ArrayList<>();
+        final Set<String> cached = new TreeSet<>();
+        ExpiringCache<String, String> cache = new ExpiringCache<>(
+                new CacheExpiry<String, String>() {
+                    @Override
+                    public long expireAfterCreate(final String key, final String value) {
+                        if (key.startsWith("forever")) {
+                            return Long.MAX_VALUE;
+                        }
+                        return key.startsWith("long") ? LONG_MILLIS : SHORT_MILLIS;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(final String key, final String value,
+                                                  final long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(final String key, final String value,
+                                                final long currentDuration) {
+                        return key.startsWith("long-sliding") ? LONG_MILLIS : currentDuration;
+                    }
+                });
+        cache.setStalePolicy(new CapacityStalePolicy<>(cache, CAPACITY));
+        cache.setCacheListener(new CacheListener<String, String>() {
+            @Override
+            public void onHit(final String key) {
+
+            }
+
+            @Override
+            public void onMiss(final String key) {
+
+            }
+
+            @Override
+            public void onPut(final String key, final String value) {
+                cached.add(key);
+            }
+
+            @Override
+            public void onRemoval(final String key, final String value,
+                                  final RemovalCause cause) {
+                removals.add(key + " " + cause);
+                if (cause != RemovalCause.REPLACED) {
+                    cached.remove(key);
+                }
+            }
+        });
+
+        cache.put("short", "1");
+        cache.put("short-updated", "1");
+        cache.put("short-pinned", "1");
+        cache.put("long", "1");
+        cache.put("long-sliding", "1");
+        cache.put("forever", "1");
+        cache.setPinnedKeys(new HashSet<>(Collections.singletonList("short-pinned")));
+
+        System.out.println("# before any deadline");
+        System.out.println("short " + cache.get("short"));
+        cache.put("short-updated", "2");
+        print(cache, removals, cached);
+
+        Thread.sleep(SLEEP_MILLIS);
+        System.out.println("# after the short deadlines");
+        System.out.println("short " + cache.get("short"));
+        System.out.println("long-sliding " + cache.get("long-sliding"));
+        print(cache, removals, cached);
+
+        Thread.sleep(SLEEP_MILLIS);
+        System.out.println("# after the long deadline, but not the extended one");
+        cache.cleanUp();
+        print(cache, removals, cached);
+
+        /* The pinned pair is checked again a second after it was last found due */
+        cache.setPinnedKeys(new HashSet<String>());
+        Thread.sleep(SLEEP_MILLIS + SLEEP_MILLIS);
+        System.out.println("# after the extended deadline and the pinned retry");
+        cache.cleanUp();
+        print(cache, removals, cached);
+
+        System.out.println("# a negative duration is rejected");
+        ExpiringCache<String, String> invalid = new ExpiringCache<>(
+                new CacheExpiry<String, String>() {
+                    @Override
+                    public long expireAfterCreate(final String key, final String value) {
+                        return -1;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(final String key, final String value,
+                                                  final long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(final String key, final String value,
+                                                final long currentDuration) {
+                        return currentDuration;
+                    }
+                });
+        invalid.setStalePolicy(new CapacityStalePolicy<>(invalid, CAPACITY));
+        try {
+            invalid.put("key", "value");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /* Print the removals since the last call, in a stable order, and the cached keys */
+    private static void print(final ExpiringCache<String, String> cache,
+                              final List<String> removals, final Set<String> cached) {
+        Collections.sort(removals);
+        System.out.println("removed " + removals);
+        removals.clear();
+
+        System.out.println("cached " + cached + ", size " + cache.size());
+    }
+}
@@ -0,0 +1,138 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.CacheExpiry;
+import cachingSystem.interfaces.CacheWeigher;
+import observerPattern.interfaces.CacheListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks the causes of the removal events of every observable cache: REPLACED on an overwrite,
+ * SIZE on an eviction, EXPLICIT on remove and for each pair dropped by clearAll, and EXPIRED for
+ * the pairs of an ExpiringCache or a TimeAwareCache that outlived their duration. The caches hold
+ * two pairs, and the weight they track must be back to 0 once cleared.
+ */
+public final class RemovalCauseTest {
+
+    private static final int CAPACITY = 2;
+    private static final long EXPIRE_MILLIS = 50;
+    private static final long SLEEP_MILLIS = 200;
+
+    private RemovalCauseTest() {
+
+    }
+
+    public static void main(final String[] args) throws InterruptedException {
+        check("LRUCache", new LRUCache<String, String>());
+        check("ObservableFIFOCache", new ObservableFIFOCache<String, String>());
+        check("RingBufferFIFOCache", new RingBufferFIFOCache<String, String>());
+        check("ExpiringCache", new ExpiringCache<>(new FixedExpiry(Long.MAX_VALUE)));
+        check("TimeAwareCache", new TimeAwareCache<String, String>());
+
+        System.out.println("# ExpiringCache, a pair read after its duration");
+        List<String> events = new ArrayList<>();
+        ExpiringCache<String, String> expiring = new ExpiringCache<>(new FixedExpiry(0));
+        expiring.setStalePolicy(new CapacityStalePolicy<>(expiring, CAPACITY));
+        expiring.setCacheListener(new RecordingListener(events));
+        expiring.put("a", "1");
+        expiring.get("a");
+        System.out.println(events);
+
+        System.out.println("# TimeAwareCache, a pair read after its duration");
+        events.clear();
+        TimeAwareCache<String, String> timeAware = new TimeAwareCache<>();
+        timeAware.setExpirePolicy(EXPIRE_MILLIS);
+        timeAware.setCacheListener(new RecordingListener(events));
+        timeAware.put("a", "1");
+        Thread.sleep(SLEEP_MILLIS);
+        timeAware.get("b");
+        System.out.println(events + ", size " + timeAware.size());
+    }
+
+    private static void check(final String name, final ObservableCache<String, String> cache) {
+        List<String> events = new ArrayList<>();
+
+        cache.setStalePolicy(new CapacityStalePolicy<>(cache, CAPACITY));
+        cache.setCacheListener(new RecordingListener(events));
+        cache.setWeigher(new CacheWeigher<String, String>() {
+            @Override
+            public long weigh(final String key, final String value) {
+                return value.length();
+            }
+        });
+
+        System.out.println("# " + name);
+        cache.put("a", "1");
+        cache.put("a", "22");
+        cache.put("b", "1");
+        cache.put("c", "1");
+        cache.remove("b");
+        cache.put("d", "1");
+        cache.clearAll();
+        System.out.println(events + ", size " + cache.size() + ", weight " + cache.getWeight()
+                + ", empty " + cache.isEmpty() + ", eldest " + cache.getEldestEntry());
+
+        /* The cache is usable again once cleared */
+        events.clear();
+        cache.put("e", "1");
+        System.out.println(events + ", get e " + cache.get("e") + ", size " + cache.size());
+    }
+
+    /**
+     * Records the puts and removals, with their causes.
+     */
+    private static final class RecordingListener implements CacheListener<String, String> {
+        private final List<String> events;
+
+        RecordingListener(final List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void onHit(final String key) {
+        }
+
+        @Override
+        public void onMiss(final String key) {
+        }
+
+        @Override
+        public void onPut(final String key, final String value) {
+            events.add("put " + key + "=" + value);
+        }
+
+        @Override
+        public void onRemoval(final String key, final String value, final RemovalCause cause) {
+            events.add(cause + " " + key + "=" + value);
+        }
+    }
+
+    /**
+     * Gives every pair the same duration.
+     */
+    private static final class FixedExpiry implements CacheExpiry<String, String> {
+        private final long millis;
+
+        FixedExpiry(final long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public long expireAfterCreate(final String key, final String value) {
+            return millis;
+        }
+
+        @Override
+        public long expireAfterUpdate(final String key, final String value,
+                                      final long currentDuration) {
+            return millis;
+        }
+
+        @Override
+        public long expireAfterRead(final String key, final String value,
+                                    final long currentDuration) {
+            return millis;
+        }
+    }
+}
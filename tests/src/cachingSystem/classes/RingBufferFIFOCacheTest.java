@@ -0,0 +1,152 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.CacheWeigher;
+import dataStructures.classes.Pair;
+import observerPattern.interfaces.CacheListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Runs a RingBufferFIFOCache and the ObservableFIFOCache it replaces side by side through random
+ * gets, puts, removes, lookups, pins and clears, starting from a tiny ring so that it wraps and
+ * grows. After every operation both caches must return the same value, send the same events,
+ * and hold the same keys in the same order with the same weight.
+ */
+public final class RingBufferFIFOCacheTest {
+
+    private static final long SEED = 7;
+    private static final int OPERATIONS = 200000;
+    private static final int KEYS = 64;
+    private static final int CAPACITY = 16;
+    private static final int INITIAL_RING_CAPACITY = 2;
+    private static final int PINNED_KEYS = 4;
+
+    private RingBufferFIFOCacheTest() {
+
+    }
+
+    public static void main(final String[] args) {
+        List<String> ringEvents = new ArrayList<>();
+        List<String> referenceEvents = new ArrayList<>();
+        RingBufferFIFOCache<Integer, String> ring =
+                new RingBufferFIFOCache<>(INITIAL_RING_CAPACITY);
+        ObservableFIFOCache<Integer, String> reference = new ObservableFIFOCache<>();
+        setUp(ring, ringEvents);
+        setUp(reference, referenceEvents);
+
+        Random random = new Random(SEED);
+        int[] counts = new int[6];
+        int mismatches = 0;
+        int maxSize = 0;
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            Integer key = random.nextInt(KEYS);
+            int operation = random.nextInt(100);
+            Object ringResult = null;
+            Object referenceResult = null;
+
+            if (operation < 45) {
+                ringResult = ring.get(key);
+                referenceResult = reference.get(key);
+                counts[0]++;
+            } else if (operation < 85) {
+                String value = Integer.toString(random.nextInt(1000));
+                ring.put(key, value);
+                reference.put(key, value);
+                counts[1]++;
+            } else if (operation < 95) {
+                ringResult = ring.remove(key);
+                referenceResult = reference.remove(key);
+                counts[2]++;
+            } else if (operation < 98) {
+                ringResult = ring.containsKey(key);
+                referenceResult = reference.containsKey(key);
+                counts[3]++;
+            } else if (random.nextInt(100) != 0) {
+                /* Mostly new pinned keys, and now and then a clear */
+                Set<Integer> pinned = new HashSet<>();
+                for (int j = random.nextInt(PINNED_KEYS + 1); j > 0; j--) {
+                    pinned.add(random.nextInt(KEYS));
+                }
+                ring.setPinnedKeys(pinned);
+                reference.setPinnedKeys(pinned);
+                counts[4]++;
+            } else {
+                ring.clearAll();
+                reference.clearAll();
+                counts[5]++;
+            }
+
+            boolean same = equal(ringResult, referenceResult)
+                    && ringEvents.equals(referenceEvents)
+                    && ring.getKeys().equals(reference.getKeys())
+                    && ring.size() == reference.size()
+                    && ring.isEmpty() == reference.isEmpty()
+                    && ring.getWeight() == reference.getWeight()
+                    && equal(ring.getEldestEntry(), reference.getEldestEntry());
+            if (!same) {
+                if (mismatches == 0) {
+                    System.out.println("first mismatch at operation " + i + ": ring "
+                            + ring.getKeys() + " " + ringEvents + ", reference "
+                            + reference.getKeys() + " " + referenceEvents);
+                }
+                mismatches++;
+            }
+            maxSize = Math.max(maxSize, ring.size());
+            ringEvents.clear();
+            referenceEvents.clear();
+        }
+
+        System.out.println("gets " + counts[0] + ", puts " + counts[1] + ", removes " + counts[2]
+                + ", lookups " + counts[3] + ", pins " + counts[4] + ", clears " + counts[5]);
+        System.out.println("largest size " + maxSize + " for a capacity of " + CAPACITY);
+        System.out.println("mismatches " + mismatches);
+    }
+
+    private static void setUp(final ObservableCache<Integer, String> cache,
+                              final List<String> events) {
+        cache.setStalePolicy(new CapacityStalePolicy<>(cache, CAPACITY));
+        cache.setWeigher(new CacheWeigher<Integer, String>() {
+            @Override
+            public long weigh(final Integer key, final String value) {
+                return value.length();
+            }
+        });
+        cache.setCacheListener(new CacheListener<Integer, String>() {
+            @Override
+            public void onHit(final Integer key) {
+                events.add("hit " + key);
+            }
+
+            @Override
+            public void onMiss(final Integer key) {
+                events.add("miss " + key);
+            }
+
+            @Override
+            public void onPut(final Integer key, final String value) {
+                events.add("put " + key + "=" + value);
+            }
+
+            @Override
+            public void onRemoval(final Integer key, final String value,
+                                  final RemovalCause cause) {
+                events.add(cause + " " + key + "=" + value);
+            }
+        });
+    }
+
+    private static boolean equal(final Object a, final Object b) {
+        if (a instanceof Pair && b instanceof Pair) {
+            Pair<?, ?> first = (Pair<?, ?>) a;
+            Pair<?, ?> second = (Pair<?, ?>) b;
+            return equal(first.getKey(), second.getKey())
+                    && equal(first.getValue(), second.getValue());
+        }
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,260 @@
+package cachingSystem.classes;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks the SharedMemoryCache through two stores mapping the same file, as two processes would:
+ * replacements are seen by both, a value too large for the arena removes the previous one, a full
+ * arena is compacted or cleared instead of refusing puts, and a slot left locked by a dead writer
+ * is probed past by readers and repaired by the next writer. Then writers and readers race on a
+ * small arena: every value read must be whole, and the versions of a key read by one reader must
+ * never go back.
+ */
+public final class SharedMemoryCacheTest {
+
+    /* The layout of the file, to leave a slot locked as a writer that died would */
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 24;
+
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int KEYS_PER_WRITER = 16;
+    private static final int VERSIONS = 1000;
+    private static final long RACE_ARENA_BYTES = 8192;
+
+    private SharedMemoryCacheTest() {
+
+    }
+
+    public static void main(final String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("shared-memory-cache-test");
+        try {
+            run(directory);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void run(final Path directory) throws Exception {
+        Path file = directory.resolve("store");
+
+        System.out.println("# two stores on the same file");
+        try (SharedMemoryCache first = SharedMemoryCache.open(file, 64, 4096);
+             SharedMemoryCache second = SharedMemoryCache.open(file, 64, 4096)) {
+            first.put("a", "1");
+            System.out.println("second reads " + second.get("a"));
+            second.put("a", "2");
+            System.out.println("first reads " + first.get("a"));
+
+            System.out.println("# a value too large for the arena removes the previous one");
+            System.out.println("put " + first.put("a", repeat('x', 8192)) + ", second reads "
+                    + second.get("a"));
+            second.put("b", "3");
+            System.out.println("remove " + first.remove("b") + ", second reads "
+                    + second.get("b") + ", remove again " + first.remove("b"));
+        }
+
+        System.out.println("# a full arena is compacted: the live keys stay");
+        try (SharedMemoryCache store = SharedMemoryCache.open(directory.resolve("compacted"),
+                16, 512)) {
+            store.put("k1", "one");
+            store.put("k2", "two");
+            boolean stored = true;
+            for (int i = 0; i < 1000; i++) {
+                stored &= store.put("hot", "version " + i);
+            }
+            System.out.println("stored " + stored + ", compacted " + (store.getCompactionCount()
+                    > 0) + ", reads " + store.get("k1") + " " + store.get("k2") + " "
+                    + store.get("hot"));
+        }
+
+        System.out.println("# when the live keys do not fit, the store is cleared");
+        try (SharedMemoryCache store = SharedMemoryCache.open(directory.resolve("cleared"),
+                16, 512)) {
+            boolean stored = true;
+            for (int i = 0; i < 40; i++) {
+                stored &= store.put("key " + i, repeat('v', 40));
+            }
+            System.out.println("stored " + stored + ", first key " + store.get("key 0")
+                    + ", last key read " + (store.get("key 39") != null) + ", arena used "
+                    + (store.getArenaUsed() <= 512));
+        }
+
+        deadWriter(directory.resolve("dead-writer"));
+        race(directory.resolve("race"));
+    }
+
+    private static void deadWriter(final Path file) throws IOException {
+        System.out.println("# a slot left locked by a dead writer");
+        try (SharedMemoryCache store = SharedMemoryCache.open(file, 2, 1024)) {
+            /* b has the same home slot as a, so it is stored in the next one */
+            String a = "a";
+            String b = collidingKey(a, 2);
+            store.put(a, "first");
+            store.put(b, "second");
+
+            int slot = slotOf(a, 2);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        channel.size());
+                buffer.order(ByteOrder.nativeOrder());
+                buffer.putLong(slot, buffer.getLong(slot) + 1);
+            }
+
+            System.out.println("readers probe past it: " + store.get(b) + ", " + store.get(a));
+            store.put("c", "third");
+            System.out.println("a writer turns it into a tombstone: " + store.get(a) + ", "
+                    + store.get(b) + ", " + store.get("c"));
+            store.put(a, "again");
+            System.out.println("and the key can be stored again: " + store.get(a));
+        }
+    }
+
+    private static void race(final Path file) throws Exception {
+        System.out.println("# " + WRITERS + " writers and " + READERS + " readers on "
+                + RACE_ARENA_BYTES + " bytes");
+        final SharedMemoryCache[] stores = {
+            SharedMemoryCache.open(file, 256, RACE_ARENA_BYTES),
+            SharedMemoryCache.open(file, 256, RACE_ARENA_BYTES),
+        };
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final AtomicBoolean whole = new AtomicBoolean(true);
+        final AtomicBoolean monotonic = new AtomicBoolean(true);
+        List<Thread> writers = new ArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+
+        for (int w = 0; w < WRITERS; w++) {
+            final int writer = w;
+            writers.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    SharedMemoryCache store = stores[writer % stores.length];
+                    for (int version = 0; version < VERSIONS; version++) {
+                        for (int k = 0; k < KEYS_PER_WRITER; k++) {
+                            String key = "w" + writer + "k" + k;
+                            store.put(key, key + "@" + version);
+                        }
+                    }
+                }
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            final int reader = r;
+            readers.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    SharedMemoryCache store = stores[reader % stores.length];
+                    int[] lastVersions = new int[WRITERS * KEYS_PER_WRITER];
+                    Random random = new Random(reader);
+
+                    while (writing.get()) {
+                        int index = random.nextInt(lastVersions.length);
+                        String key = "w" + index / KEYS_PER_WRITER + "k"
+                                + index % KEYS_PER_WRITER;
+                        String value = store.get(key);
+                        if (value == null) {
+                            continue;
+                        }
+                        if (!value.startsWith(key + "@")) {
+                            whole.set(false);
+                            continue;
+                        }
+
+                        int version = Integer.parseInt(value.substring(key.length() + 1));
+                        if (version < lastVersions[index]) {
+                            monotonic.set(false);
+                        }
+                        lastVersions[index] = version;
+                    }
+                }
+            }));
+        }
+
+        for (Thread thread : readers) {
+            thread.start();
+        }
+        for (Thread thread : writers) {
+            thread.start();
+        }
+        for (Thread thread : writers) {
+            thread.join();
+        }
+        writing.set(false);
+        for (Thread thread : readers) {
+            thread.join();
+        }
+
+        boolean last = true;
+        for (int w = 0; w < WRITERS; w++) {
+            for (int k = 0; k < KEYS_PER_WRITER; k++) {
+                String key = "w" + w + "k" + k;
+                for (SharedMemoryCache store : stores) {
+                    last &= (key + "@" + (VERSIONS - 1)).equals(store.get(key));
+                }
+            }
+        }
+        System.out.println("whole values " + whole.get() + ", versions never go back "
+                + monotonic.get() + ", compacted " + (stores[0].getCompactionCount() > 0)
+                + ", both stores read the last versions " + last);
+
+        for (SharedMemoryCache store : stores) {
+            store.close();
+        }
+    }
+
+    /* A key whose home slot is the one of @key, among @slotCount slots */
+    private static String collidingKey(final String key, final int slotCount) {
+        for (int i = 0; ; i++) {
+            String candidate = "b" + i;
+            if (slotOf(candidate, slotCount) == slotOf(key, slotCount)) {
+                return candidate;
+            }
+        }
+    }
+
+    /* The home slot of a key: FNV-1a of its UTF-8 bytes, modulo the slot count */
+    private static int slotOf(final String key, final int slotCount) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return HEADER_SIZE + (int) Long.remainderUnsigned(hash, slotCount) * SLOT_SIZE;
+    }
+
+    private static String repeat(final char c, final int count) {
+        StringBuilder sb = new StringBuilder(count);
+
+        for (int i = 0; i < count; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<Path> entries = files.sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+
+            for (Path entry : entries) {
+                Files.delete(entry);
+            }
+        }
+    }
+}
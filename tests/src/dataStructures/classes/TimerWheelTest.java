@@ -0,0 +1,126 @@
+package dataStructures.classes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Runs a TimerWheel and a map of deadlines side by side through random schedules, reschedules,
+ * cancels and advances, with deadlines on every level of the wheel and past its last level, and
+ * with steps from one millisecond to about an hour. After every advance, the keys the wheel reports
+ * as due must be exactly the keys whose deadline has passed.
+ */
+public final class TimerWheelTest {
+
+    private static final long SEED = 42;
+    private static final int KEYS = 2000;
+    private static final int ROUNDS = 20000;
+    private static final long START = 1_700_000_000_000L;
+    /* Durations up to about 12 days, past the 4.6 hours of the last level */
+    private static final int MAX_DURATION_BITS = 30;
+    private static final int MAX_STEP_BITS = 22;
+
+    private TimerWheelTest() {
+
+    }
+
+    public static void main(final String[] args) {
+        Random random = new Random(SEED);
+        TimerWheel<Integer> wheel = new TimerWheel<>(START);
+        Map<Integer, TimerWheel.Timer<Integer>> timers = new HashMap<>();
+        Map<Integer, Long> deadlines = new HashMap<>();
+        List<Integer> expired = new ArrayList<>();
+        long time = START;
+
+        int scheduled = 0;
+        int cancelled = 0;
+        int fired = 0;
+        int early = 0;
+        int late = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            Integer key = random.nextInt(KEYS);
+            int action = random.nextInt(4);
+
+            if (action < 2) {
+                long deadline = time + randomDuration(random, MAX_DURATION_BITS) - 1;
+                TimerWheel.Timer<Integer> timer = timers.get(key);
+
+                if (timer == null) {
+                    timers.put(key, wheel.schedule(key, deadline));
+                } else {
+                    wheel.reschedule(timer, deadline);
+                }
+                deadlines.put(key, deadline);
+                scheduled++;
+            } else if (action == 2) {
+                TimerWheel.Timer<Integer> timer = timers.remove(key);
+
+                if (timer != null) {
+                    wheel.cancel(timer);
+                    deadlines.remove(key);
+                    cancelled++;
+                }
+            } else {
+                time += randomDuration(random, MAX_STEP_BITS);
+                wheel.advance(time, expired);
+
+                List<Integer> due = new ArrayList<>();
+                for (Map.Entry<Integer, Long> entry : deadlines.entrySet()) {
+                    if (entry.getValue() <= time) {
+                        due.add(entry.getKey());
+                    }
+                }
+
+                for (Integer expiredKey : expired) {
+                    if (!due.contains(expiredKey)) {
+                        early++;
+                    }
+                }
+                for (Integer dueKey : due) {
+                    if (!expired.contains(dueKey)) {
+                        late++;
+                    }
+                    timers.remove(dueKey);
+                    deadlines.remove(dueKey);
+                }
+                fired += expired.size();
+                expired.clear();
+            }
+        }
+
+        System.out.println("scheduled " + scheduled + ", cancelled " + cancelled
+                + ", fired " + fired + ", pending " + deadlines.size());
+        System.out.println("fired before their deadline: " + early);
+        System.out.println("not fired after their deadline: " + late);
+
+        System.out.println("# every pending timer fires once the wheel passes its deadline");
+        long last = time;
+        for (long deadline : deadlines.values()) {
+            last = Math.max(last, deadline);
+        }
+        wheel.advance(last, expired);
+        Collections.sort(expired);
+        List<Integer> pending = new ArrayList<>(deadlines.keySet());
+        Collections.sort(pending);
+        System.out.println("all fired: " + expired.equals(pending));
+
+        System.out.println("# timers that never expire, and clear");
+        expired.clear();
+        TimerWheel.Timer<Integer> forever = wheel.schedule(-1, Long.MAX_VALUE);
+        wheel.schedule(-2, last + 10);
+        wheel.clear();
+        wheel.advance(last + 1000, expired);
+        System.out.println("fired after clear: " + expired + ", forever due "
+                + (forever.getDeadline() == Long.MAX_VALUE ? "never" : forever.getDeadline()));
+    }
+
+    /* A duration with a uniformly random number of bits, so that every level gets timers */
+    private static long randomDuration(final Random random, final int maxBits) {
+        int bits = 1 + random.nextInt(maxBits);
+        return 1 + (random.nextLong() >>> (Long.SIZE - bits));
+    }
+}
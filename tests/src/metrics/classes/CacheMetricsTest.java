@@ -0,0 +1,164 @@
+package metrics.classes;
+
+import cachingSystem.FileCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Checks the metrics of a FileCache as the MBean server and the PrometheusExporter show them:
+ * one hit or miss per requested file, the puts, evictions and loads, the text served at /metrics
+ * and the refusal of other methods than GET. The size and the listener count of the cache are
+ * read while another thread holds its lock, as a load from disk would.
+ */
+public final class CacheMetricsTest {
+
+    private static final String[] ATTRIBUTES = {"Size", "Weight", "Hits", "Misses", "Puts",
+        "HitRatio", "Evictions", "Expirations", "Loads", "LoadFailures", "Listeners"};
+
+    private CacheMetricsTest() {
+
+    }
+
+    public static void main(final String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("cache-metrics-test");
+        try {
+            run(directory);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void run(final Path directory) throws Exception {
+        String[] paths = new String[3];
+        for (int i = 0; i < paths.length; i++) {
+            Path file = directory.resolve(i + ".txt");
+            Files.write(file, ("file " + i).getBytes(StandardCharsets.US_ASCII));
+            paths[i] = file.toString();
+        }
+
+        FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, 2);
+        CacheMetrics metrics = new CacheMetrics("test \"cache\"", cache);
+        metrics.registerMBean();
+
+        /* 0 and 1 miss, 0 hits, 2 misses and evicts 1, then a put */
+        cache.getFileContents(paths[0]);
+        cache.getFileContents(paths[1]);
+        cache.getFileContents(paths[0]);
+        cache.getFileContents(paths[2]);
+        cache.putFileContents(paths[0], "put");
+
+        System.out.println("# the MBean attributes");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("cachingSystem:type=FileCache,name="
+                + ObjectName.quote("test \"cache\""));
+        for (String attribute : ATTRIBUTES) {
+            System.out.println(attribute + " " + server.getAttribute(name, attribute));
+        }
+
+        System.out.println("# the scrape");
+        PrometheusExporter exporter = new PrometheusExporter(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        exporter.addCache(metrics);
+        String scrape = exporter.scrape();
+        for (String line : scrape.split("\n")) {
+            if (!line.startsWith("filecache_load_seconds_sum")) {
+                System.out.println(line);
+            }
+        }
+
+        System.out.println("# over HTTP");
+        exporter.start();
+        try {
+            System.out.println("GET equals the scrape: " + scrape.equals(get(exporter)));
+            System.out.println("POST: " + post(exporter));
+        } finally {
+            exporter.stop();
+        }
+
+        System.out.println("# read while the lock of the cache is held");
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final FileCache lockedCache = cache;
+        Thread holder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (lockedCache) {
+                    locked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        holder.start();
+        locked.await();
+        System.out.println("size " + metrics.getSize() + ", listeners " + metrics.getListeners()
+                + ", hits " + metrics.getHits());
+        release.countDown();
+        holder.join();
+
+        metrics.unregisterMBean();
+        System.out.println("registered after unregister: " + server.isRegistered(name));
+    }
+
+    private static String get(final PrometheusExporter exporter) throws IOException {
+        HttpURLConnection connection = open(exporter);
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static int post(final PrometheusExporter exporter) throws IOException {
+        HttpURLConnection connection = open(exporter);
+        try {
+            connection.setRequestMethod("POST");
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static HttpURLConnection open(final PrometheusExporter exporter) throws IOException {
+        URI uri = URI.create("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+                + exporter.getPort() + "/metrics");
+        return (HttpURLConnection) uri.toURL().openConnection();
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<Path> entries = files.sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+
+            for (Path entry : entries) {
+                Files.delete(entry);
+            }
+        }
+    }
+}
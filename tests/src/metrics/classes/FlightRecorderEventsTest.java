@@ -0,0 +1,172 @@
+package metrics.classes;
+
+import cachingSystem.FileCache;
+import cachingSystem.classes.CapacityStalePolicy;
+import cachingSystem.classes.ExpiringCache;
+import cachingSystem.classes.TimeAwareCache;
+import cachingSystem.interfaces.CacheExpiry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import observerPattern.classes.BroadcastListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks that the Flight Recorder events of the caches are emitted once a recording enables them:
+ * the gets and loads of a FileCache, the eviction of its eldest file, and the expiry sweeps of an
+ * ExpiringCache and a TimeAwareCache. The recording is dumped to a file and read back. The gets
+ * are disabled by default, so a recording that does not enable them holds none.
+ */
+public final class FlightRecorderEventsTest {
+
+    private static final String PREFIX = "cachingSystem.";
+    private static final String[] EVENTS = {"CacheGet", "FileLoad", "CacheEviction",
+        "CacheExpirySweep"};
+    private static final long EXPIRE_MILLIS = 50;
+    private static final long SLEEP_MILLIS = 200;
+
+    private FlightRecorderEventsTest() {
+
+    }
+
+    public static void main(final String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("flight-recorder-events-test");
+        try {
+            run(directory);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void run(final Path directory) throws Exception {
+        String[] paths = new String[2];
+        for (int i = 0; i < paths.length; i++) {
+            Path file = directory.resolve(i + ".txt");
+            Files.write(file, ("file " + i).getBytes(StandardCharsets.US_ASCII));
+            paths[i] = file.toString();
+        }
+
+        System.out.println("# every event enabled");
+        Recording recording = new Recording();
+        for (String name : EVENTS) {
+            recording.enable(PREFIX + name).withThreshold(Duration.ZERO);
+        }
+        recording.start();
+        exercise(paths);
+        recording.stop();
+        print(directory, recording);
+
+        System.out.println("# the default settings: no gets");
+        recording = new Recording();
+        for (String name : EVENTS) {
+            if (!name.equals("CacheGet")) {
+                recording.enable(PREFIX + name).withThreshold(Duration.ZERO);
+            }
+        }
+        recording.start();
+        exercise(paths);
+        recording.stop();
+        print(directory, recording);
+    }
+
+    /* 0 misses, 0 hits, 1 misses and evicts 0, then each expiring cache sweeps an expired pair */
+    private static void exercise(final String[] paths) throws InterruptedException {
+        FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, 1);
+        cache.getFileContents(paths[0]);
+        cache.getFileContents(paths[0]);
+        cache.getFileContents(paths[1]);
+
+        ExpiringCache<String, String> expiring = new ExpiringCache<>(
+                new CacheExpiry<String, String>() {
+                    @Override
+                    public long expireAfterCreate(final String key, final String value) {
+                        return 0;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(final String key, final String value,
+                                                  final long currentDuration) {
+                        return 0;
+                    }
+
+                    @Override
+                    public long expireAfterRead(final String key, final String value,
+                                                final long currentDuration) {
+                        return 0;
+                    }
+                });
+        expiring.setStalePolicy(new CapacityStalePolicy<>(expiring, 2));
+        expiring.setCacheListener(new BroadcastListener<String, String>());
+        TimeAwareCache<String, String> timeAware = new TimeAwareCache<>();
+        timeAware.setExpirePolicy(EXPIRE_MILLIS);
+        timeAware.setCacheListener(new BroadcastListener<String, String>());
+
+        expiring.put("a", "1");
+        timeAware.put("a", "1");
+        Thread.sleep(SLEEP_MILLIS);
+        expiring.cleanUp();
+        timeAware.get("b");
+    }
+
+    private static void print(final Path directory, final Recording recording)
+            throws IOException {
+        Path dump = directory.resolve("recording.jfr");
+        List<String> lines = new ArrayList<>();
+
+        recording.dump(dump);
+        recording.close();
+        for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+            String name = event.getEventType().getName();
+            if (!name.startsWith(PREFIX)) {
+                continue;
+            }
+            lines.add(name.substring(PREFIX.length()) + describe(event));
+        }
+        Files.delete(dump);
+
+        for (String line : lines) {
+            System.out.println(line);
+        }
+    }
+
+    private static String describe(final RecordedEvent event) {
+        switch (event.getEventType().getName().substring(PREFIX.length())) {
+            case "CacheGet":
+                return " " + fileName(event.getString("path")) + " hit "
+                        + event.getBoolean("hit") + ", " + event.getLong("characters")
+                        + " characters";
+            case "FileLoad":
+                return " " + fileName(event.getString("path")) + " from "
+                        + event.getString("source") + ", success " + event.getBoolean("success");
+            case "CacheEviction":
+                return " " + fileName(event.getString("key")) + " " + event.getString("cause");
+            default:
+                return " " + event.getLong("entries") + " entries";
+        }
+    }
+
+    private static String fileName(final String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<Path> entries = files.sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+
+            for (Path entry : entries) {
+                Files.delete(entry);
+            }
+        }
+    }
+}
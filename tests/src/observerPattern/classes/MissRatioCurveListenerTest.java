@@ -0,0 +1,112 @@
+package observerPattern.classes;
+
+import cachingSystem.FileCache;
+import cachingSystem.classes.DoorkeeperAdmissionPolicy;
+import dataStructures.classes.ZipfDistribution;
+
+import java.util.Collections;
+import java.util.LinkedList;
+
+/**
+ * Checks the estimates of the MissRatioCurveListener against the exact LRU hit ratios of a fixed
+ * Zipfian trace, computed from the stack distance of every access. When every key is tracked and
+ * every bucket holds one capacity, the estimates are exact; with half of the keys tracked, they
+ * stay within 0.05. On a FileCache, the listener counts one access per request, whether the
+ * file was admitted on its miss or only looked up by getAllIfPresent.
+ */
+public final class MissRatioCurveListenerTest {
+
+    private static final int KEYS = 2000;
+    private static final int ACCESSES = 100000;
+    private static final double SKEW = 0.9;
+    private static final int SAMPLED_KEYS = 1000;
+    private static final int BUCKETS = 1000;
+    private static final double TOLERANCE = 0.05;
+    private static final int[] CAPACITIES = {10, 50, 100, 200, 500, 1000, 2000};
+
+    private MissRatioCurveListenerTest() {
+
+    }
+
+    public static void main(final String[] args) {
+        int[] trace = new ZipfDistribution(KEYS, SKEW, 1).next(ACCESSES);
+        long[] hitsAtDistance = stackDistances(trace);
+
+        MissRatioCurveListener<Integer, Object> full =
+                new MissRatioCurveListener<>(KEYS, KEYS, KEYS);
+        MissRatioCurveListener<Integer, Object> sampled =
+                new MissRatioCurveListener<>(SAMPLED_KEYS, KEYS, BUCKETS);
+        for (int key : trace) {
+            full.onMiss(key);
+            sampled.onMiss(key);
+        }
+
+        System.out.println("# every key tracked: the exact LRU hit ratios");
+        System.out.println(String.format("sampling rate %.2f", full.getSamplingRate()));
+        for (int capacity : CAPACITIES) {
+            double exact = exactHitRatio(hitsAtDistance, capacity);
+            System.out.println(String.format("capacity %d: exact %.4f, estimate %.4f", capacity,
+                    exact, full.getHitRatio(capacity)));
+        }
+
+        System.out.println("# " + SAMPLED_KEYS + " keys tracked out of " + KEYS);
+        System.out.println(String.format("sampling rate %.2f", sampled.getSamplingRate()));
+        double largestError = 0;
+        for (int capacity : CAPACITIES) {
+            double exact = exactHitRatio(hitsAtDistance, capacity);
+            double estimate = sampled.getHitRatio(capacity);
+            largestError = Math.max(largestError, Math.abs(estimate - exact));
+            System.out.println(String.format("capacity %d: exact %.4f, estimate %.4f", capacity,
+                    exact, estimate));
+        }
+        System.out.println("largest error below " + TOLERANCE + ": " + (largestError < TOLERANCE));
+
+        System.out.println("# on a FileCache, one access per request");
+        FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, 10);
+        cache.setAdmissionPolicy(new DoorkeeperAdmissionPolicy<String>(100));
+        MissRatioCurveListener<String, String> curve = new MissRatioCurveListener<>(10, 10, 10);
+        cache.addRequestListener(curve);
+
+        /* Read without being admitted, then admitted, then a hit */
+        for (int i = 0; i < 3; i++) {
+            cache.getFileContents("in_files/1.txt");
+        }
+        /* A miss that loads nothing, then a hit on the put contents */
+        cache.getAllIfPresent(Collections.singletonList("in_files/2.txt"));
+        cache.putFileContents("in_files/2.txt", "put");
+        cache.getFileContents("in_files/2.txt");
+
+        System.out.println("requests " + cache.getRequestCount() + ", accesses "
+                + curve.getReferences() + String.format(", hit ratio %.2f",
+                curve.getHitRatio(10)));
+    }
+
+    /* The number of accesses at each LRU stack distance, the last one counting the cold misses */
+    private static long[] stackDistances(final int[] trace) {
+        long[] counts = new long[KEYS + 1];
+        LinkedList<Integer> stack = new LinkedList<>();
+
+        for (int key : trace) {
+            int distance = stack.indexOf(key);
+
+            if (distance < 0) {
+                counts[KEYS]++;
+            } else {
+                counts[distance]++;
+                stack.remove(distance);
+            }
+            stack.addFirst(key);
+        }
+        return counts;
+    }
+
+    /* An access hits a cache of @capacity entries if fewer keys were used since its last use */
+    private static double exactHitRatio(final long[] hitsAtDistance, final int capacity) {
+        long hits = 0;
+
+        for (int distance = 0; distance < Math.min(capacity, KEYS); distance++) {
+            hits += hitsAtDistance[distance];
+        }
+        return (double) hits / ACCESSES;
+    }
+}
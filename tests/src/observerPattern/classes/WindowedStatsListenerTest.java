@@ -0,0 +1,82 @@
+package observerPattern.classes;
+
+/**
+ * Checks the WindowedStatsListener on a clock set by the test: the counts of the windows that
+ * end at the current second, the hit ratio of the requests, the decayed rates, and a clock that
+ * jumps by far more than the window, which must only empty the window.
+ */
+public final class WindowedStatsListenerTest {
+
+    private static final int WINDOW_SECONDS = 4;
+    private static final double DECAY_SECONDS = 2;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final long FAR_FUTURE_SECONDS = 1L << 32;
+
+    private WindowedStatsListenerTest() {
+
+    }
+
+    public static void main(final String[] args) {
+        ManualClockListener stats = new ManualClockListener();
+
+        /* Seconds 0, 1 and 2 see 1, 2 and 3 hits, and the same number of misses minus one */
+        for (int second = 0; second < 3; second++) {
+            stats.second = second;
+            for (int i = 0; i <= second; i++) {
+                stats.onHit("k");
+            }
+            for (int i = 0; i < second; i++) {
+                stats.onMiss("k");
+            }
+            stats.onPut("k", "v");
+        }
+
+        System.out.println("# the windows that end in second 2");
+        for (int seconds = 1; seconds <= WINDOW_SECONDS; seconds++) {
+            System.out.println(seconds + " s: hits " + stats.getHits(seconds) + ", misses "
+                    + stats.getMisses(seconds) + ", updates " + stats.getUpdates(seconds)
+                    + ", requests " + stats.getRequests(seconds)
+                    + String.format(", hit ratio %.3f", stats.getHitRatio(seconds)));
+        }
+
+        System.out.println("# the decayed rates, as of second 1");
+        System.out.println(String.format("hits %.4f, misses %.4f, ratio %.4f",
+                stats.getHitRate(), stats.getMissRate(), stats.getDecayedHitRatio()));
+
+        System.out.println("# second 5: the first seconds leave the window");
+        stats.second = 5;
+        System.out.println("4 s: hits " + stats.getHits(WINDOW_SECONDS) + ", misses "
+                + stats.getMisses(WINDOW_SECONDS) + String.format(", hit rate %.4f",
+                stats.getHitRate()));
+
+        System.out.println("# a clock that jumps far ahead only empties the window");
+        stats.second = FAR_FUTURE_SECONDS;
+        stats.onMiss("k");
+        System.out.println("4 s: hits " + stats.getHits(WINDOW_SECONDS) + ", misses "
+                + stats.getMisses(WINDOW_SECONDS) + ", totals " + stats.getHits() + " / "
+                + stats.getMisses() + String.format(", hit rate %.4f", stats.getHitRate()));
+
+        System.out.println("# a window longer than the listener's is refused");
+        try {
+            stats.getHits(WINDOW_SECONDS + 1);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * A listener whose clock only moves when the test sets it.
+     */
+    private static final class ManualClockListener extends WindowedStatsListener<String, String> {
+        private long second = 0;
+
+        ManualClockListener() {
+            super(WINDOW_SECONDS, DECAY_SECONDS);
+        }
+
+        @Override
+        protected long nanoTime() {
+            return second * NANOS_PER_SECOND;
+        }
+    }
+}
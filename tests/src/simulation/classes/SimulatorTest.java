@@ -0,0 +1,159 @@
+package simulation.classes;
+
+import cachingSystem.FileCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks the HitRatioSimulator and the OptimalSimulator against hit counts known by hand, on
+ * Belady's reference string 1 2 3 4 1 2 5 1 2 3 4 5: with 3 entries, FIFO hits 3 gets, LRU 2 and
+ * OPT 5; with 4 entries, FIFO hits only 2 (Belady's anomaly), LRU 4 and OPT 6. Puts never count
+ * as hits, but insert their key. The OptimalSimulator is then compared to a direct Belady cache
+ * on a longer random trace, where its heap has to be compacted.
+ */
+public final class SimulatorTest {
+
+    private static final String BELADY = "1 2 3 4 1 2 5 1 2 3 4 5";
+    private static final int RANDOM_EVENTS = 20000;
+    private static final int RANDOM_KEYS = 50;
+    private static final double PUT_RATIO = 0.1;
+    private static final int[] RANDOM_CAPACITIES = {1, 2, 5, 10, 25, 50};
+
+    private SimulatorTest() {
+
+    }
+
+    public static void main(final String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("simulator-test");
+        try {
+            run(directory);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void run(final Path directory) throws IOException {
+        List<String> belady = new ArrayList<>();
+        for (String key : BELADY.split(" ")) {
+            belady.add("get " + key);
+        }
+        KeyTrace trace = write(directory.resolve("belady"), belady);
+
+        System.out.println("# Belady's reference string, hits out of " + trace.countGets());
+        for (int capacity = 3; capacity <= 4; capacity++) {
+            printHits(trace, capacity);
+        }
+
+        System.out.println("# a put inserts its key without counting as a hit");
+        printHits(write(directory.resolve("put-then-get"), Arrays.asList("put a", "get a")), 1);
+        System.out.println("# and can evict the key of the next get");
+        printHits(write(directory.resolve("put-evicts"),
+                Arrays.asList("get a", "put b", "get a")), 1);
+
+        System.out.println("# a random trace, OPT against a direct Belady cache");
+        Random random = new Random(1);
+        List<String> commands = new ArrayList<>();
+        for (int i = 0; i < RANDOM_EVENTS; i++) {
+            String key = Integer.toString(random.nextInt(RANDOM_KEYS));
+            commands.add((random.nextDouble() < PUT_RATIO ? "put " : "get ") + key);
+        }
+        KeyTrace randomTrace = write(directory.resolve("random"), commands);
+        OptimalSimulator optimal = new OptimalSimulator(randomTrace);
+        HitRatioSimulator simulator = new HitRatioSimulator(randomTrace);
+
+        for (int capacity : RANDOM_CAPACITIES) {
+            long opt = optimal.simulate(capacity);
+            boolean bound = true;
+            for (FileCache.Strategy strategy : FileCache.Strategy.values()) {
+                bound &= simulator.simulate(strategy, capacity) <= opt;
+            }
+            System.out.println("capacity " + capacity + ": OPT " + opt + ", direct "
+                    + belady(randomTrace, capacity) + ", bounds every strategy " + bound);
+        }
+    }
+
+    private static void printHits(final KeyTrace trace, final int capacity) {
+        HitRatioSimulator simulator = new HitRatioSimulator(trace);
+        StringBuilder line = new StringBuilder("capacity " + capacity + ":");
+
+        for (FileCache.Strategy strategy : FileCache.Strategy.values()) {
+            line.append(" ").append(strategy).append(" ")
+                    .append(simulator.simulate(strategy, capacity));
+        }
+        line.append(" OPT ").append(new OptimalSimulator(trace).simulate(capacity));
+        System.out.println(line);
+    }
+
+    /* The trace of the commands, behind the cache description that KeyTrace skips */
+    private static KeyTrace write(final Path file, final List<String> commands)
+            throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("LRU 1");
+        lines.add("");
+        lines.addAll(commands);
+        Files.write(file, lines);
+
+        return KeyTrace.readTrace(file.toString());
+    }
+
+    /* Belady's policy as written: scan ahead for the cached key used the farthest away */
+    private static long belady(final KeyTrace trace, final int capacity) {
+        List<Integer> cached = new ArrayList<>();
+        long hits = 0;
+
+        for (int i = 0; i < trace.size(); i++) {
+            Integer key = trace.getKey(i);
+
+            if (cached.contains(key)) {
+                if (!trace.isPut(i)) {
+                    hits++;
+                }
+                continue;
+            }
+
+            if (cached.size() == capacity) {
+                int victim = 0;
+                int farthest = -1;
+                for (int j = 0; j < cached.size(); j++) {
+                    int next = nextUse(trace, cached.get(j), i + 1);
+                    if (next > farthest) {
+                        farthest = next;
+                        victim = j;
+                    }
+                }
+                cached.remove(victim);
+            }
+            cached.add(key);
+        }
+        return hits;
+    }
+
+    private static int nextUse(final KeyTrace trace, final int key, final int from) {
+        for (int i = from; i < trace.size(); i++) {
+            if (trace.getKey(i) == key) {
+                return i;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<Path> entries = files.sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+
+            for (Path entry : entries) {
+                Files.delete(entry);
+            }
+        }
+    }
+}
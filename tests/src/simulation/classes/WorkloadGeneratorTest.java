@@ -0,0 +1,167 @@
+package simulation.classes;
+
+import cachingSystem.FileCache;
+import traceReplay.classes.TraceReader;
+import traceReplay.classes.TraceReplayer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks that the WorkloadGenerator is deterministic: the same seed gives the same trace and
+ * files, whether the generator is configured by its setters or its command line, a different
+ * seed gives a different trace, and changing the write ratio does not change which files are
+ * requested. The generated trace is then replayed against the generated files.
+ */
+public final class WorkloadGeneratorTest {
+
+    private static final int REQUESTS = 5000;
+    private static final int FILES = 200;
+    private static final double WRITE_RATIO = 0.3;
+    private static final int TOTALS = 3;
+
+    private WorkloadGeneratorTest() {
+
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("workload-generator-test");
+        try {
+            run(directory);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void run(final Path directory) throws IOException, InterruptedException {
+        Path first = generate(directory, "first", 1, WRITE_RATIO);
+        Path second = generate(directory, "second", 1, WRITE_RATIO);
+        Path otherSeed = generate(directory, "other-seed", 2, WRITE_RATIO);
+        Path readOnly = generate(directory, "read-only", 1, 0);
+
+        Path fromCommandLine = directory.resolve("command-line");
+        WorkloadGenerator.main(new String[] {
+            fromCommandLine.resolve("trace").toString(), fromCommandLine.toString(),
+            "requests=" + REQUESTS, "files=" + FILES, "skew=0.9", "shiftInterval=1000",
+            "shiftSize=20", "scanRate=0.002", "scanLength=50", "loopRate=0.1", "loopLength=30",
+            "writeRatio=" + WRITE_RATIO, "sizeMedian=64", "sizeSigma=1", "maxSize=4096",
+            "seed=1", "cache=LRU", "parameter=50",
+        });
+
+        System.out.println("# the same seed gives the same trace and files");
+        System.out.println("trace " + sameTrace(first, second) + ", files "
+                + sameFiles(first, second));
+        System.out.println("# the command line gives the same as the setters");
+        System.out.println("trace " + sameTrace(first, fromCommandLine) + ", files "
+                + sameFiles(first, fromCommandLine));
+        System.out.println("# another seed gives another trace and other files");
+        System.out.println("trace " + sameTrace(first, otherSeed) + ", files "
+                + sameFiles(first, otherSeed));
+        System.out.println("# the write ratio does not change the requested files");
+        System.out.println(requestedFiles(first).equals(requestedFiles(readOnly)));
+
+        List<String> lines = Files.readAllLines(first.resolve("trace"));
+        int puts = 0;
+        Set<String> distinct = new HashSet<>();
+        for (String line : lines) {
+            if (line.startsWith("put ")) {
+                puts++;
+            }
+            if (line.startsWith("get ") || line.startsWith("put ")) {
+                distinct.add(line.split(" ")[1]);
+            }
+        }
+        System.out.println("# the generated trace");
+        System.out.println("lines " + lines.size() + ", first " + lines.get(0) + ", last "
+                + lines.get(lines.size() - 1));
+        System.out.println(String.format("puts %.2f of the requests, %d distinct files",
+                (double) puts / REQUESTS, distinct.size()));
+
+        System.out.println("# replayed, the totals");
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        try (TraceReader reader = new TraceReader(first.resolve("trace").toString());
+             PrintStream out = new PrintStream(report, true, "UTF-8")) {
+            FileCache cache = TraceReplayer.createFileCache(reader);
+            new TraceReplayer(cache).replay(reader, out);
+        }
+        /* Every get prints the contents of its file; only the totals at the end are kept */
+        String[] results = report.toString("UTF-8").split("\n");
+        for (int i = results.length - TOTALS; i < results.length; i++) {
+            System.out.println(results[i]);
+        }
+    }
+
+    private static Path generate(final Path directory, final String name, final long seed,
+                                 final double writeRatio) throws IOException {
+        Path output = directory.resolve(name);
+        WorkloadGenerator generator = new WorkloadGenerator()
+                .setRequests(REQUESTS)
+                .setFiles(FILES)
+                .setSkew(0.9)
+                .setShift(1000, 20)
+                .setScans(0.002, 50)
+                .setLoop(0.1, 30)
+                .setWriteRatio(writeRatio)
+                .setSizes(64, 1, 4096)
+                .setSeed(seed)
+                .setCache("LRU", 50);
+
+        generator.writeFiles(output);
+        generator.writeTrace(output.resolve("trace"), output.toString());
+        return output;
+    }
+
+    /* The traces name their own directory, which is left out of the comparison */
+    private static boolean sameTrace(final Path first, final Path second) throws IOException {
+        String a = new String(Files.readAllBytes(first.resolve("trace")), "US-ASCII")
+                .replace(first.toString(), "");
+        String b = new String(Files.readAllBytes(second.resolve("trace")), "US-ASCII")
+                .replace(second.toString(), "");
+        return a.equals(b);
+    }
+
+    private static boolean sameFiles(final Path first, final Path second) throws IOException {
+        for (int file = 1; file <= FILES; file++) {
+            byte[] a = Files.readAllBytes(first.resolve(file + ".txt"));
+            byte[] b = Files.readAllBytes(second.resolve(file + ".txt"));
+
+            if (!Arrays.equals(a, b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> requestedFiles(final Path output) throws IOException {
+        List<String> requested = new ArrayList<>();
+
+        for (String line : Files.readAllLines(output.resolve("trace"))) {
+            if (line.startsWith("get ") || line.startsWith("put ")) {
+                requested.add(line.split(" ")[1].replace(output.toString(), ""));
+            }
+        }
+        return requested;
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<Path> entries = files.sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+
+            for (Path entry : entries) {
+                Files.delete(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package traceReplay.classes;
+
+import cachingSystem.FileCache;
+import observerPattern.interfaces.CacheListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Replays traces from several threads and prints the parts of the reports that do not depend on
+ * timing: the operation counts and the hit ratio of a cache that never evicts, which must match
+ * a sequential replay. A worker that fails must abort the replay instead of leaving the
+ * dispatcher waiting on its full queue.
+ */
+public final class ConcurrentTraceReplayerTest {
+
+    private static final int FILES = 100;
+    private static final int PASSES = 10;
+    private static final int THREADS = 4;
+    private static final int FAILING_GETS = 20000;
+    private static final long TIMEOUT_MILLIS = 30000;
+    private static final String FAILING_KEY = "in_files/50.txt";
+
+    private ConcurrentTraceReplayerTest() {
+
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        /* A replay that hangs fails the test instead of blocking the test run */
+        Thread watchdog = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(TIMEOUT_MILLIS);
+                    System.out.println("replay did not finish");
+                    System.exit(1);
+                } catch (InterruptedException e) {
+                    /* The test finished */
+                }
+            }
+        }, "watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+
+        StringBuilder passes = new StringBuilder("LRU " + 2 * FILES + "\n");
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (int i = 1; i <= FILES; i++) {
+                passes.append("get in_files/").append(i).append(".txt\n");
+            }
+            if (pass == 0) {
+                /* Let the first pass load every file before the hits */
+                passes.append("delay 100\n");
+            }
+        }
+        passes.append("put in_files/1.txt updated\n");
+
+        System.out.println("# every file is missed once, by every distribution");
+        replay(passes.toString(), ConcurrentTraceReplayer.Distribution.SHARDED, null);
+        replay(passes.toString(), ConcurrentTraceReplayer.Distribution.ROUND_ROBIN, null);
+
+        StringBuilder failing = new StringBuilder("LRU " + FILES + "\n");
+        for (int i = 0; i < FAILING_GETS; i++) {
+            failing.append("get in_files/").append(i % FILES + 1).append(".txt\n");
+        }
+
+        System.out.println("# a failing worker aborts the replay");
+        CacheListener<String, String> failure = new CacheListener<String, String>() {
+            @Override
+            public void onHit(final String key) {
+
+            }
+
+            @Override
+            public void onMiss(final String key) {
+                if (key.equals(FAILING_KEY)) {
+                    throw new IllegalStateException("Cannot load " + key);
+                }
+            }
+
+            @Override
+            public void onPut(final String key, final String value) {
+
+            }
+        };
+        replay(failing.toString(), ConcurrentTraceReplayer.Distribution.SHARDED, failure);
+
+        watchdog.interrupt();
+    }
+
+    private static void replay(final String trace,
+                               final ConcurrentTraceReplayer.Distribution distribution,
+                               final CacheListener<String, String> listener)
+            throws IOException, InterruptedException {
+        Path file = Files.createTempFile("concurrent-trace-replayer-test", ".trace");
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+        try {
+            Files.write(file, trace.getBytes(StandardCharsets.UTF_8));
+
+            try (TraceReader reader = new TraceReader(file.toString());
+                 PrintStream out = new PrintStream(report, true, "UTF-8")) {
+                FileCache cache = TraceReplayer.createFileCache(reader);
+                if (listener != null) {
+                    cache.addListener(listener);
+                }
+
+                new ConcurrentTraceReplayer(cache, THREADS, distribution).replay(reader, out);
+            } catch (IllegalStateException e) {
+                System.out.println(e.getMessage() + ": " + e.getCause().getMessage());
+            }
+        } finally {
+            Files.delete(file);
+        }
+
+        /* The timings change from run to run */
+        for (String line : report.toString("UTF-8").split("\n")) {
+            if (line.startsWith("operations ")) {
+                System.out.println(line.substring(0, line.indexOf(" in ")));
+            } else if (line.startsWith("get ") || line.startsWith("put ")) {
+                System.out.println(line.substring(0, line.indexOf(" p50")));
+            } else if (!line.isEmpty()) {
+                System.out.println(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package traceReplay.classes;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads a trace with comments, blank lines, CRLF and tab separators, a line longer than the read
+ * buffer and a last line without a line terminator, and prints every command with its tokens.
+ */
+public final class TraceReaderTest {
+
+    private static final int LONG_VALUE_LENGTH = 100000;
+    private static final int PRINTED_TOKEN_LENGTH = 20;
+
+    private TraceReaderTest() {
+
+    }
+
+    public static void main(final String[] args) throws IOException {
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < LONG_VALUE_LENGTH; i++) {
+            longValue.append((char) ('a' + i % 26));
+        }
+
+        String trace = "LRU 5\n"
+                + "# a comment\n"
+                + "\n"
+                + "   \t\n"
+                + "get in_files/1.txt\r\n"
+                + "\tput  in_files/2.txt\tvalue \r\n"
+                + "put in_files/3.txt " + longValue + "\n"
+                + "delay -15\n"
+                + "delay +7\n"
+                + "unknown command\n"
+                + "delay 1x\n"
+                + "get";
+
+        Path file = Files.createTempFile("trace-reader-test", ".trace");
+        try {
+            Files.write(file, trace.getBytes(StandardCharsets.UTF_8));
+
+            try (TraceReader reader = new TraceReader(file.toString())) {
+                while (reader.nextCommand()) {
+                    print(reader);
+                }
+                System.out.println("end of trace: " + !reader.nextCommand());
+            }
+        } finally {
+            Files.delete(file);
+        }
+
+        try {
+            new TraceReader(file.toString()).close();
+        } catch (IllegalArgumentException e) {
+            System.out.println("missing file: "
+                    + e.getMessage().replace(file.toString(), "<trace>"));
+        }
+    }
+
+    private static void print(final TraceReader reader) {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(reader.command()).append(" tokens=").append(reader.tokenCount());
+        for (int i = 0; i < reader.tokenCount(); i++) {
+            String token = reader.token(i);
+
+            sb.append(" [");
+            if (token.length() > PRINTED_TOKEN_LENGTH) {
+                sb.append(token, 0, PRINTED_TOKEN_LENGTH).append("... ").append(token.length()).append(" chars");
+            } else {
+                sb.append(token);
+            }
+            sb.append(']');
+        }
+
+        if (reader.command() == TraceCommand.DELAY) {
+            try {
+                long delay = reader.longToken(1);
+                sb.append(" delay=").append(delay);
+            } catch (NumberFormatException e) {
+                sb.append(" ").append(e.getMessage());
+            }
+        }
+        if (reader.command() == TraceCommand.GET) {
+            try {
+                String key = reader.token(1);
+                sb.append(" key=").append(key);
+            } catch (IllegalArgumentException e) {
+                sb.append(" ").append(e.getMessage());
+            }
+        }
+        System.out.println(sb);
+    }
+}